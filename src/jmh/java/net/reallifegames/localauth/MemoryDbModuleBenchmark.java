@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.UserModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+public class MemoryDbModuleBenchmark {
+
+    private MemoryDbModule memoryDbModule;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Path directory = Files.createTempDirectory("local-auth-bench");
+        memoryDbModule = new MemoryDbModule(directory, 16 * 1024 * 1024, 0, false);
+        final Config config = new Config();
+        // Each user costs a bcrypt hash so keep the set small
+        for (int i = 0; i < 100; i++) {
+            memoryDbModule.createNewInvite("user" + i + "@test.com", Arrays.asList(1, 2, 3));
+            memoryDbModule.createNewUser(config, "user" + i + "@test.com", "password");
+        }
+        memoryDbModule.createNewNode("node", "text");
+    }
+
+    @Benchmark
+    public UserModel getUserAuthModelByEmail() {
+        return memoryDbModule.getUserAuthModelByEmail("user50@test.com");
+    }
+
+    @Benchmark
+    public boolean updateNode() {
+        return memoryDbModule.updateNode("node", "text");
+    }
+
+    @TearDown
+    public void tearDown() {
+        memoryDbModule.close();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import net.reallifegames.localauth.models.UserModel;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+public class MongoDbModuleBenchmark {
+
+    private static final String DB_NAME = "benchdb";
+    private MongoServer server;
+    private MongoDbModule mongoDbModule;
+
+    @Setup
+    public void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        final InetSocketAddress serverAddress = server.bind();
+        final String uri = "mongodb://" + new ServerAddress(serverAddress).toString();
+        try (final MongoClient mongoClient = MongoClients.create(uri)) {
+            mongoClient.getDatabase(DB_NAME).getCollection("users").insertOne(
+                    new Document("_id", "default@test.com")
+                            .append("passwordHash", "1$2123$asd5165fd1gb65fg1h561sd5f16sa5d1")
+                            .append("active", true)
+                            .append("permissions", Arrays.asList(1, 2, 3, 4, 5))
+                            .append("nodeMetaData", "")
+            );
+        }
+        mongoDbModule = new MongoDbModule(uri, DB_NAME);
+    }
+
+    @Benchmark
+    public UserModel getUserModelByEmail() {
+        return mongoDbModule.getUserModelByEmail("default@test.com");
+    }
+
+    @Benchmark
+    public UserModel getUserAuthModelByEmail() {
+        return mongoDbModule.getUserAuthModelByEmail("default@test.com");
+    }
+
+    @TearDown
+    public void tearDown() {
+        mongoDbModule.close();
+        server.shutdown();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+public class SecurityModuleBenchmark {
+
+    private final SecurityModule securityModule = new SecurityModule();
+    private Config config;
+    private Date expirationDate;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        config = new Config();
+        expirationDate = new Date(System.currentTimeMillis() + 3600000L);
+        token = securityModule.getJWSToken(config, "test@test.com", expirationDate);
+    }
+
+    @Benchmark
+    public String getJWSToken() {
+        return securityModule.getJWSToken(config, "test@test.com", expirationDate);
+    }
+
+    @Benchmark
+    public String getJWSEmailClaim_cached() {
+        return securityModule.getJWSEmailClaim(config, token);
+    }
+
+    @Benchmark
+    public String getJWSEmailClaim_uncached() {
+        securityModule.clearVerifiedTokens();
+        return securityModule.getJWSEmailClaim(config, token);
+    }
+
+    @Benchmark
+    public byte[] hexToBytes() {
+        return SecurityModule.hexToBytes("c1a6d28b8e2f2df1b0c73cc7f0fe7dfeb079eeb67e6781c83ae540e1cb357237");
+    }
+}
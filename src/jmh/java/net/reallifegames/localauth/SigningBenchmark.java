@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import net.reallifegames.localauth.models.UserModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+public class SigningBenchmark {
+
+    @Param ({"HS256", "ES256", "ES384", "ES512"})
+    public String algorithm;
+
+    private final SecurityModule securityModule = new SecurityModule();
+    private final UserModel userModel = new UserModel("test@test.com", "", true, false, Arrays.asList(1, 5));
+    private Config config;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        final SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.forName(algorithm);
+        final SecretKey secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        final KeyPair keyPair = signatureAlgorithm.isHmac() ? null : Keys.keyPairFor(signatureAlgorithm);
+        config = new Config() {
+            @Override
+            public SecretKey getSecretKey() {
+                return secretKey;
+            }
+
+            @Override
+            public KeyPair getSigningKeyPair() {
+                return keyPair;
+            }
+
+            @Override
+            public long getAccessTokenExpireTime() {
+                return 3600000L;
+            }
+        };
+        token = securityModule.getAccessToken(config, userModel);
+    }
+
+    @Benchmark
+    public String sign() {
+        return securityModule.getAccessToken(config, userModel);
+    }
+
+    @Benchmark
+    public SecurityModule.VerifiedToken verify() {
+        securityModule.clearVerifiedTokens();
+        return securityModule.verifyJWSToken(config, token);
+    }
+}
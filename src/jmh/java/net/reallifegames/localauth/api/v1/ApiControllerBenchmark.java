@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v1;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.models.UserModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the buffered {@link ApiController#jsonContextResponse(Object, Context)} against the streaming
+ * {@link ApiController#jsonStreamResponse(Object, Context, boolean)}. Run with the gc profiler to compare bytes
+ * allocated per response.
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+public class ApiControllerBenchmark {
+
+    @Param ({"1", "100", "1000"})
+    public int userCount;
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private List<UserModel> users;
+    private Context context;
+
+    @Setup
+    public void setUp() {
+        users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            users.add(new UserModel("user" + i + "@test.com", "", true, false, Arrays.asList(1, 2, 3)));
+        }
+        final HttpServletRequest req = stub(HttpServletRequest.class, null);
+        final HttpServletResponse res = stub(HttpServletResponse.class, outputStream);
+        context = new Context(req, res, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public void jsonContextResponse() throws IOException {
+        ApiController.jsonContextResponse(users, context);
+        // Javalin copies the buffered result to the servlet stream after the handler returns
+        final InputStream resultStream = context.resultStream();
+        if (resultStream != null) {
+            resultStream.transferTo(outputStream);
+        }
+    }
+
+    @Benchmark
+    public void jsonStreamResponse() throws IOException {
+        ApiController.jsonStreamResponse(users, context, false);
+    }
+
+    /**
+     * Creates a servlet stub which returns default values for everything but the output stream.
+     */
+    @SuppressWarnings ("unchecked")
+    private static <T> T stub(final Class<T> type, final ServletOutputStream outputStream) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args)->{
+            final Class<?> returnType = method.getReturnType();
+            if (returnType == ServletOutputStream.class) {
+                return outputStream;
+            } else if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == int.class) {
+                return 0;
+            } else if (returnType == long.class) {
+                return 0L;
+            }
+            return null;
+        });
+    }
+}
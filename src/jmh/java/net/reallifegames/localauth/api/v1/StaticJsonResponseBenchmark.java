@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v1;
+
+import io.javalin.http.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding the constant api response on every request against writing the {@link StaticJsonResponse}
+ * bytes. Run with the gc profiler, the static responses should allocate close to zero bytes per operation.
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+public class StaticJsonResponseBenchmark {
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private Context context;
+    private Context gzipContext;
+
+    @Setup
+    public void setUp() {
+        final HttpServletResponse res = stub(HttpServletResponse.class, null);
+        context = new Context(stub(HttpServletRequest.class, null), res, Collections.emptyMap());
+        gzipContext = new Context(stub(HttpServletRequest.class, "gzip, deflate"), res, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public void encodedPerRequest() throws IOException {
+        ApiController.jsonContextResponse(ApiController.apiResponse, context);
+        // Javalin copies the buffered result to the servlet stream after the handler returns
+        final InputStream resultStream = context.resultStream();
+        if (resultStream != null) {
+            resultStream.transferTo(outputStream);
+        }
+    }
+
+    @Benchmark
+    public void staticResponse() throws IOException {
+        ApiController.getApiInformation(context);
+    }
+
+    @Benchmark
+    public void staticGzipResponse() throws IOException {
+        ApiController.getApiInformation(gzipContext);
+    }
+
+    /**
+     * Creates a servlet stub which returns default values for everything but the output stream and request headers.
+     */
+    @SuppressWarnings ("unchecked")
+    private <T> T stub(final Class<T> type, final String acceptEncoding) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args)->{
+            final Class<?> returnType = method.getReturnType();
+            if (returnType == ServletOutputStream.class) {
+                return outputStream;
+            } else if (method.getName().equals("getHeader") && "Accept-Encoding".equals(args[0])) {
+                return acceptEncoding;
+            } else if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == int.class) {
+                return 0;
+            } else if (returnType == long.class) {
+                return 0L;
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size lock free Bloom filter of strings. Answers if a string might have been added, with no false negatives.
+ */
+public final class BloomFilter {
+
+    /**
+     * The filter bits.
+     */
+    private final AtomicLongArray words;
+
+    /**
+     * The number of filter bits.
+     */
+    private final long bitCount;
+
+    /**
+     * The number of bits set per string.
+     */
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions  the number of strings the filter is sized for.
+     * @param falsePositiveChance the chance of a false positive once the expected strings are added.
+     */
+    public BloomFilter(final long expectedInsertions, final double falsePositiveChance) {
+        final long insertions = Math.max(expectedInsertions, 1);
+        final long bits = (long) Math.ceil(-insertions * Math.log(falsePositiveChance) / (Math.log(2) * Math.log(2)));
+        final int wordCount = (int) Math.min(Math.max((bits + 63) / 64, 1), Integer.MAX_VALUE / 64);
+        words = new AtomicLongArray(wordCount);
+        bitCount = wordCount * 64L;
+        hashCount = (int) Math.max(1, Math.round((double) bitCount / insertions * Math.log(2)));
+    }
+
+    /**
+     * @param value the string to add.
+     */
+    public void put(@Nonnull final String value) {
+        final long hash = hash(value);
+        final long step = mix(hash ^ 0x632BE59BD9B4E019L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, update)->current | update);
+            }
+        }
+    }
+
+    /**
+     * @param value the string to look for.
+     * @return false if the string was never added, true if it might have been.
+     */
+    public boolean mightContain(@Nonnull final String value) {
+        final long hash = hash(value);
+        final long step = mix(hash ^ 0x632BE59BD9B4E019L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param value the string to hash.
+     * @return a well mixed 64 bit hash of the string.
+     */
+    private static long hash(@Nonnull final String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * @param value the value to mix.
+     * @return the value with its bits spread, from SplitMix64.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the application collections for changes made by other replicas and evicts the matching local cache
+ * entries.
+ *
+ * @author Tyler Bucher
+ */
+public class ChangeStreamWatcher implements Runnable {
+
+    /**
+     * The static logger for the application.
+     */
+    public static final Logger LOGGER = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+
+    /**
+     * The time in milliseconds to wait before reopening a failed change stream.
+     */
+    private static final long RETRY_DELAY = 5000L;
+
+    /**
+     * The collections which are watched for changes.
+     */
+    private static final String[] WATCHED_COLLECTIONS = new String[]{"users", "invites", "nodes"};
+
+    /**
+     * The module which owns the caches to evict.
+     */
+    private final MongoDbModule dbModule;
+
+    /**
+     * The thread the change stream is read on.
+     */
+    private final Thread thread;
+
+    /**
+     * The resume token of the last change that was processed.
+     */
+    private volatile BsonDocument resumeToken;
+
+    /**
+     * States if the watcher should keep running.
+     */
+    private volatile boolean running;
+
+    /**
+     * @param dbModule the module which owns the caches to evict.
+     */
+    public ChangeStreamWatcher(@Nonnull final MongoDbModule dbModule) {
+        this.dbModule = dbModule;
+        this.thread = new Thread(this, "change-stream-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching for changes.
+     */
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops watching for changes.
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            boolean opened = false;
+            try (final MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = openCursor()) {
+                opened = true;
+                dbModule.setVersionsTracked(true);
+                while (running) {
+                    final ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        handleChange(change);
+                    }
+                    final BsonDocument cursorResumeToken = cursor.getResumeToken();
+                    if (cursorResumeToken != null) {
+                        resumeToken = cursorResumeToken;
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Anything escaping here would end the thread and leave the caches trusted but never evicted
+                dbModule.setVersionsTracked(false);
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("Change stream closed, reopening", e);
+                if (!opened || !(e instanceof MongoException)) {
+                    // The stream could not be resumed, or the failed change can not be replayed safely, so changes
+                    // may have been missed
+                    resumeToken = null;
+                    dbModule.clearCaches();
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a change stream cursor which resumes after the last processed change if there is one.
+     */
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> openCursor() {
+        final ChangeStreamIterable<Document> changeStream = dbModule.getDatabase()
+                .watch(Collections.singletonList(Aggregates.match(Filters.in("ns.coll", Arrays.asList(WATCHED_COLLECTIONS)))))
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        final BsonDocument token = resumeToken;
+        return token == null ? changeStream.cursor() : changeStream.resumeAfter(token).cursor();
+    }
+
+    /**
+     * Evicts the cache entries affected by a change.
+     *
+     * @param change the change stream event to process.
+     */
+    void handleChange(@Nonnull final ChangeStreamDocument<Document> change) {
+        final MongoNamespace namespace = change.getNamespace();
+        final String id = getDocumentId(change.getDocumentKey());
+        if (namespace == null || id == null) {
+            // Drops, renames and invalidations do not name a single document
+            dbModule.clearCaches();
+        } else {
+            dbModule.onDocumentChanged(namespace.getCollectionName(), id);
+        }
+        if (change.getResumeToken() != null) {
+            resumeToken = change.getResumeToken();
+        }
+    }
+
+    /**
+     * @param documentKey the document key of a change.
+     * @return the string id of the changed document or null if there is none.
+     */
+    @Nullable
+    private static String getDocumentId(@Nullable final BsonDocument documentKey) {
+        if (documentKey == null) {
+            return null;
+        }
+        final BsonValue id = documentKey.get("_id");
+        return id != null && id.isString() ? id.asString().getValue() : null;
+    }
+
+    /**
+     * @return the resume token of the last change that was processed.
+     */
+    @Nullable
+    public BsonDocument getResumeToken() {
+        return resumeToken;
+    }
+}
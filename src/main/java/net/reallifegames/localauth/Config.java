@@ -27,6 +27,12 @@ import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 
 import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
 import java.util.Map;
 
 /**
@@ -44,6 +50,61 @@ public class Config {
      */
     public static final int ACCOUNT_CREATION_INVITE = 1;
 
+    /**
+     * Mongo store type.
+     */
+    public static final int STORE_MONGO = 0;
+
+    /**
+     * Jdbc store type.
+     */
+    public static final int STORE_JDBC = 1;
+
+    /**
+     * In memory store type.
+     */
+    public static final int STORE_MEMORY = 2;
+
+    /**
+     * Which persistence backend the application uses.
+     */
+    private final int STORE_TYPE;
+
+    /**
+     * The jdbc url used by the jdbc store.
+     */
+    private final String JDBC_URL;
+
+    /**
+     * The maximum number of pooled jdbc connections.
+     */
+    private final int JDBC_POOL_SIZE;
+
+    /**
+     * The directory the in memory store keeps its snapshot and journal in.
+     */
+    private final String MEMORY_STORE_PATH;
+
+    /**
+     * The size of the in memory store journal in bytes.
+     */
+    private final int MEMORY_JOURNAL_SIZE;
+
+    /**
+     * Seconds between in memory store snapshots.
+     */
+    private final int MEMORY_SNAPSHOT_INTERVAL;
+
+    /**
+     * Should every in memory store journal write be forced to disk.
+     */
+    private final boolean MEMORY_JOURNAL_SYNC;
+
+    /**
+     * Should metrics be recorded and served at the unauthenticated metrics endpoint, off by default.
+     */
+    private final boolean METRICS;
+
     /**
      * The database url connection string.
      */
@@ -54,6 +115,11 @@ public class Config {
      */
     private final String MONGO_DATABASE_NAME;
 
+    /**
+     * Should changes from other replicas be watched to keep local caches fresh.
+     */
+    private final boolean MONGO_CHANGE_STREAMS;
+
     /**
      * The JWT secretKey auto initialize.
      */
@@ -65,10 +131,20 @@ public class Config {
     private final SecretKey SECRET_KEY;
 
     /**
-     * The amount of time in the future the token will expire.
+     * The JWT signing key pair, null when tokens are signed with {@link #SECRET_KEY}.
+     */
+    private final KeyPair SIGNING_KEY_PAIR;
+
+    /**
+     * The amount of time in milliseconds a login lasts, which is how long refresh tokens are valid for.
      */
     private final long JWT_EXPIRE_TIME;
 
+    /**
+     * The amount of time in milliseconds an access token is valid for before it has to be refreshed.
+     */
+    private final long ACCESS_TOKEN_EXPIRE_TIME;
+
     /**
      * The bare domain for this application.
      */
@@ -79,14 +155,79 @@ public class Config {
      */
     private final int ACCOUNT_CREATION;
 
+    /**
+     * The number of threads used for password hashing.
+     */
+    private final int PASSWORD_THREADS;
+
+    /**
+     * The number of password tasks which may wait for a thread before requests are turned away.
+     */
+    private final int PASSWORD_QUEUE_SIZE;
+
+    /**
+     * Sustained login attempts per minute from one client address, 0 for no limit.
+     */
+    private final int LOGIN_ADDRESS_LIMIT;
+
+    /**
+     * Login attempts one client address may make at once.
+     */
+    private final int LOGIN_ADDRESS_BURST;
+
+    /**
+     * Sustained login attempts per minute for one email, 0 for no limit.
+     */
+    private final int LOGIN_EMAIL_LIMIT;
+
+    /**
+     * Login attempts for one email which may be made at once.
+     */
+    private final int LOGIN_EMAIL_BURST;
+
+    /**
+     * The most client addresses or emails the login throttle tracks.
+     */
+    private final int LOGIN_THROTTLE_KEYS;
+
+    /**
+     * Header the reverse proxy puts the client address in, null to use the connection address.
+     */
+    private final String CLIENT_ADDRESS_HEADER;
+
+    /**
+     * Time in seconds between reloads of the revocations made by other replicas.
+     */
+    private final int REVOCATION_REFRESH_INTERVAL;
+
     public Config() {
+        STORE_TYPE = getStoreTypeEnv();
+        JDBC_URL = System.getenv("JDBC_URL");
+        JDBC_POOL_SIZE = getIntEnv("JDBC_POOL_SIZE", 10);
+        MEMORY_STORE_PATH = System.getenv("MEMORY_STORE_PATH") != null ? System.getenv("MEMORY_STORE_PATH") : "data";
+        MEMORY_JOURNAL_SIZE = getIntEnv("MEMORY_JOURNAL_SIZE", 64 * 1024 * 1024);
+        MEMORY_SNAPSHOT_INTERVAL = getIntEnv("MEMORY_SNAPSHOT_INTERVAL", 300);
+        MEMORY_JOURNAL_SYNC = getBooleanEnv("MEMORY_JOURNAL_SYNC", false);
+        METRICS = getBooleanEnv("METRICS", false);
         MONGO_CONNECTION_URI = System.getenv("MONGO_CONNECTION_URI");
         MONGO_DATABASE_NAME = System.getenv("MONGO_DATABASE_NAME");
+        MONGO_CHANGE_STREAMS = getBooleanEnv("MONGO_CHANGE_STREAMS", false);
         SECRET_KEY_AUTO = getSecretKeyAutoEnv(true);
         SECRET_KEY = getSecretKeyEnv(SECRET_KEY_AUTO);
+        SIGNING_KEY_PAIR = getSigningKeyPairEnv(SECRET_KEY_AUTO);
         JWT_EXPIRE_TIME = getJwtExpireTimeEnv(604800000L);
+        ACCESS_TOKEN_EXPIRE_TIME = getLongEnv("ACCESS_TOKEN_EXPIRE_TIME", 300000L);
         DOMAIN = System.getenv("DOMAIN");
         ACCOUNT_CREATION = getAccountCreationEnv();
+        PASSWORD_THREADS = getIntEnv("PASSWORD_THREADS", Runtime.getRuntime().availableProcessors());
+        PASSWORD_QUEUE_SIZE = getIntEnv("PASSWORD_QUEUE_SIZE", 64);
+        LOGIN_ADDRESS_LIMIT = getIntEnv("LOGIN_ADDRESS_LIMIT", 30);
+        LOGIN_ADDRESS_BURST = getIntEnv("LOGIN_ADDRESS_BURST", 10);
+        LOGIN_EMAIL_LIMIT = getIntEnv("LOGIN_EMAIL_LIMIT", 10);
+        LOGIN_EMAIL_BURST = getIntEnv("LOGIN_EMAIL_BURST", 5);
+        LOGIN_THROTTLE_KEYS = getIntEnv("LOGIN_THROTTLE_KEYS", 100000);
+        CLIENT_ADDRESS_HEADER = System.getenv("CLIENT_ADDRESS_HEADER");
+        REVOCATION_REFRESH_INTERVAL = getIntEnv("REVOCATION_REFRESH_INTERVAL", 10);
     }
 
     private boolean getSecretKeyAutoEnv(final boolean defaultValue) {
@@ -94,6 +235,21 @@ public class Config {
         return autoEnvString != null ? Boolean.parseBoolean(autoEnvString) : defaultValue;
     }
 
+    private boolean getBooleanEnv(final String name, final boolean defaultValue) {
+        final String envString = System.getenv(name);
+        return envString != null ? Boolean.parseBoolean(envString) : defaultValue;
+    }
+
+    private int getIntEnv(final String name, final int defaultValue) {
+        final String envString = System.getenv(name);
+        return envString != null ? Integer.parseInt(envString) : defaultValue;
+    }
+
+    private long getLongEnv(final String name, final long defaultValue) {
+        final String envString = System.getenv(name);
+        return envString != null ? Long.parseLong(envString) : defaultValue;
+    }
+
     private SecretKey getSecretKeyEnv(final boolean autoGen) {
         final String secretKeyString = System.getenv("SECRET_KEY");
         return autoGen || secretKeyString == null ?
@@ -101,6 +257,36 @@ public class Config {
                 Keys.hmacShaKeyFor(SecurityModule.hexToBytes(secretKeyString));
     }
 
+    private KeyPair getSigningKeyPairEnv(final boolean autoGen) {
+        final String algorithmString = System.getenv("SIGNING_ALGORITHM");
+        final SignatureAlgorithm algorithm = SignatureAlgorithm.forName(algorithmString == null ? "HS256" : algorithmString);
+        if (algorithm == SignatureAlgorithm.HS256) {
+            return null;
+        }
+        // The secret key is only ever used for HS256, so the other HMAC algorithms would silently sign with it
+        if (!algorithm.isEllipticCurve()) {
+            throw new IllegalArgumentException("SIGNING_ALGORITHM must be HS256, ES256, ES384 or ES512");
+        }
+        final String privateKeyString = System.getenv("SIGNING_PRIVATE_KEY");
+        final String publicKeyString = System.getenv("SIGNING_PUBLIC_KEY");
+        if (autoGen) {
+            return Keys.keyPairFor(algorithm);
+        }
+        // A generated key would differ on every replica so tokens would only verify where they were issued
+        if (privateKeyString == null || publicKeyString == null) {
+            throw new IllegalArgumentException("SIGNING_PRIVATE_KEY and SIGNING_PUBLIC_KEY must be set when SECRET_KEY_AUTO is false");
+        }
+        try {
+            final KeyFactory keyFactory = KeyFactory.getInstance("EC");
+            return new KeyPair(
+                    keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKeyString))),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKeyString)))
+            );
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("SIGNING_PRIVATE_KEY or SIGNING_PUBLIC_KEY is not a valid EC key", e);
+        }
+    }
+
     private long getJwtExpireTimeEnv(final long defaultValue) {
         final String jwtEnvString = System.getenv("JWT_EXPIRE_TIME");
         return jwtEnvString != null ? Long.parseLong(jwtEnvString) : defaultValue;
@@ -112,6 +298,44 @@ public class Config {
         return OPTIONS.getOrDefault(env == null ? "invite" : env, ACCOUNT_CREATION_INVITE);
     }
 
+    private int getStoreTypeEnv() {
+        final Map<String, Integer> OPTIONS = Map.of("mongo", STORE_MONGO, "jdbc", STORE_JDBC, "memory", STORE_MEMORY);
+        final String env = System.getenv("STORE_TYPE");
+        return OPTIONS.getOrDefault(env == null ? "mongo" : env, STORE_MONGO);
+    }
+
+    public int getStoreType() {
+        return STORE_TYPE;
+    }
+
+    public String getJdbcUrl() {
+        return JDBC_URL;
+    }
+
+    public int getJdbcPoolSize() {
+        return JDBC_POOL_SIZE;
+    }
+
+    public String getMemoryStorePath() {
+        return MEMORY_STORE_PATH;
+    }
+
+    public int getMemoryJournalSize() {
+        return MEMORY_JOURNAL_SIZE;
+    }
+
+    public int getMemorySnapshotInterval() {
+        return MEMORY_SNAPSHOT_INTERVAL;
+    }
+
+    public boolean isMemoryJournalSync() {
+        return MEMORY_JOURNAL_SYNC;
+    }
+
+    public boolean isMetricsEnabled() {
+        return METRICS;
+    }
+
     public String getMongoConnectionUri() {
         return MONGO_CONNECTION_URI;
     }
@@ -124,14 +348,26 @@ public class Config {
         return SECRET_KEY;
     }
 
+    public KeyPair getSigningKeyPair() {
+        return SIGNING_KEY_PAIR;
+    }
+
     public long getJwtExpireTime() {
         return JWT_EXPIRE_TIME;
     }
 
+    public long getAccessTokenExpireTime() {
+        return ACCESS_TOKEN_EXPIRE_TIME;
+    }
+
     public String getMongoDatabaseName() {
         return MONGO_DATABASE_NAME;
     }
 
+    public boolean isMongoChangeStreamsEnabled() {
+        return MONGO_CHANGE_STREAMS;
+    }
+
     public String getDomain() {
         return DOMAIN;
     }
@@ -139,4 +375,40 @@ public class Config {
     public int getAccountCreationType() {
         return ACCOUNT_CREATION;
     }
+
+    public int getPasswordThreads() {
+        return PASSWORD_THREADS;
+    }
+
+    public int getPasswordQueueSize() {
+        return PASSWORD_QUEUE_SIZE;
+    }
+
+    public int getLoginAddressLimit() {
+        return LOGIN_ADDRESS_LIMIT;
+    }
+
+    public int getLoginAddressBurst() {
+        return LOGIN_ADDRESS_BURST;
+    }
+
+    public int getLoginEmailLimit() {
+        return LOGIN_EMAIL_LIMIT;
+    }
+
+    public int getLoginEmailBurst() {
+        return LOGIN_EMAIL_BURST;
+    }
+
+    public int getLoginThrottleKeys() {
+        return LOGIN_THROTTLE_KEYS;
+    }
+
+    public String getClientAddressHeader() {
+        return CLIENT_ADDRESS_HEADER;
+    }
+
+    public int getRevocationRefreshInterval() {
+        return REVOCATION_REFRESH_INTERVAL;
+    }
 }
@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small size bounded cache where every entry carries its own expire time. Invalidating a key bumps its generation,
+ * so a value read before the invalidation can not be put back afterwards.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ * @author Tyler Bucher
+ */
+public final class ExpiringCache<K, V> {
+
+    /**
+     * A cached value and the epoch millisecond it stops being valid at.
+     *
+     * @param <V> the value type.
+     */
+    private static final class Entry<V> {
+
+        /**
+         * The cached value.
+         */
+        private final V value;
+
+        /**
+         * The time in epoch milliseconds this entry expires at.
+         */
+        private final long expiresAt;
+
+        private Entry(@Nonnull final V value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * The number of generation stripes, a power of two.
+     */
+    private static final int GENERATION_STRIPES = 64;
+
+    /**
+     * The backing map for this cache.
+     */
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum amount of entries this cache will hold.
+     */
+    private final int maximumSize;
+
+    /**
+     * Number of lookups which returned a value.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of lookups which did not return a value.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Invalidation counts of the keys, split by key hash.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * @param maximumSize the maximum amount of entries this cache will hold.
+     */
+    public ExpiringCache(final int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @param key the key to search by.
+     * @return the cached value or null if it is missing or expired.
+     */
+    @Nullable
+    public V get(@Nonnull final K key) {
+        return get(key, System.currentTimeMillis());
+    }
+
+    /**
+     * @param key the key to search by.
+     * @param now the current time in epoch milliseconds.
+     * @return the cached value or null if it is missing or expired.
+     */
+    @Nullable
+    public V get(@Nonnull final K key, final long now) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= now) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Adds a value to the cache. If the cache is full expired entries are swept first, and if that does not free
+     * any space the cache is cleared.
+     *
+     * @param key       the key to store the value under.
+     * @param value     the value to store.
+     * @param expiresAt the time in epoch milliseconds the value expires at.
+     */
+    public void put(@Nonnull final K key, @Nonnull final V value, final long expiresAt) {
+        if (maximumSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maximumSize && !entries.containsKey(key)) {
+            sweep(System.currentTimeMillis());
+            if (entries.size() >= maximumSize) {
+                entries.clear();
+            }
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    /**
+     * Adds a value to the cache unless its key was invalidated since the value was read.
+     *
+     * @param key        the key to store the value under.
+     * @param value      the value to store.
+     * @param expiresAt  the time in epoch milliseconds the value expires at.
+     * @param generation the {@link #generation(Object)} of the key from before the value was read.
+     */
+    public void put(@Nonnull final K key, @Nonnull final V value, final long expiresAt, final long generation) {
+        if (generation(key) != generation) {
+            return;
+        }
+        put(key, value, expiresAt);
+        // An invalidation between the check and the put would otherwise be undone
+        if (generation(key) != generation) {
+            final Entry<V> entry = entries.get(key);
+            if (entry != null && entry.value == value) {
+                entries.remove(key, entry);
+            }
+        }
+    }
+
+    /**
+     * @param key the key to get the generation of.
+     * @return a number which changes whenever the key is invalidated.
+     */
+    public long generation(@Nonnull final K key) {
+        return generations.get(generationStripe(key));
+    }
+
+    /**
+     * Removes all entries which have expired.
+     *
+     * @param now the current time in epoch milliseconds.
+     */
+    public void sweep(final long now) {
+        entries.values().removeIf(entry->entry.expiresAt <= now);
+    }
+
+    /**
+     * @param key the key to remove from the cache.
+     */
+    public void invalidate(@Nonnull final K key) {
+        generations.incrementAndGet(generationStripe(key));
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        entries.clear();
+    }
+
+    /**
+     * @return the current amount of entries in the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups which returned a value.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups which did not return a value.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @param key the key to find the generation stripe of.
+     * @return the index of the stripe which counts the invalidations of the key.
+     */
+    private static int generationStripe(@Nonnull final Object key) {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
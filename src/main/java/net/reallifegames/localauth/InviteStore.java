@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.UserInviteModel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Persistence for user invites.
+ */
+public interface InviteStore {
+
+    /**
+     * @param email id to search by.
+     * @return the user invite if found null otherwise.
+     */
+    @Nullable
+    UserInviteModel getUserInviteModelByEmail(@Nonnull final String email);
+
+    /**
+     * @param email       email to invite to use this application.
+     * @param permissions permissions this user should be given when joining.
+     * @return true if invites was created false otherwise.
+     */
+    boolean createNewInvite(@Nonnull final String email, @Nonnull final List<Integer> permissions);
+
+    /**
+     * @return all user invites in the system.
+     */
+    List<UserInviteModel> getAllUserInviteModels();
+
+    /**
+     * @param email       id of the invite to update.
+     * @param permissions new permissions to give the invite.
+     * @return true if the invite was updated false otherwise.
+     */
+    boolean updateInvite(@Nonnull final String email, @Nullable final List<Integer> permissions);
+
+    /**
+     * @param email id to delete.
+     * @return true if one user invite was deleted false otherwise.
+     */
+    boolean deleteInvite(@Nonnull final String email);
+}
@@ -0,0 +1,766 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import net.reallifegames.localauth.models.NodeModel;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.RevocationModel;
+import net.reallifegames.localauth.models.UserInviteModel;
+import net.reallifegames.localauth.models.UserModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store backed by a jdbc database through a Hikari connection pool. Works with SQLite and MySQL.
+ */
+public class JdbcDbModule implements DbModule {
+
+    /**
+     * The static logger for this module.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcDbModule.class);
+
+    /**
+     * Tables, lookups by id or email go through a primary key.
+     */
+    private static final String[] SCHEMA = new String[]{
+            "CREATE TABLE IF NOT EXISTS users (" +
+                    "email VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "password_hash VARCHAR(255) NOT NULL, " +
+                    "active BOOLEAN NOT NULL, " +
+                    "pending BOOLEAN NOT NULL, " +
+                    "permissions BIGINT NOT NULL, " +
+                    "node_meta_data TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS invites (" +
+                    "email VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "permissions BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS nodes (" +
+                    "id VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "default_text TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS revocations (" +
+                    "id VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "revoked_before BIGINT NOT NULL, " +
+                    "expires_at BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS refresh_tokens (" +
+                    "id VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "email VARCHAR(255) NOT NULL, " +
+                    "family VARCHAR(255) NOT NULL, " +
+                    "used_at BIGINT NOT NULL, " +
+                    "persistent BOOLEAN NOT NULL, " +
+                    "expires_at BIGINT NOT NULL)"
+    };
+
+    /**
+     * Secondary indexes for family and user deletes and the expired row cleanup. MySQL has no IF NOT EXISTS for indexes so
+     * there the clause is dropped and a duplicate name is ignored.
+     */
+    private static final String[] INDEXES = new String[]{
+            "CREATE INDEX IF NOT EXISTS refresh_tokens_family ON refresh_tokens (family)",
+            "CREATE INDEX IF NOT EXISTS refresh_tokens_email ON refresh_tokens (email)",
+            "CREATE INDEX IF NOT EXISTS refresh_tokens_expires_at ON refresh_tokens (expires_at)",
+            "CREATE INDEX IF NOT EXISTS revocations_expires_at ON revocations (expires_at)"
+    };
+
+    /**
+     * The MySQL error code for an index name which is already taken.
+     */
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    /**
+     * Time in seconds between removals of expired revocations and refresh tokens.
+     */
+    private static final long CLEANUP_INTERVAL = 600L;
+
+    private static final String SELECT_USER =
+            "SELECT password_hash, active, pending, permissions, node_meta_data FROM users WHERE email = ?";
+
+    private static final String SELECT_USER_AUTH = "SELECT active, permissions FROM users WHERE email = ?";
+
+    private static final String SELECT_USER_CREDENTIALS =
+            "SELECT password_hash, active, permissions FROM users WHERE email = ?";
+
+    /**
+     * Looks up everything account creation needs in one round trip: whether any user exists, the invite and whether
+     * the email is taken.
+     */
+    private static final String SELECT_SIGNUP_STATE = "SELECT " +
+            "(SELECT 1 FROM users LIMIT 1), " +
+            "(SELECT permissions FROM invites WHERE email = ?), " +
+            "(SELECT 1 FROM users WHERE email = ?)";
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (email, password_hash, active, pending, permissions, node_meta_data) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_USERS =
+            "SELECT email, active, pending, permissions, node_meta_data FROM users WHERE email <> '' ORDER BY email";
+
+    private static final String SELECT_USERS_AFTER =
+            "SELECT email, active, pending, permissions, node_meta_data FROM users WHERE email > ? ORDER BY email";
+
+    /**
+     * Updates active and permissions unless the user is the super admin.
+     */
+    private static final String UPDATE_USER =
+            "UPDATE users SET active = ?, permissions = COALESCE(?, permissions) WHERE email = ? AND (permissions & 1) = 0";
+
+    /**
+     * Updates the password and, unless the user is the super admin, active and permissions.
+     */
+    private static final String UPDATE_USER_WITH_PASSWORD = "UPDATE users SET " +
+            "active = CASE WHEN (permissions & 1) = 0 THEN ? ELSE active END, " +
+            "permissions = CASE WHEN (permissions & 1) = 0 THEN COALESCE(?, permissions) ELSE permissions END, " +
+            "password_hash = ? WHERE email = ?";
+
+    private static final String DELETE_USER = "DELETE FROM users WHERE email = ?";
+
+    private static final String UPDATE_USER_NODE_METADATA = "UPDATE users SET node_meta_data = ? WHERE email = ?";
+
+    private static final String SELECT_INVITE = "SELECT permissions FROM invites WHERE email = ?";
+
+    private static final String REPLACE_INVITE = "REPLACE INTO invites (email, permissions) VALUES (?, ?)";
+
+    private static final String SELECT_INVITES = "SELECT email, permissions FROM invites WHERE email <> ''";
+
+    private static final String UPDATE_INVITE = "UPDATE invites SET permissions = ? WHERE email = ?";
+
+    private static final String DELETE_INVITE = "DELETE FROM invites WHERE email = ?";
+
+    private static final String REPLACE_NODE = "REPLACE INTO nodes (id, default_text) VALUES (?, ?)";
+
+    private static final String UPDATE_NODE = "UPDATE nodes SET default_text = ? WHERE id = ?";
+
+    private static final String DELETE_NODE = "DELETE FROM nodes WHERE id = ?";
+
+    private static final String SELECT_NODES = "SELECT id, default_text FROM nodes WHERE id <> ''";
+
+    private static final String REPLACE_REVOCATION =
+            "REPLACE INTO revocations (id, revoked_before, expires_at) VALUES (?, ?, ?)";
+
+    private static final String DELETE_EXPIRED_REVOCATIONS = "DELETE FROM revocations WHERE expires_at <= ?";
+
+    private static final String SELECT_REVOCATIONS =
+            "SELECT id, revoked_before, expires_at FROM revocations WHERE expires_at > ?";
+
+    private static final String INSERT_REFRESH_TOKEN =
+            "INSERT INTO refresh_tokens (id, email, family, used_at, persistent, expires_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_EXPIRED_REFRESH_TOKENS = "DELETE FROM refresh_tokens WHERE expires_at <= ?";
+
+    /**
+     * Marks a refresh token used, only one caller can change the row.
+     */
+    private static final String USE_REFRESH_TOKEN =
+            "UPDATE refresh_tokens SET used_at = ? WHERE id = ? AND used_at = 0 AND expires_at > ?";
+
+    private static final String SELECT_REFRESH_TOKEN =
+            "SELECT email, family, used_at, persistent, expires_at FROM refresh_tokens WHERE id = ? AND expires_at > ?";
+
+    private static final String DELETE_REFRESH_TOKEN_FAMILY = "DELETE FROM refresh_tokens WHERE family = ?";
+
+    private static final String DELETE_REFRESH_TOKENS_BY_EMAIL = "DELETE FROM refresh_tokens WHERE email = ?";
+
+    /**
+     * Pooled connections to the database.
+     */
+    private final HikariDataSource dataSource;
+
+    /**
+     * The time each user last changed through this module.
+     */
+    private final UserVersions userVersions = new UserVersions(false);
+
+    /**
+     * Removes expired revocations and refresh tokens in the background.
+     */
+    private final ScheduledExecutorService cleanupExecutor;
+
+    public JdbcDbModule() {
+        this(LocalAuth.getConfig().getJdbcUrl(), LocalAuth.getConfig().getJdbcPoolSize());
+    }
+
+    public JdbcDbModule(@Nonnull final String jdbcUrl, final int poolSize) {
+        final HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(jdbcUrl);
+        hikariConfig.setMaximumPoolSize(poolSize);
+        hikariConfig.setPoolName("local-auth-jdbc");
+        if (jdbcUrl.startsWith("jdbc:mysql:")) {
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+        } else if (jdbcUrl.startsWith("jdbc:sqlite:")) {
+            hikariConfig.addDataSourceProperty("journal_mode", "WAL");
+            hikariConfig.addDataSourceProperty("busy_timeout", "5000");
+        }
+        dataSource = new HikariDataSource(hikariConfig);
+        createSchema(jdbcUrl.startsWith("jdbc:mysql:"));
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable->{
+            final Thread thread = new Thread(runnable, "jdbc-expired-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupExecutor.scheduleWithFixedDelay(this::deleteExpiredQuietly, CLEANUP_INTERVAL, CLEANUP_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates any missing tables and indexes.
+     *
+     * @param mysql true if the database is MySQL.
+     */
+    private void createSchema(final boolean mysql) {
+        try (final Connection connection = dataSource.getConnection();
+             final Statement statement = connection.createStatement()) {
+            for (final String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+            for (final String sql : INDEXES) {
+                try {
+                    statement.execute(mysql ? sql.replace(" IF NOT EXISTS", "") : sql);
+                } catch (SQLException e) {
+                    if (!mysql || e.getErrorCode() != ER_DUP_KEYNAME) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new StoreException("Could not create the schema", e);
+        }
+    }
+
+    /**
+     * Removes revocations and refresh tokens which have expired. Lookups already skip expired rows so this only
+     * keeps the tables small.
+     *
+     * @param now the current time in milliseconds.
+     */
+    void deleteExpired(final long now) {
+        executeUpdate(DELETE_EXPIRED_REVOCATIONS, now);
+        executeUpdate(DELETE_EXPIRED_REFRESH_TOKENS, now);
+    }
+
+    /**
+     * Runs {@link #deleteExpired(long)} from the cleanup thread, a failure is retried on the next run.
+     */
+    private void deleteExpiredQuietly() {
+        try {
+            deleteExpired(System.currentTimeMillis());
+        } catch (StoreException e) {
+            LOGGER.warn("Expired row cleanup failed", e);
+        }
+    }
+
+    @Override
+    @Nullable
+    public UserModel getUserModelByEmail(@Nonnull final String email) {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_USER)) {
+            statement.setString(1, email);
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new UserModel(
+                        email,
+                        resultSet.getString(1),
+                        resultSet.getBoolean(2),
+                        resultSet.getBoolean(3),
+                        Permissions.values(resultSet.getLong(4)),
+                        resultSet.getString(5)
+                );
+            }
+        } catch (SQLException e) {
+            throw new StoreException("getUserModelByEmail", e);
+        }
+    }
+
+    @Override
+    @Nullable
+    public UserModel getUserAuthModelByEmail(@Nonnull final String email) {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_USER_AUTH)) {
+            statement.setString(1, email);
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new UserModel(email, "", resultSet.getBoolean(1), false, Permissions.values(resultSet.getLong(2)));
+            }
+        } catch (SQLException e) {
+            throw new StoreException("getUserAuthModelByEmail", e);
+        }
+    }
+
+    @Override
+    @Nullable
+    public UserModel getUserCredentialsByEmail(@Nonnull final String email) {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_USER_CREDENTIALS)) {
+            statement.setString(1, email);
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new UserModel(email, resultSet.getString(1), resultSet.getBoolean(2), false,
+                        Permissions.values(resultSet.getLong(3)));
+            }
+        } catch (SQLException e) {
+            throw new StoreException("getUserCredentialsByEmail", e);
+        }
+    }
+
+    @Override
+    public boolean createNewUserWithHash(@Nonnull final Config config,
+                                         @Nonnull final String email,
+                                         @Nonnull final String passwordHash) {
+        final boolean isFirstUser;
+        final Long invitePermissions;
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_SIGNUP_STATE)) {
+            statement.setString(1, email);
+            statement.setString(2, email);
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                isFirstUser = resultSet.getObject(1) == null;
+                final long permissions = resultSet.getLong(2);
+                invitePermissions = resultSet.wasNull() ? null : permissions;
+                if (resultSet.getObject(3) != null) {
+                    return false;
+                }
+            }
+        } catch (SQLException e) {
+            throw new StoreException("createNewUser", e);
+        }
+        if (config.getAccountCreationType() == Config.ACCOUNT_CREATION_INVITE && !isFirstUser && invitePermissions == null) {
+            return false;
+        }
+        final long permissions = isFirstUser ? Permissions.IS_USER_SUPER_ADMIN.mask :
+                invitePermissions == null ? Permissions.NO_PERMISSIONS : invitePermissions;
+        try (final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (final PreparedStatement insert = connection.prepareStatement(INSERT_USER);
+                 final PreparedStatement delete = connection.prepareStatement(DELETE_INVITE)) {
+                insert.setString(1, email);
+                insert.setString(2, passwordHash);
+                insert.setBoolean(3, isFirstUser || invitePermissions != null);
+                insert.setBoolean(4, true);
+                insert.setLong(5, permissions);
+                insert.setString(6, "");
+                insert.executeUpdate();
+                if (invitePermissions != null) {
+                    delete.setString(1, email);
+                    delete.executeUpdate();
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                if (isConstraintViolation(e)) {
+                    // Another request created the same user first
+                    return false;
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new StoreException("createNewUser", e);
+        }
+    }
+
+    @Override
+    @Nonnull
+    public List<UserModel> getAllUserModels() {
+        return getUserModelCursor(null, 0).toList();
+    }
+
+    @Override
+    @Nonnull
+    public StoreCursor<UserModel> getUserModelCursor(@Nullable final String after, final int limit) {
+        final String sql = (after == null ? SELECT_USERS : SELECT_USERS_AFTER) + (limit > 0 ? " LIMIT " + limit : "");
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            final PreparedStatement statement = connection.prepareStatement(sql);
+            if (after != null) {
+                statement.setString(1, after);
+            }
+            return new UserCursor(connection, statement, statement.executeQuery());
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new StoreException("getUserModelCursor", e);
+        }
+    }
+
+    @Override
+    public boolean updateUserModelWithHash(@Nonnull final String email,
+                                           @Nullable final String passwordHash,
+                                           final boolean active,
+                                           @Nullable final List<Integer> permissions) {
+        final Long permissionMask = permissions == null ? null : Permissions.mask(permissions);
+        try {
+            if (passwordHash == null) {
+                return executeUpdate(UPDATE_USER, active, permissionMask, email) == 1;
+            }
+            return executeUpdate(UPDATE_USER_WITH_PASSWORD, active, permissionMask, passwordHash, email) == 1;
+        } finally {
+            userVersions.changed(email);
+        }
+    }
+
+    @Override
+    public boolean deleteUser(@Nonnull final String email) {
+        try {
+            deleteRefreshTokensByEmail(email);
+            return executeUpdate(DELETE_USER, email) == 1;
+        } finally {
+            userVersions.changed(email);
+        }
+    }
+
+    @Override
+    public boolean updateUserNodeMetadata(@Nonnull final String email, @Nonnull final String nodeMetaData) {
+        return executeUpdate(UPDATE_USER_NODE_METADATA, nodeMetaData, email) == 1;
+    }
+
+    @Override
+    @Nullable
+    public UserInviteModel getUserInviteModelByEmail(@Nonnull final String email) {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_INVITE)) {
+            statement.setString(1, email);
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? new UserInviteModel(email, Permissions.values(resultSet.getLong(1))) : null;
+            }
+        } catch (SQLException e) {
+            throw new StoreException("getUserInviteModelByEmail", e);
+        }
+    }
+
+    @Override
+    public boolean createNewInvite(@Nonnull final String email, @Nonnull final List<Integer> permissions) {
+        if (email.isEmpty()) {
+            return false;
+        }
+        executeUpdate(REPLACE_INVITE, email, Permissions.mask(permissions));
+        return true;
+    }
+
+    @Override
+    public List<UserInviteModel> getAllUserInviteModels() {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_INVITES);
+             final ResultSet resultSet = statement.executeQuery()) {
+            final List<UserInviteModel> invites = new ArrayList<>();
+            while (resultSet.next()) {
+                invites.add(new UserInviteModel(resultSet.getString(1), Permissions.values(resultSet.getLong(2))));
+            }
+            return invites;
+        } catch (SQLException e) {
+            throw new StoreException("getAllUserInviteModels", e);
+        }
+    }
+
+    @Override
+    public boolean updateInvite(@Nonnull final String email, @Nullable final List<Integer> permissions) {
+        if (permissions == null) {
+            return false;
+        }
+        return executeUpdate(UPDATE_INVITE, Permissions.mask(permissions), email) == 1;
+    }
+
+    @Override
+    public boolean deleteInvite(@Nonnull final String email) {
+        return executeUpdate(DELETE_INVITE, email) == 1;
+    }
+
+    @Override
+    public boolean createNewNode(@Nonnull final String id, @Nonnull final String defaultText) {
+        if (id.isEmpty() || defaultText.isEmpty()) {
+            return false;
+        }
+        executeUpdate(REPLACE_NODE, id, defaultText);
+        return true;
+    }
+
+    @Override
+    public boolean updateNode(@Nonnull final String id, @Nonnull final String defaultText) {
+        return executeUpdate(UPDATE_NODE, defaultText, id) == 1;
+    }
+
+    @Override
+    public boolean deleteNode(@Nonnull final String id) {
+        return executeUpdate(DELETE_NODE, id) == 1;
+    }
+
+    @Override
+    public List<NodeModel> getAllNodeModels() {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_NODES);
+             final ResultSet resultSet = statement.executeQuery()) {
+            final List<NodeModel> nodes = new ArrayList<>();
+            while (resultSet.next()) {
+                nodes.add(new NodeModel(resultSet.getString(1), resultSet.getString(2)));
+            }
+            return nodes;
+        } catch (SQLException e) {
+            throw new StoreException("getAllNodeModels", e);
+        }
+    }
+
+    /**
+     * Expired revocations are removed by the periodic cleanup.
+     *
+     * @param revocation the revocation to add or replace.
+     */
+    @Override
+    public void saveRevocation(@Nonnull final RevocationModel revocation) {
+        executeUpdate(REPLACE_REVOCATION, revocation.id, revocation.revokedBefore, revocation.expiresAt.getTime());
+    }
+
+    @Override
+    public List<RevocationModel> getRevocations(final long now) {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(SELECT_REVOCATIONS)) {
+            statement.setLong(1, now);
+            try (final ResultSet resultSet = statement.executeQuery()) {
+                final List<RevocationModel> revocations = new ArrayList<>();
+                while (resultSet.next()) {
+                    revocations.add(new RevocationModel(resultSet.getString(1), resultSet.getLong(2),
+                            new Date(resultSet.getLong(3))));
+                }
+                return revocations;
+            }
+        } catch (SQLException e) {
+            throw new StoreException("getRevocations", e);
+        }
+    }
+
+    /**
+     * Expired refresh tokens are removed by the periodic cleanup.
+     *
+     * @param refreshToken the refresh token to add.
+     */
+    @Override
+    public void saveRefreshToken(@Nonnull final RefreshTokenModel refreshToken) {
+        executeUpdate(INSERT_REFRESH_TOKEN, refreshToken.id, refreshToken.email, refreshToken.family, refreshToken.usedAt,
+                refreshToken.persistent, refreshToken.expiresAt.getTime());
+    }
+
+    @Override
+    @Nullable
+    public RefreshTokenModel useRefreshToken(@Nonnull final String id, final long now) {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement select = connection.prepareStatement(SELECT_REFRESH_TOKEN);
+             final PreparedStatement update = connection.prepareStatement(USE_REFRESH_TOKEN)) {
+            select.setString(1, id);
+            select.setLong(2, now);
+            final RefreshTokenModel refreshToken;
+            try (final ResultSet resultSet = select.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                refreshToken = new RefreshTokenModel(id, resultSet.getString(1), resultSet.getString(2),
+                        resultSet.getLong(3), resultSet.getBoolean(4), new Date(resultSet.getLong(5)));
+            }
+            if (refreshToken.usedAt != 0) {
+                return refreshToken;
+            }
+            update.setLong(1, now);
+            update.setString(2, id);
+            update.setLong(3, now);
+            if (update.executeUpdate() == 1) {
+                return refreshToken;
+            }
+            // Another caller used it between the two statements
+            return new RefreshTokenModel(id, refreshToken.email, refreshToken.family, now, refreshToken.persistent,
+                    refreshToken.expiresAt);
+        } catch (SQLException e) {
+            throw new StoreException("useRefreshToken", e);
+        }
+    }
+
+    @Override
+    public void deleteRefreshTokenFamily(@Nonnull final String family) {
+        executeUpdate(DELETE_REFRESH_TOKEN_FAMILY, family);
+    }
+
+    @Override
+    public void deleteRefreshTokensByEmail(@Nonnull final String email) {
+        executeUpdate(DELETE_REFRESH_TOKENS_BY_EMAIL, email);
+    }
+
+    /**
+     * This store keeps no local caches.
+     */
+    @Override
+    public void clearCaches() {
+    }
+
+    /**
+     * Only changes made through this module are seen, other processes may write to the same database so no token is
+     * ever current.
+     */
+    @Override
+    public UserVersions getUserVersions() {
+        return userVersions;
+    }
+
+    /**
+     * Stops the cleanup and closes the connection pool.
+     */
+    @Override
+    public void close() {
+        cleanupExecutor.shutdownNow();
+        dataSource.close();
+    }
+
+    /**
+     * @param sql        the statement to run.
+     * @param parameters the statement parameters in order.
+     * @return the number of rows changed.
+     */
+    private int executeUpdate(@Nonnull final String sql, @Nonnull final Object... parameters) {
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new StoreException(sql, e);
+        }
+    }
+
+    /**
+     * @param e the exception to check.
+     * @return true if the exception was caused by a unique or primary key violation.
+     */
+    private static boolean isConstraintViolation(@Nonnull final SQLException e) {
+        final String sqlState = e.getSQLState();
+        final String message = e.getMessage();
+        return e instanceof SQLIntegrityConstraintViolationException ||
+                (sqlState != null && sqlState.startsWith("23")) ||
+                (message != null && message.contains("SQLITE_CONSTRAINT"));
+    }
+
+    /**
+     * @param autoCloseable the resource to close, may be null.
+     */
+    private static void closeQuietly(@Nullable final AutoCloseable autoCloseable) {
+        if (autoCloseable != null) {
+            try {
+                autoCloseable.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /**
+     * Streams users from an open result set, holding its connection until closed.
+     */
+    private static final class UserCursor implements StoreCursor<UserModel> {
+
+        private final Connection connection;
+
+        private final PreparedStatement statement;
+
+        private final ResultSet resultSet;
+
+        /**
+         * Has the result set been moved to a row which was not returned yet.
+         */
+        private boolean hasRow;
+
+        /**
+         * Has the end of the result set been reached.
+         */
+        private boolean done;
+
+        private UserCursor(@Nonnull final Connection connection,
+                           @Nonnull final PreparedStatement statement,
+                           @Nonnull final ResultSet resultSet) {
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!hasRow && !done) {
+                try {
+                    hasRow = resultSet.next();
+                    done = !hasRow;
+                } catch (SQLException e) {
+                    throw new StoreException("getUserModelCursor", e);
+                }
+            }
+            return hasRow;
+        }
+
+        @Override
+        public UserModel next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasRow = false;
+            try {
+                return new UserModel(
+                        resultSet.getString(1),
+                        "",
+                        resultSet.getBoolean(2),
+                        resultSet.getBoolean(3),
+                        Permissions.values(resultSet.getLong(4)),
+                        resultSet.getString(5)
+                );
+            } catch (SQLException e) {
+                throw new StoreException("getUserModelCursor", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+            closeQuietly(connection);
+        }
+    }
+}
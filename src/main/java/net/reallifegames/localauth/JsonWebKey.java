@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.Base64;
+
+/**
+ * The JSON web key form of an elliptic curve public key, which lets other services verify tokens without calling
+ * back. The key id is the RFC 7638 thumbprint of the key.
+ *
+ * @author Tyler Bucher
+ */
+public class JsonWebKey {
+
+    /**
+     * The key type.
+     */
+    public final String kty = "EC";
+
+    /**
+     * What the key is used for.
+     */
+    public final String use = "sig";
+
+    /**
+     * The name of the curve.
+     */
+    public final String crv;
+
+    /**
+     * The signing algorithm of the key.
+     */
+    public final String alg;
+
+    /**
+     * The thumbprint of the key.
+     */
+    public final String kid;
+
+    /**
+     * The base64url encoded x coordinate.
+     */
+    public final String x;
+
+    /**
+     * The base64url encoded y coordinate.
+     */
+    public final String y;
+
+    /**
+     * The key this was made from.
+     */
+    private final PublicKey publicKey;
+
+    /**
+     * @param publicKey the key to describe.
+     * @throws IllegalArgumentException if the key is not on P-256, P-384 or P-521.
+     */
+    public JsonWebKey(@Nonnull final PublicKey publicKey) {
+        if (!(publicKey instanceof ECPublicKey)) {
+            throw new IllegalArgumentException("Only elliptic curve keys are supported");
+        }
+        final ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+        final int fieldSize = ecPublicKey.getParams().getCurve().getField().getFieldSize();
+        switch (fieldSize) {
+            case 256:
+                crv = "P-256";
+                alg = "ES256";
+                break;
+            case 384:
+                crv = "P-384";
+                alg = "ES384";
+                break;
+            case 521:
+                crv = "P-521";
+                alg = "ES512";
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported curve size " + fieldSize);
+        }
+        final int size = (fieldSize + 7) / 8;
+        x = encodeCoordinate(ecPublicKey.getW().getAffineX(), size);
+        y = encodeCoordinate(ecPublicKey.getW().getAffineY(), size);
+        // Members in lexicographic order without whitespace, as the thumbprint requires
+        final String thumbprintInput = "{\"crv\":\"" + crv + "\",\"kty\":\"" + kty + "\",\"x\":\"" + x + "\",\"y\":\"" + y + "\"}";
+        try {
+            kid = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(thumbprintInput.getBytes(StandardCharsets.UTF_8))
+            );
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.publicKey = publicKey;
+    }
+
+    /**
+     * @param publicKey the key to check.
+     * @return true if this was made from the key.
+     */
+    public boolean describes(@Nonnull final PublicKey publicKey) {
+        return this.publicKey == publicKey;
+    }
+
+    /**
+     * @param coordinate the coordinate to encode.
+     * @param size       the byte length of a coordinate on the curve.
+     * @return the coordinate as a fixed length unsigned big endian base64url string.
+     */
+    private static String encodeCoordinate(@Nonnull final BigInteger coordinate, final int size) {
+        final byte[] bytes = coordinate.toByteArray();
+        final byte[] fixed = new byte[size];
+        if (bytes.length > size) {
+            // Drop the sign byte
+            System.arraycopy(bytes, bytes.length - size, fixed, 0, size);
+        } else {
+            System.arraycopy(bytes, 0, fixed, size - bytes.length, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A rebuildable {@link BloomFilter} of the emails in a store, which lets lookups of emails that were never stored
+ * skip the database. Emails can not be removed from a Bloom filter, so deleted users linger until the next rebuild.
+ * <p>
+ * The filter is only trusted once it has been built and until it is invalidated, before that every email might
+ * exist.
+ */
+public class KnownEmailFilter {
+
+    /**
+     * The chance a never stored email still has to be looked up.
+     */
+    private static final double FALSE_POSITIVE_CHANCE = 0.01;
+
+    /**
+     * Headroom for signups between rebuilds.
+     */
+    private static final int GROWTH_FACTOR = 2;
+
+    /**
+     * The smallest number of emails a filter is sized for.
+     */
+    private static final long MIN_CAPACITY = 1024;
+
+    /**
+     * The filter lookups are answered from.
+     */
+    private volatile BloomFilter current = new BloomFilter(MIN_CAPACITY, FALSE_POSITIVE_CHANCE);
+
+    /**
+     * The filter being rebuilt, null when no rebuild is running.
+     */
+    private volatile BloomFilter building;
+
+    /**
+     * Set while the current filter holds every stored email.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Bumped on every invalidation so a rebuild which overlapped one is not trusted, guarded by stateLock.
+     */
+    private long generation;
+
+    /**
+     * Guards swapping in a rebuilt filter against invalidation.
+     */
+    private final Object stateLock = new Object();
+
+    /**
+     * Number of lookups which skipped the database.
+     */
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * @param email the email to look for.
+     * @return false if the email is certainly not stored, true if it might be.
+     */
+    public boolean mightContain(@Nonnull final String email) {
+        if (!ready || current.mightContain(email)) {
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    /**
+     * Adds a stored email. Call once the email is stored, the rebuild in progress is checked first so the email can
+     * not fall between the old and new filter.
+     *
+     * @param email the stored email.
+     */
+    public void add(@Nonnull final String email) {
+        final BloomFilter buildingFilter = building;
+        if (buildingFilter != null) {
+            buildingFilter.put(email);
+        }
+        current.put(email);
+    }
+
+    /**
+     * Replaces the filter with one built from a scan of the store, which drops deleted emails.
+     *
+     * @param expectedEmails the number of stored emails.
+     * @param scan           passes every stored email to the given consumer.
+     */
+    public synchronized void rebuild(final long expectedEmails, @Nonnull final Consumer<Consumer<String>> scan) {
+        final long startGeneration;
+        synchronized (stateLock) {
+            startGeneration = generation;
+        }
+        final BloomFilter filter = new BloomFilter(
+                Math.max(expectedEmails * GROWTH_FACTOR, MIN_CAPACITY), FALSE_POSITIVE_CHANCE
+        );
+        building = filter;
+        try {
+            scan.accept(filter::put);
+            synchronized (stateLock) {
+                current = filter;
+                ready = generation == startGeneration;
+            }
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Stops trusting the filter until the next rebuild, for when stores may have been missed.
+     */
+    public void invalidate() {
+        synchronized (stateLock) {
+            generation++;
+            ready = false;
+        }
+    }
+
+    /**
+     * @return true if lookups are answered from the filter.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of lookups which skipped the database.
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+}
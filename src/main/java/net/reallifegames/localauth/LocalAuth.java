@@ -27,20 +27,26 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.javalin.Javalin;
 import io.javalin.apibuilder.ApiBuilder;
+import io.javalin.http.HandlerType;
 import io.javalin.http.staticfiles.Location;
 import net.reallifegames.localauth.api.v1.ApiController;
+import net.reallifegames.localauth.api.v2.authentication.delete.AuthenticationDeleteController;
 import net.reallifegames.localauth.api.v2.authentication.get.AuthenticationGetController;
 import net.reallifegames.localauth.api.v2.authentication.post.AuthenticationPostController;
+import net.reallifegames.localauth.api.v2.forwardauth.get.ForwardAuthGetController;
 import net.reallifegames.localauth.api.v2.invites.delete.InviteDeleteController;
 import net.reallifegames.localauth.api.v2.invites.get.InviteGetController;
 import net.reallifegames.localauth.api.v2.invites.patch.InvitePatchController;
 import net.reallifegames.localauth.api.v2.invites.post.InvitePostController;
+import net.reallifegames.localauth.api.v2.jwks.get.JwksGetController;
+import net.reallifegames.localauth.api.v2.metrics.get.MetricsGetController;
 import net.reallifegames.localauth.api.v2.nodes.delete.NodeDeleteController;
 import net.reallifegames.localauth.api.v2.nodes.get.NodeGetController;
 import net.reallifegames.localauth.api.v2.nodes.patch.NodePatchController;
 import net.reallifegames.localauth.api.v2.nodes.patch.NodePatchRequest;
 import net.reallifegames.localauth.api.v2.nodes.post.NodePostController;
 import net.reallifegames.localauth.api.v2.permissions.get.PermissionsGetController;
+import net.reallifegames.localauth.api.v2.refresh.post.RefreshPostController;
 import net.reallifegames.localauth.api.v2.users.delete.UserDeleteController;
 import net.reallifegames.localauth.api.v2.users.get.UserGetController;
 import net.reallifegames.localauth.api.v2.users.patch.UserPatchController;
@@ -75,18 +81,38 @@ public class LocalAuth {
     /**
      * Static db module reference.
      */
-    private static MongoDbModule DB_MODULE;
+    private static DbModule DB_MODULE;
 
     /**
      * Static db module reference.
      */
     private static SecurityModule SECURITY_MODULE;
 
+    /**
+     * Static password module reference.
+     */
+    private static PasswordModule PASSWORD_MODULE;
+
+    /**
+     * Static login throttle module reference.
+     */
+    private static LoginThrottleModule LOGIN_THROTTLE_MODULE;
+
+    /**
+     * Static revocation module reference.
+     */
+    private static RevocationModule REVOCATION_MODULE;
+
     /**
      * Global application configuration
      */
     private static Config CONFIG;
 
+    /**
+     * Watches for changes made by other replicas, null when disabled.
+     */
+    private static ChangeStreamWatcher CHANGE_STREAM_WATCHER;
+
     /**
      * Main class for the Local Auth application.
      *
@@ -94,13 +120,32 @@ public class LocalAuth {
      */
     public static void main(@Nonnull final String[] args) {
         CONFIG = new Config();
-        LocalAuth.DB_MODULE = MongoDbModule.getInstance();
+        MetricsModule.getInstance().setEnabled(CONFIG.isMetricsEnabled());
+        LocalAuth.DB_MODULE = createDbModule(CONFIG);
         LocalAuth.SECURITY_MODULE = SecurityModule.getInstance();
-        final Javalin javalinApp = Javalin.create();
+        LocalAuth.PASSWORD_MODULE = new PasswordModule();
+        LocalAuth.LOGIN_THROTTLE_MODULE = new LoginThrottleModule();
+        LocalAuth.REVOCATION_MODULE = new RevocationModule();
+        SECURITY_MODULE.setRevocationModule(REVOCATION_MODULE);
+        SECURITY_MODULE.setUserVersions(DB_MODULE.getUserVersions());
+        if (DB_MODULE instanceof MongoDbModule && CONFIG.isMongoChangeStreamsEnabled()) {
+            CHANGE_STREAM_WATCHER = new ChangeStreamWatcher((MongoDbModule) DB_MODULE);
+            CHANGE_STREAM_WATCHER.start();
+        }
+        final Javalin javalinApp = Javalin.create(config->{
+            if (CONFIG.isMetricsEnabled()) {
+                config.requestLogger((context, executionTimeMs)->MetricsModule.getInstance().observeRequest(
+                        context.method(), context.matchedPath(), context.status(), (long) (executionTimeMs * 1_000_000)
+                ));
+            }
+        });
+        if (CONFIG.isMetricsEnabled()) {
+            registerMetrics(javalinApp);
+        }
         // CORS information
         javalinApp.before("*/*", (context)->{
             context.header("Access-Control-Allow-Origin", "*");
-            context.header("Access-Control-Allow-Methods", "POST, GET, PATCH, OPTIONS");
+            context.header("Access-Control-Allow-Methods", "POST, GET, PATCH, DELETE, OPTIONS");
             context.header("Access-Control-Allow-Headers", "*");
             context.header("Access-Control-Request-Headers", "*");
             context.header("Access-Control-Allow-Credentials", "true");
@@ -111,6 +156,9 @@ public class LocalAuth {
             ApiBuilder.get("/", ApiController::getApiInformation);
             ApiBuilder.get("/authentication", AuthenticationGetController::getAuthentication);
             ApiBuilder.post("/authentication", AuthenticationPostController::postAuthentication);
+            ApiBuilder.delete("/authentication", AuthenticationDeleteController::deleteAuthentication);
+            ApiBuilder.post("/refresh", RefreshPostController::postRefresh);
+            ApiBuilder.get("/forward-auth", ForwardAuthGetController::getForwardAuth);
             // Invites
             ApiBuilder.get("/invites", InviteGetController::getInvites);
             ApiBuilder.post("/invites", InvitePostController::postInvite);
@@ -129,18 +177,76 @@ public class LocalAuth {
             // Permissions
             ApiBuilder.get("/permissions", PermissionsGetController::getPermissions);
         }));
+        javalinApp.get("/.well-known/jwks.json", JwksGetController::getJwks);
+        if (CONFIG.isMetricsEnabled()) {
+            javalinApp.get("/metrics", MetricsGetController::getMetrics);
+        }
 
         javalinApp.start(8080);
+        // Continue after password work on the request threads rather than the shared common pool
+        PASSWORD_MODULE.setCallbackExecutor(javalinApp.server().server().getThreadPool());
 
         Runtime.getRuntime().addShutdownHook(new Thread(()->{
+            if (CHANGE_STREAM_WATCHER != null) {
+                CHANGE_STREAM_WATCHER.stop();
+            }
+            PASSWORD_MODULE.close();
+            LOGIN_THROTTLE_MODULE.close();
+            REVOCATION_MODULE.close();
             DB_MODULE.close();
         }));
     }
 
+    /**
+     * Creates a latency histogram for every route as it is added and exposes the cache and password pool metrics.
+     *
+     * @param javalinApp the application to collect metrics for.
+     */
+    private static void registerMetrics(@Nonnull final Javalin javalinApp) {
+        final MetricsModule metricsModule = MetricsModule.getInstance();
+        javalinApp.events(listener->listener.handlerAdded(handlerMetaInfo->{
+            final HandlerType handlerType = handlerMetaInfo.getHttpMethod();
+            if (handlerType.isHttpMethod()) {
+                metricsModule.registerRoute(handlerType.name(), handlerMetaInfo.getPath());
+            }
+        }));
+        final ExpiringCache<?, ?> verifiedTokenCache = SECURITY_MODULE.getVerifiedTokenCache();
+        metricsModule.cache("verified_token", verifiedTokenCache::getHitCount, verifiedTokenCache::getMissCount);
+        if (DB_MODULE instanceof MongoDbModule) {
+            final MongoDbModule mongoDbModule = (MongoDbModule) DB_MODULE;
+            metricsModule.cache("user", mongoDbModule::getUserCacheHits, mongoDbModule::getUserCacheMisses);
+            metricsModule.counter("localauth_email_filter_skips_total", "User lookups skipped by the known email filter.",
+                    "", mongoDbModule.getEmailFilter()::getSkippedCount);
+        }
+        metricsModule.gauge("localauth_password_queue_depth", "Password tasks waiting for a worker.", "",
+                ()->PASSWORD_MODULE.getQueueDepth());
+        metricsModule.counter("localauth_login_throttled_total", "Login attempts turned away by the throttle.",
+                "key=\"address\"", LOGIN_THROTTLE_MODULE.getAddressLimiter()::getRejectedCount);
+        metricsModule.counter("localauth_login_throttled_total", "Login attempts turned away by the throttle.",
+                "key=\"email\"", LOGIN_THROTTLE_MODULE.getEmailLimiter()::getRejectedCount);
+        metricsModule.gauge("localauth_revocations", "Revoked tokens and users held in memory.", "",
+                ()->REVOCATION_MODULE.size());
+    }
+
+    /**
+     * @param config the configuration which selects the store.
+     * @return the store the application should use.
+     */
+    private static DbModule createDbModule(@Nonnull final Config config) {
+        switch (config.getStoreType()) {
+            case Config.STORE_JDBC:
+                return new JdbcDbModule();
+            case Config.STORE_MEMORY:
+                return new MemoryDbModule();
+            default:
+                return MongoDbModule.getInstance();
+        }
+    }
+
     /**
      * @return the current database module instance.
      */
-    public static MongoDbModule getDbModule() {
+    public static DbModule getDbModule() {
         return DB_MODULE;
     }
 
@@ -151,6 +257,27 @@ public class LocalAuth {
         return SECURITY_MODULE;
     }
 
+    /**
+     * @return the current password module instance.
+     */
+    public static PasswordModule getPasswordModule() {
+        return PASSWORD_MODULE;
+    }
+
+    /**
+     * @return the current login throttle module instance.
+     */
+    public static LoginThrottleModule getLoginThrottleModule() {
+        return LOGIN_THROTTLE_MODULE;
+    }
+
+    /**
+     * @return the current revocation module instance.
+     */
+    public static RevocationModule getRevocationModule() {
+        return REVOCATION_MODULE;
+    }
+
     public static Config getConfig() {
         return CONFIG;
     }
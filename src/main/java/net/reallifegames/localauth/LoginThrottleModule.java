@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles login attempts per client address and per email, so a credential stuffing burst is turned away before
+ * it can spend password hashing time.
+ *
+ * @author Tyler Bucher
+ */
+public class LoginThrottleModule {
+
+    /**
+     * Time in seconds between sweeps of refilled buckets.
+     */
+    private static final long SWEEP_INTERVAL = 60L;
+
+    /**
+     * Login attempts per client address.
+     */
+    private final RateLimiter addressLimiter;
+
+    /**
+     * Login attempts per email.
+     */
+    private final RateLimiter emailLimiter;
+
+    /**
+     * Sweeps refilled buckets in the background.
+     */
+    private final ScheduledExecutorService sweepExecutor;
+
+    public LoginThrottleModule() {
+        this(
+                new RateLimiter(LocalAuth.getConfig().getLoginAddressLimit(), LocalAuth.getConfig().getLoginAddressBurst(),
+                        LocalAuth.getConfig().getLoginThrottleKeys()),
+                new RateLimiter(LocalAuth.getConfig().getLoginEmailLimit(), LocalAuth.getConfig().getLoginEmailBurst(),
+                        LocalAuth.getConfig().getLoginThrottleKeys())
+        );
+    }
+
+    /**
+     * @param addressLimiter limits login attempts per client address.
+     * @param emailLimiter   limits login attempts per email.
+     */
+    public LoginThrottleModule(@Nonnull final RateLimiter addressLimiter, @Nonnull final RateLimiter emailLimiter) {
+        this.addressLimiter = addressLimiter;
+        this.emailLimiter = emailLimiter;
+        sweepExecutor = Executors.newSingleThreadScheduledExecutor(runnable->{
+            final Thread thread = new Thread(runnable, "login-throttle-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweepExecutor.scheduleWithFixedDelay(()->{
+            addressLimiter.sweep();
+            emailLimiter.sweep();
+        }, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param address the address of the client.
+     * @param email   the email the client is logging in as.
+     * @return true if the attempt may go ahead false if it should be turned away.
+     */
+    public boolean tryAcquire(@Nonnull final String address, @Nonnull final String email) {
+        return addressLimiter.tryAcquire(address) && emailLimiter.tryAcquire(email.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the limiter of login attempts per client address.
+     */
+    public RateLimiter getAddressLimiter() {
+        return addressLimiter;
+    }
+
+    /**
+     * @return the limiter of login attempts per email.
+     */
+    public RateLimiter getEmailLimiter() {
+        return emailLimiter;
+    }
+
+    /**
+     * Stops the background sweeps.
+     */
+    public void close() {
+        sweepExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,776 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.NodeModel;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.RevocationModel;
+import net.reallifegames.localauth.models.UserInviteModel;
+import net.reallifegames.localauth.models.UserModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Store which keeps everything in memory for single node deployments. Each change is appended to a memory mapped
+ * journal before it is applied, and the journal is compacted into a snapshot periodically or when it fills up. The
+ * state is recovered from the snapshot and journal at startup.
+ */
+public class MemoryDbModule implements DbModule {
+
+    /**
+     * The static logger for this module.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryDbModule.class);
+
+    /**
+     * Marks a snapshot file.
+     */
+    private static final int SNAPSHOT_MAGIC = 0x4C415331;
+
+    private static final byte PUT_USER = 1;
+    private static final byte DELETE_USER = 2;
+    private static final byte PUT_INVITE = 3;
+    private static final byte DELETE_INVITE = 4;
+    private static final byte PUT_NODE = 5;
+    private static final byte DELETE_NODE = 6;
+    private static final byte PUT_REVOCATION = 7;
+    private static final byte PUT_REFRESH_TOKEN = 8;
+    private static final byte DELETE_REFRESH_TOKEN = 9;
+
+    /**
+     * Users ordered by email.
+     */
+    private final ConcurrentSkipListMap<String, UserModel> users = new ConcurrentSkipListMap<>();
+
+    /**
+     * Invites keyed by email.
+     */
+    private final ConcurrentHashMap<String, UserInviteModel> invites = new ConcurrentHashMap<>();
+
+    /**
+     * Nodes keyed by id.
+     */
+    private final ConcurrentHashMap<String, NodeModel> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Revocations keyed by id.
+     */
+    private final ConcurrentHashMap<String, RevocationModel> revocations = new ConcurrentHashMap<>();
+
+    /**
+     * Refresh tokens keyed by id.
+     */
+    private final ConcurrentHashMap<String, RefreshTokenModel> refreshTokens = new ConcurrentHashMap<>();
+
+    /**
+     * Bumped after every user change is applied.
+     */
+    private final AtomicLong usersVersion = new AtomicLong();
+
+    /**
+     * Bumped after every node change is applied.
+     */
+    private final AtomicLong nodesVersion = new AtomicLong();
+
+    /**
+     * The time each user last had its access changed.
+     */
+    private final UserVersions userVersions = new UserVersions();
+
+    /**
+     * The latest snapshot.
+     */
+    private final Path snapshotPath;
+
+    /**
+     * The journal of changes since the latest snapshot, guarded by this.
+     */
+    private final MemoryJournal journal;
+
+    /**
+     * Reused to encode journal records, guarded by this.
+     */
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+
+    /**
+     * Writes snapshots in the background, null when periodic snapshots are disabled.
+     */
+    private final ScheduledExecutorService snapshotExecutor;
+
+    public MemoryDbModule() {
+        this(
+                Paths.get(LocalAuth.getConfig().getMemoryStorePath()),
+                LocalAuth.getConfig().getMemoryJournalSize(),
+                LocalAuth.getConfig().getMemorySnapshotInterval(),
+                LocalAuth.getConfig().isMemoryJournalSync()
+        );
+    }
+
+    /**
+     * @param directory        where the snapshot and journal are kept.
+     * @param journalSize      the size of the journal in bytes.
+     * @param snapshotInterval seconds between snapshots, 0 to only snapshot when the journal is full.
+     * @param sync             should every journal write be forced to disk.
+     */
+    public MemoryDbModule(@Nonnull final Path directory,
+                          final int journalSize,
+                          final int snapshotInterval,
+                          final boolean sync) {
+        this.snapshotPath = directory.resolve("snapshot.bin");
+        try {
+            Files.createDirectories(directory);
+            final long snapshotGeneration = Files.exists(snapshotPath) ? readSnapshot() : 0;
+            journal = new MemoryJournal(directory.resolve("journal.bin"), journalSize, sync);
+            if (journal.getGeneration() == snapshotGeneration) {
+                journal.replay(this::apply);
+            } else if (journal.getGeneration() < snapshotGeneration) {
+                // The last compaction wrote its snapshot but stopped before clearing the journal
+                journal.reset(snapshotGeneration);
+            } else {
+                throw new IOException("Journal generation " + journal.getGeneration() +
+                        " is newer than snapshot generation " + snapshotGeneration);
+            }
+        } catch (IOException e) {
+            throw new StoreException("Could not recover the memory store from " + directory, e);
+        }
+        if (snapshotInterval > 0) {
+            snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable->{
+                final Thread thread = new Thread(runnable, "memory-store-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotExecutor.scheduleWithFixedDelay(this::snapshotIfChanged, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+        } else {
+            snapshotExecutor = null;
+        }
+    }
+
+    @Override
+    @Nullable
+    public UserModel getUserModelByEmail(@Nonnull final String email) {
+        return users.get(email);
+    }
+
+    @Override
+    @Nullable
+    public UserModel getUserAuthModelByEmail(@Nonnull final String email) {
+        return users.get(email);
+    }
+
+    @Override
+    @Nullable
+    public UserModel getUserCredentialsByEmail(@Nonnull final String email) {
+        return users.get(email);
+    }
+
+    @Override
+    public boolean createNewUserWithHash(@Nonnull final Config config,
+                                         @Nonnull final String email,
+                                         @Nonnull final String passwordHash) {
+        synchronized (this) {
+            if (users.containsKey(email)) {
+                return false;
+            }
+            final boolean isFirstUser = users.isEmpty();
+            final UserInviteModel userInviteModel = invites.get(email);
+            if (config.getAccountCreationType() == Config.ACCOUNT_CREATION_INVITE && !isFirstUser && userInviteModel == null) {
+                return false;
+            }
+            final long permissions = isFirstUser ? Permissions.IS_USER_SUPER_ADMIN.mask :
+                    userInviteModel == null ? Permissions.NO_PERMISSIONS : Permissions.mask(userInviteModel.permissions);
+            final DataOutputStream out = beginRecord();
+            writeUser(out, email, passwordHash, isFirstUser || userInviteModel != null, true, permissions, "");
+            if (userInviteModel != null) {
+                writeId(out, DELETE_INVITE, email);
+            }
+            commitRecord();
+            return true;
+        }
+    }
+
+    @Override
+    @Nonnull
+    public List<UserModel> getAllUserModels() {
+        return getUserModelCursor(null, 0).toList();
+    }
+
+    @Override
+    @Nonnull
+    public StoreCursor<UserModel> getUserModelCursor(@Nullable final String after, final int limit) {
+        final Iterator<UserModel> iterator = (after == null ? users : users.tailMap(after, false)).values().stream()
+                .filter(userModel->!userModel.email.isEmpty())
+                .limit(limit > 0 ? limit : Long.MAX_VALUE)
+                .map(userModel->new UserModel(userModel.email, "", userModel.active, userModel.pending,
+                        userModel.permissions, userModel.nodeMetaData))
+                .iterator();
+        return StoreCursor.of(iterator, ()->{
+        });
+    }
+
+    @Override
+    public boolean updateUserModelWithHash(@Nonnull final String email,
+                                           @Nullable final String passwordHash,
+                                           final boolean active,
+                                           @Nullable final List<Integer> permissions) {
+        synchronized (this) {
+            final UserModel userModel = users.get(email);
+            if (userModel == null) {
+                return false;
+            }
+            final boolean isSuperAdmin = userModel.permissions.contains(Permissions.IS_USER_SUPER_ADMIN.value);
+            if (isSuperAdmin && passwordHash == null) {
+                return false;
+            }
+            writeUser(
+                    beginRecord(),
+                    email,
+                    passwordHash == null ? userModel.passwordHash : passwordHash,
+                    isSuperAdmin ? userModel.active : active,
+                    userModel.pending,
+                    Permissions.mask(isSuperAdmin || permissions == null ? userModel.permissions : permissions),
+                    userModel.nodeMetaData
+            );
+            commitRecord();
+            userVersions.changed(email);
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized boolean deleteUser(@Nonnull final String email) {
+        if (!users.containsKey(email)) {
+            return false;
+        }
+        final DataOutputStream out = beginRecord();
+        writeId(out, DELETE_USER, email);
+        for (final RefreshTokenModel refreshToken : refreshTokens.values()) {
+            if (refreshToken.email.equals(email)) {
+                writeId(out, DELETE_REFRESH_TOKEN, refreshToken.id);
+            }
+        }
+        commitRecord();
+        userVersions.changed(email);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean updateUserNodeMetadata(@Nonnull final String email, @Nonnull final String nodeMetaData) {
+        final UserModel userModel = users.get(email);
+        if (userModel == null) {
+            return false;
+        }
+        writeUser(beginRecord(), email, userModel.passwordHash, userModel.active, userModel.pending,
+                Permissions.mask(userModel.permissions), nodeMetaData);
+        commitRecord();
+        return true;
+    }
+
+    @Override
+    @Nullable
+    public UserInviteModel getUserInviteModelByEmail(@Nonnull final String email) {
+        return invites.get(email);
+    }
+
+    @Override
+    public synchronized boolean createNewInvite(@Nonnull final String email, @Nonnull final List<Integer> permissions) {
+        if (email.isEmpty()) {
+            return false;
+        }
+        writeInvite(beginRecord(), email, Permissions.mask(permissions));
+        commitRecord();
+        return true;
+    }
+
+    @Override
+    public List<UserInviteModel> getAllUserInviteModels() {
+        return new ArrayList<>(invites.values());
+    }
+
+    @Override
+    public synchronized boolean updateInvite(@Nonnull final String email, @Nullable final List<Integer> permissions) {
+        if (permissions == null || !invites.containsKey(email)) {
+            return false;
+        }
+        writeInvite(beginRecord(), email, Permissions.mask(permissions));
+        commitRecord();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteInvite(@Nonnull final String email) {
+        if (!invites.containsKey(email)) {
+            return false;
+        }
+        writeId(beginRecord(), DELETE_INVITE, email);
+        commitRecord();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean createNewNode(@Nonnull final String id, @Nonnull final String defaultText) {
+        if (id.isEmpty() || defaultText.isEmpty()) {
+            return false;
+        }
+        writeNode(beginRecord(), id, defaultText);
+        commitRecord();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean updateNode(@Nonnull final String id, @Nonnull final String defaultText) {
+        if (!nodes.containsKey(id)) {
+            return false;
+        }
+        writeNode(beginRecord(), id, defaultText);
+        commitRecord();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteNode(@Nonnull final String id) {
+        if (!nodes.containsKey(id)) {
+            return false;
+        }
+        writeId(beginRecord(), DELETE_NODE, id);
+        commitRecord();
+        return true;
+    }
+
+    @Override
+    public List<NodeModel> getAllNodeModels() {
+        return new ArrayList<>(nodes.values());
+    }
+
+    @Override
+    public synchronized void saveRevocation(@Nonnull final RevocationModel revocation) {
+        writeRevocation(beginRecord(), revocation.id, revocation.revokedBefore, revocation.expiresAt.getTime());
+        commitRecord();
+    }
+
+    /**
+     * Expired revocations are forgotten here and left out of the next snapshot.
+     *
+     * @param now the current time in epoch milliseconds.
+     * @return every revocation which has not expired yet.
+     */
+    @Override
+    public List<RevocationModel> getRevocations(final long now) {
+        revocations.values().removeIf(revocation->revocation.expiresAt.getTime() <= now);
+        return new ArrayList<>(revocations.values());
+    }
+
+    @Override
+    public synchronized void saveRefreshToken(@Nonnull final RefreshTokenModel refreshToken) {
+        writeRefreshToken(beginRecord(), refreshToken, refreshToken.usedAt);
+        commitRecord();
+    }
+
+    @Override
+    @Nullable
+    public synchronized RefreshTokenModel useRefreshToken(@Nonnull final String id, final long now) {
+        final RefreshTokenModel refreshToken = refreshTokens.get(id);
+        if (refreshToken == null || refreshToken.expiresAt.getTime() <= now) {
+            return null;
+        }
+        if (refreshToken.usedAt == 0) {
+            writeRefreshToken(beginRecord(), refreshToken, now);
+            commitRecord();
+        }
+        return refreshToken;
+    }
+
+    @Override
+    public synchronized void deleteRefreshTokenFamily(@Nonnull final String family) {
+        final DataOutputStream out = beginRecord();
+        boolean found = false;
+        for (final RefreshTokenModel refreshToken : refreshTokens.values()) {
+            if (refreshToken.family.equals(family)) {
+                writeId(out, DELETE_REFRESH_TOKEN, refreshToken.id);
+                found = true;
+            }
+        }
+        if (found) {
+            commitRecord();
+        }
+    }
+
+    @Override
+    public synchronized void deleteRefreshTokensByEmail(@Nonnull final String email) {
+        final DataOutputStream out = beginRecord();
+        boolean found = false;
+        for (final RefreshTokenModel refreshToken : refreshTokens.values()) {
+            if (refreshToken.email.equals(email)) {
+                writeId(out, DELETE_REFRESH_TOKEN, refreshToken.id);
+                found = true;
+            }
+        }
+        if (found) {
+            commitRecord();
+        }
+    }
+
+    @Override
+    public long getUsersVersion() {
+        return usersVersion.get();
+    }
+
+    @Override
+    public UserVersions getUserVersions() {
+        return userVersions;
+    }
+
+    @Override
+    public long getNodesVersion() {
+        return nodesVersion.get();
+    }
+
+    /**
+     * Everything is kept in memory, so there are no caches to clear.
+     */
+    @Override
+    public void clearCaches() {
+    }
+
+    /**
+     * Writes a snapshot of the current state and clears the journal.
+     */
+    public synchronized void snapshot() {
+        final long generation = journal.getGeneration() + 1;
+        try {
+            writeSnapshot(generation);
+        } catch (IOException e) {
+            throw new StoreException("Could not write a snapshot to " + snapshotPath, e);
+        }
+        journal.reset(generation);
+    }
+
+    /**
+     * Stops periodic snapshots, writes a final snapshot and closes the journal.
+     */
+    @Override
+    public synchronized void close() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+        }
+        try {
+            if (journal.getRecordCount() > 0) {
+                snapshot();
+            }
+            journal.close();
+        } catch (IOException e) {
+            throw new StoreException("Could not close the journal", e);
+        }
+    }
+
+    private synchronized void snapshotIfChanged() {
+        try {
+            if (journal.getRecordCount() > 0) {
+                snapshot();
+            }
+        } catch (StoreException e) {
+            LOGGER.warn("Periodic snapshot failed", e);
+        }
+    }
+
+    /**
+     * @return a stream to encode the entries of a new journal record to.
+     */
+    private DataOutputStream beginRecord() {
+        recordBytes.reset();
+        return new DataOutputStream(recordBytes);
+    }
+
+    /**
+     * Appends the encoded record to the journal, compacting it first if it is full, then applies it.
+     */
+    private void commitRecord() {
+        final byte[] record = recordBytes.toByteArray();
+        if (!journal.append(record)) {
+            snapshot();
+            if (!journal.append(record)) {
+                throw new StoreException("Record of " + record.length + " bytes does not fit in the journal",
+                        new IOException("Journal full"));
+            }
+        }
+        apply(ByteBuffer.wrap(record));
+    }
+
+    /**
+     * Applies every entry of a record to the in memory state.
+     *
+     * @param record the encoded entries.
+     */
+    private void apply(@Nonnull final ByteBuffer record) {
+        while (record.hasRemaining()) {
+            final byte type = record.get();
+            switch (type) {
+                case PUT_USER: {
+                    final String email = readString(record);
+                    final String passwordHash = readString(record);
+                    final boolean active = record.get() != 0;
+                    final boolean pending = record.get() != 0;
+                    final List<Integer> permissions = Permissions.values(record.getLong());
+                    users.put(email, new UserModel(email, passwordHash, active, pending, permissions, readString(record)));
+                    usersVersion.incrementAndGet();
+                    break;
+                }
+                case DELETE_USER:
+                    users.remove(readString(record));
+                    usersVersion.incrementAndGet();
+                    break;
+                case PUT_INVITE: {
+                    final String email = readString(record);
+                    invites.put(email, new UserInviteModel(email, Permissions.values(record.getLong())));
+                    break;
+                }
+                case DELETE_INVITE:
+                    invites.remove(readString(record));
+                    break;
+                case PUT_NODE: {
+                    final String id = readString(record);
+                    nodes.put(id, new NodeModel(id, readString(record)));
+                    nodesVersion.incrementAndGet();
+                    break;
+                }
+                case DELETE_NODE:
+                    nodes.remove(readString(record));
+                    nodesVersion.incrementAndGet();
+                    break;
+                case PUT_REVOCATION: {
+                    final String id = readString(record);
+                    final long revokedBefore = record.getLong();
+                    revocations.put(id, new RevocationModel(id, revokedBefore, new Date(record.getLong())));
+                    break;
+                }
+                case PUT_REFRESH_TOKEN: {
+                    final String id = readString(record);
+                    final String email = readString(record);
+                    final String family = readString(record);
+                    final long usedAt = record.getLong();
+                    final boolean persistent = record.get() != 0;
+                    final Date expiresAt = new Date(record.getLong());
+                    refreshTokens.put(id, new RefreshTokenModel(id, email, family, usedAt, persistent, expiresAt));
+                    break;
+                }
+                case DELETE_REFRESH_TOKEN:
+                    refreshTokens.remove(readString(record));
+                    break;
+                default:
+                    throw new StoreException("Unknown journal entry " + type, new IOException("Corrupt record"));
+            }
+        }
+    }
+
+    /**
+     * Writes every user, invite, node and unexpired revocation and refresh token to a temporary file then moves it
+     * over the current snapshot. Expired entries are forgotten.
+     *
+     * @param generation the journal generation which follows this snapshot.
+     * @throws IOException if the snapshot could not be written.
+     */
+    private void writeSnapshot(final long generation) throws IOException {
+        final Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (final FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final CRC32 crc = new CRC32();
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            final DataOutputStream entries = beginRecord();
+            for (final UserModel userModel : users.values()) {
+                writeUser(entries, userModel.email, userModel.passwordHash, userModel.active, userModel.pending,
+                        Permissions.mask(userModel.permissions), userModel.nodeMetaData);
+            }
+            for (final UserInviteModel userInviteModel : invites.values()) {
+                writeInvite(entries, userInviteModel.email, Permissions.mask(userInviteModel.permissions));
+            }
+            for (final NodeModel nodeModel : nodes.values()) {
+                writeNode(entries, nodeModel.id, nodeModel.defaultText);
+            }
+            final long now = System.currentTimeMillis();
+            revocations.values().removeIf(revocation->revocation.expiresAt.getTime() <= now);
+            for (final RevocationModel revocation : revocations.values()) {
+                writeRevocation(entries, revocation.id, revocation.revokedBefore, revocation.expiresAt.getTime());
+            }
+            refreshTokens.values().removeIf(refreshToken->refreshToken.expiresAt.getTime() <= now);
+            for (final RefreshTokenModel refreshToken : refreshTokens.values()) {
+                writeRefreshToken(entries, refreshToken, refreshToken.usedAt);
+            }
+            final byte[] body = recordBytes.toByteArray();
+            crc.update(body);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(generation);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeLong(crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the current snapshot into memory.
+     *
+     * @return the journal generation which follows the snapshot.
+     * @throws IOException if the snapshot could not be read or is corrupt.
+     */
+    private long readSnapshot() throws IOException {
+        final ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+        if (snapshot.remaining() < 24 || snapshot.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        final long generation = snapshot.getLong();
+        final int length = snapshot.getInt();
+        if (length < 0 || length > snapshot.remaining() - 8) {
+            throw new IOException("Truncated snapshot");
+        }
+        final ByteBuffer body = snapshot.slice();
+        body.limit(length);
+        final CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        snapshot.position(snapshot.position() + length);
+        if (snapshot.getLong() != crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        apply(body);
+        return generation;
+    }
+
+    private static void writeUser(@Nonnull final DataOutputStream out,
+                                  @Nonnull final String email,
+                                  @Nonnull final String passwordHash,
+                                  final boolean active,
+                                  final boolean pending,
+                                  final long permissions,
+                                  @Nonnull final String nodeMetaData) {
+        try {
+            out.writeByte(PUT_USER);
+            writeString(out, email);
+            writeString(out, passwordHash);
+            out.writeBoolean(active);
+            out.writeBoolean(pending);
+            out.writeLong(permissions);
+            writeString(out, nodeMetaData);
+        } catch (IOException e) {
+            throw new StoreException("Could not encode user", e);
+        }
+    }
+
+    private static void writeInvite(@Nonnull final DataOutputStream out, @Nonnull final String email, final long permissions) {
+        try {
+            out.writeByte(PUT_INVITE);
+            writeString(out, email);
+            out.writeLong(permissions);
+        } catch (IOException e) {
+            throw new StoreException("Could not encode invite", e);
+        }
+    }
+
+    private static void writeNode(@Nonnull final DataOutputStream out, @Nonnull final String id, @Nonnull final String defaultText) {
+        try {
+            out.writeByte(PUT_NODE);
+            writeString(out, id);
+            writeString(out, defaultText);
+        } catch (IOException e) {
+            throw new StoreException("Could not encode node", e);
+        }
+    }
+
+    private static void writeRevocation(@Nonnull final DataOutputStream out,
+                                        @Nonnull final String id,
+                                        final long revokedBefore,
+                                        final long expiresAt) {
+        try {
+            out.writeByte(PUT_REVOCATION);
+            writeString(out, id);
+            out.writeLong(revokedBefore);
+            out.writeLong(expiresAt);
+        } catch (IOException e) {
+            throw new StoreException("Could not encode revocation", e);
+        }
+    }
+
+    private static void writeRefreshToken(@Nonnull final DataOutputStream out,
+                                          @Nonnull final RefreshTokenModel refreshToken,
+                                          final long usedAt) {
+        try {
+            out.writeByte(PUT_REFRESH_TOKEN);
+            writeString(out, refreshToken.id);
+            writeString(out, refreshToken.email);
+            writeString(out, refreshToken.family);
+            out.writeLong(usedAt);
+            out.writeBoolean(refreshToken.persistent);
+            out.writeLong(refreshToken.expiresAt.getTime());
+        } catch (IOException e) {
+            throw new StoreException("Could not encode refresh token", e);
+        }
+    }
+
+    private static void writeId(@Nonnull final DataOutputStream out, final byte type, @Nonnull final String id) {
+        try {
+            out.writeByte(type);
+            writeString(out, id);
+        } catch (IOException e) {
+            throw new StoreException("Could not encode delete", e);
+        }
+    }
+
+    private static void writeString(@Nonnull final DataOutputStream out, @Nullable final String value) throws IOException {
+        final byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(@Nonnull final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal in a memory mapped file. Every record is stamped with the journal generation and a checksum so
+ * replay stops at the first torn record, and records older than the last snapshot are never replayed.
+ * <p>
+ * Not thread safe, callers must serialize access.
+ */
+final class MemoryJournal implements Closeable {
+
+    /**
+     * Marks a journal file.
+     */
+    private static final int MAGIC = 0x4C414A31;
+
+    /**
+     * Magic and generation.
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * Payload length, checksum and generation.
+     */
+    private static final int RECORD_HEADER_SIZE = 16;
+
+    /**
+     * The journal file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapped journal file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Should every append be forced to disk.
+     */
+    private final boolean sync;
+
+    /**
+     * Used to checksum records.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * The generation of the records in this journal.
+     */
+    private long generation;
+
+    /**
+     * Where the next record is written.
+     */
+    private int position;
+
+    /**
+     * The number of records since the last reset.
+     */
+    private int recordCount;
+
+    /**
+     * @param path     the journal file, created if missing.
+     * @param capacity the size of the journal file in bytes, an existing larger file keeps its size.
+     * @param sync     should every append be forced to disk.
+     * @throws IOException if the file could not be mapped.
+     */
+    MemoryJournal(@Nonnull final Path path, final int capacity, final boolean sync) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+        this.sync = sync;
+        if (buffer.getInt(0) == MAGIC) {
+            generation = buffer.getLong(4);
+            position = HEADER_SIZE;
+        } else {
+            reset(0);
+        }
+    }
+
+    /**
+     * @return the generation of the records in this journal.
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the number of records since the last reset.
+     */
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Reads every intact record of the current generation and positions the journal after the last one.
+     *
+     * @param consumer receives each record payload.
+     */
+    void replay(@Nonnull final Consumer<ByteBuffer> consumer) {
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            final int length = buffer.getInt(offset);
+            if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE) {
+                break;
+            }
+            if (buffer.getLong(offset + 8) != generation || buffer.getInt(offset + 4) != checksum(offset + 8, length + 8)) {
+                break;
+            }
+            final ByteBuffer payload = buffer.duplicate();
+            payload.position(offset + RECORD_HEADER_SIZE).limit(offset + RECORD_HEADER_SIZE + length);
+            consumer.accept(payload.slice());
+            offset += RECORD_HEADER_SIZE + length;
+            recordCount++;
+        }
+        position = offset;
+        writeEndMarker();
+    }
+
+    /**
+     * @param payload the record to append.
+     * @return true if the record was written false if the journal is full.
+     */
+    boolean append(@Nonnull final byte[] payload) {
+        if (payload.length > buffer.capacity() - position - RECORD_HEADER_SIZE) {
+            return false;
+        }
+        // Length goes last so a record is only visible once it is complete
+        buffer.putLong(position + 8, generation);
+        final ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_SIZE);
+        target.put(payload);
+        buffer.putInt(position + 4, checksum(position + 8, payload.length + 8));
+        buffer.putInt(position, payload.length);
+        position += RECORD_HEADER_SIZE + payload.length;
+        recordCount++;
+        writeEndMarker();
+        if (sync) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    /**
+     * Discards every record and starts a new generation.
+     *
+     * @param generation the new generation.
+     */
+    void reset(final long generation) {
+        this.generation = generation;
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(4, generation);
+        position = HEADER_SIZE;
+        recordCount = 0;
+        writeEndMarker();
+        buffer.force();
+    }
+
+    /**
+     * Forces the journal to disk and closes the file.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Clears the length of the next record slot so stale bytes are never read as a record.
+     */
+    private void writeEndMarker() {
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+    }
+
+    private int checksum(final int offset, final int length) {
+        final ByteBuffer range = buffer.duplicate();
+        range.position(offset).limit(offset + length);
+        crc.reset();
+        crc.update(range);
+        return (int) crc.getValue();
+    }
+}
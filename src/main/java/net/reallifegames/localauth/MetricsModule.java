@@ -0,0 +1,290 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the application metrics with prometheus text exposition. Metrics are created up front and recorded
+ * with striped adders, so recording on the request path takes no locks and does not allocate.
+ */
+public class MetricsModule {
+
+    /**
+     * A static class to hold the singleton.
+     */
+    private static final class SingletonHolder {
+
+        /**
+         * The metrics module singleton.
+         */
+        private static final MetricsModule INSTANCE = new MetricsModule();
+    }
+
+    /**
+     * @return {@link MetricsModule} singleton.
+     */
+    public static MetricsModule getInstance() {
+        return MetricsModule.SingletonHolder.INSTANCE;
+    }
+
+    /**
+     * Metric name of the request latency histograms.
+     */
+    private static final String REQUEST_DURATION = "localauth_http_request_duration_seconds";
+
+    /**
+     * Route label of requests which did not match a registered route.
+     */
+    private static final String UNMATCHED_ROUTE = "unmatched";
+
+    /**
+     * A named group of metrics which only differ by their labels.
+     */
+    private static final class Family {
+
+        private final String help;
+
+        private final String type;
+
+        /**
+         * Metrics keyed by their formatted labels.
+         */
+        private final ConcurrentHashMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+        private Family(@Nonnull final String help, @Nonnull final String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Every metric family keyed by name.
+     */
+    private final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * Request latency histograms keyed by http method then route.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> routeHistograms = new ConcurrentHashMap<>();
+
+    /**
+     * Latency of requests which did not match a registered route.
+     */
+    private final Histogram unmatchedHistogram;
+
+    /**
+     * Responses per status code.
+     */
+    private final LongAdder[] statusCounts = new LongAdder[600];
+
+    /**
+     * States if histograms record observations.
+     */
+    private volatile boolean enabled = true;
+
+    public MetricsModule() {
+        unmatchedHistogram = histogram(REQUEST_DURATION, "Request latency by route.", "method=\"\",route=\"" + UNMATCHED_ROUTE + "\"");
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param name   the metric name.
+     * @param help   the description of the metric.
+     * @param labels the formatted labels, for example method="GET", empty for none.
+     * @return the histogram with the name and labels, created if missing.
+     */
+    public Histogram histogram(@Nonnull final String name, @Nonnull final String help, @Nonnull final String labels) {
+        return (Histogram) family(name, help, "histogram").metrics.computeIfAbsent(labels, key->{
+            final Histogram histogram = new Histogram();
+            histogram.setEnabled(enabled);
+            return histogram;
+        });
+    }
+
+    /**
+     * Turns recording on or off for every histogram, including the ones modules hold statically.
+     *
+     * @param enabled true to record observations false to drop them.
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+        for (final Family family : families.values()) {
+            for (final Object metric : family.metrics.values()) {
+                if (metric instanceof Histogram) {
+                    ((Histogram) metric).setEnabled(enabled);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exposes a counter which is kept elsewhere.
+     *
+     * @param name   the metric name.
+     * @param help   the description of the metric.
+     * @param labels the formatted labels, empty for none.
+     * @param value  reads the current count.
+     */
+    public void counter(@Nonnull final String name,
+                        @Nonnull final String help,
+                        @Nonnull final String labels,
+                        @Nonnull final LongSupplier value) {
+        family(name, help, "counter").metrics.put(labels, value);
+    }
+
+    /**
+     * Exposes a value which is read when the metrics are scraped.
+     *
+     * @param name   the metric name.
+     * @param help   the description of the metric.
+     * @param labels the formatted labels, empty for none.
+     * @param value  reads the current value.
+     */
+    public void gauge(@Nonnull final String name,
+                      @Nonnull final String help,
+                      @Nonnull final String labels,
+                      @Nonnull final DoubleSupplier value) {
+        family(name, help, "gauge").metrics.put(labels, value);
+    }
+
+    /**
+     * Exposes hit and miss counters and the hit ratio of a cache.
+     *
+     * @param cache  the name of the cache.
+     * @param hits   reads the number of hits.
+     * @param misses reads the number of misses.
+     */
+    public void cache(@Nonnull final String cache, @Nonnull final LongSupplier hits, @Nonnull final LongSupplier misses) {
+        final String labels = "cache=\"" + cache + "\"";
+        counter("localauth_cache_hits_total", "Cache lookups which were served from the cache.", labels, hits);
+        counter("localauth_cache_misses_total", "Cache lookups which were not in the cache.", labels, misses);
+        gauge("localauth_cache_hit_ratio", "Share of cache lookups served from the cache.", labels, ()->{
+            final long hitCount = hits.getAsLong();
+            final long total = hitCount + misses.getAsLong();
+            return total == 0 ? 0 : (double) hitCount / total;
+        });
+    }
+
+    /**
+     * Creates the latency histogram of a route so requests to it are recorded under its own label.
+     *
+     * @param method the http method of the route.
+     * @param route  the path of the route.
+     */
+    public void registerRoute(@Nonnull final String method, @Nonnull final String route) {
+        routeHistograms.computeIfAbsent(method, key->new ConcurrentHashMap<>()).computeIfAbsent(route, key->histogram(
+                REQUEST_DURATION,
+                "Request latency by route.",
+                "method=\"" + method + "\",route=\"" + escape(route) + "\""
+        ));
+    }
+
+    /**
+     * Records a finished request.
+     *
+     * @param method the http method of the request.
+     * @param route  the matched route path.
+     * @param status the response status code.
+     * @param nanos  how long the request took.
+     */
+    public void observeRequest(@Nonnull final String method, @Nonnull final String route, final int status, final long nanos) {
+        final ConcurrentHashMap<String, Histogram> methodHistograms = routeHistograms.get(method);
+        final Histogram histogram = methodHistograms == null ? null : methodHistograms.get(route);
+        (histogram == null ? unmatchedHistogram : histogram).observe(nanos);
+        if (status >= 0 && status < statusCounts.length) {
+            statusCounts[status].increment();
+        }
+    }
+
+    /**
+     * @param status the response status code.
+     * @return the number of responses sent with the status.
+     */
+    public long getStatusCount(final int status) {
+        return status >= 0 && status < statusCounts.length ? statusCounts[status].sum() : 0;
+    }
+
+    /**
+     * @return every metric in the prometheus text format.
+     */
+    @Nonnull
+    public String scrape() {
+        final StringBuilder builder = new StringBuilder(8192);
+        builder.append("# HELP localauth_http_responses_total Responses by status code.\n");
+        builder.append("# TYPE localauth_http_responses_total counter\n");
+        for (int i = 0; i < statusCounts.length; i++) {
+            final long count = statusCounts[i].sum();
+            if (count != 0) {
+                builder.append("localauth_http_responses_total{status=\"").append(i).append("\"} ").append(count).append('\n');
+            }
+        }
+        for (final Map.Entry<String, Family> familyEntry : new TreeMap<>(families).entrySet()) {
+            final String name = familyEntry.getKey();
+            final Family family = familyEntry.getValue();
+            builder.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            builder.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (final Map.Entry<String, Object> entry : new TreeMap<>(family.metrics).entrySet()) {
+                final String labels = entry.getKey();
+                final Object metric = entry.getValue();
+                if (metric instanceof Histogram) {
+                    ((Histogram) metric).write(builder, name, labels);
+                    continue;
+                }
+                builder.append(name);
+                if (!labels.isEmpty()) {
+                    builder.append('{').append(labels).append('}');
+                }
+                builder.append(' ');
+                if (metric instanceof LongSupplier) {
+                    builder.append(((LongSupplier) metric).getAsLong());
+                } else {
+                    builder.append(((DoubleSupplier) metric).getAsDouble());
+                }
+                builder.append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private Family family(@Nonnull final String name, @Nonnull final String help, @Nonnull final String type) {
+        return families.computeIfAbsent(name, key->new Family(help, type));
+    }
+
+    /**
+     * @param value a label value.
+     * @return the value escaped for the prometheus text format.
+     */
+    private static String escape(@Nonnull final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -23,28 +23,59 @@
  */
 package net.reallifegames.localauth;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.result.UpdateResult;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
 import dev.morphia.Datastore;
+import dev.morphia.DeleteOptions;
+import dev.morphia.ModifyOptions;
 import dev.morphia.Morphia;
+import dev.morphia.query.FindOptions;
+import dev.morphia.query.Sort;
+import dev.morphia.query.internal.MorphiaCursor;
 import dev.morphia.query.experimental.filters.Filters;
 import dev.morphia.query.experimental.updates.UpdateOperator;
 import dev.morphia.query.experimental.updates.UpdateOperators;
 import net.reallifegames.localauth.models.NodeModel;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.RevocationModel;
 import net.reallifegames.localauth.models.UserInviteModel;
 import net.reallifegames.localauth.models.UserModel;
+import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
-import org.mindrot.jbcrypt.BCrypt;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class MongoDbModule {
+public class MongoDbModule implements DbModule {
+
+    /**
+     * The static logger for this module.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoDbModule.class);
 
     /**
      * A static class to hold the singleton.
@@ -74,6 +105,101 @@ public class MongoDbModule {
      */
     private final Datastore datastore;
 
+    /**
+     * Client for the asynchronous lookups.
+     */
+    private final com.mongodb.reactivestreams.client.MongoClient reactiveClient;
+
+    /**
+     * The users collection on the asynchronous client.
+     */
+    private final com.mongodb.reactivestreams.client.MongoCollection<Document> reactiveUsers;
+
+    /**
+     * The maximum amount of users to keep in the user cache.
+     */
+    private static final int USER_CACHE_SIZE = 10000;
+
+    /**
+     * The longest time in milliseconds a user may be served from the user cache.
+     */
+    private static final long USER_CACHE_TTL = 30000L;
+
+    /**
+     * Recently loaded users keyed by email.
+     */
+    private final ExpiringCache<String, UserModel> userCache = new ExpiringCache<>(USER_CACHE_SIZE);
+
+    /**
+     * Set once a user is known to exist so signups skip the first user check.
+     */
+    private volatile boolean hasUsers;
+
+    /**
+     * Bumped after every user write made here or seen on the change stream.
+     */
+    private final AtomicLong usersVersion = new AtomicLong();
+
+    /**
+     * Bumped after every node write made here or seen on the change stream.
+     */
+    private final AtomicLong nodesVersion = new AtomicLong();
+
+    /**
+     * Set while the change stream is open, so writes from other replicas bump the versions.
+     */
+    private volatile boolean versionsTracked;
+
+    /**
+     * The time each user last changed, from writes made here or seen on the change stream.
+     */
+    private final UserVersions userVersions = new UserVersions(false);
+
+    /**
+     * Time in seconds between rebuilds of the known email filter.
+     */
+    private static final long EMAIL_FILTER_REBUILD_INTERVAL = 3600L;
+
+    /**
+     * Emails of every user, trusted while the change stream is open so signups on other replicas are seen.
+     */
+    private final KnownEmailFilter emailFilter = new KnownEmailFilter();
+
+    /**
+     * Rebuilds the known email filter in the background.
+     */
+    private final ScheduledExecutorService emailFilterExecutor;
+
+    /**
+     * Latency of each store method, cache hits are not recorded.
+     */
+    private static final Histogram GET_USER_MODEL_BY_EMAIL_TIMER = timer("getUserModelByEmail");
+    private static final Histogram GET_USER_AUTH_MODEL_BY_EMAIL_TIMER = timer("getUserAuthModelByEmail");
+    private static final Histogram GET_USER_CREDENTIALS_BY_EMAIL_TIMER = timer("getUserCredentialsByEmail");
+    private static final Histogram GET_USER_MODEL_BY_EMAIL_ASYNC_TIMER = timer("getUserModelByEmailAsync");
+    private static final Histogram GET_USER_AUTH_MODEL_BY_EMAIL_ASYNC_TIMER = timer("getUserAuthModelByEmailAsync");
+    private static final Histogram GET_USER_CREDENTIALS_BY_EMAIL_ASYNC_TIMER = timer("getUserCredentialsByEmailAsync");
+    private static final Histogram GET_USER_INVITE_MODEL_BY_EMAIL_TIMER = timer("getUserInviteModelByEmail");
+    private static final Histogram CREATE_NEW_USER_TIMER = timer("createNewUser");
+    private static final Histogram CREATE_NEW_INVITE_TIMER = timer("createNewInvite");
+    private static final Histogram GET_ALL_USER_INVITE_MODELS_TIMER = timer("getAllUserInviteModels");
+    private static final Histogram UPDATE_INVITE_TIMER = timer("updateInvite");
+    private static final Histogram DELETE_INVITE_TIMER = timer("deleteInvite");
+    private static final Histogram GET_ALL_USER_MODELS_TIMER = timer("getAllUserModels");
+    private static final Histogram UPDATE_USER_MODEL_TIMER = timer("updateUserModel");
+    private static final Histogram DELETE_USER_TIMER = timer("deleteUser");
+    private static final Histogram CREATE_NEW_NODE_TIMER = timer("createNewNode");
+    private static final Histogram UPDATE_NODE_TIMER = timer("updateNode");
+    private static final Histogram DELETE_NODE_TIMER = timer("deleteNode");
+    private static final Histogram GET_ALL_NODE_MODELS_TIMER = timer("getAllNodeModels");
+    private static final Histogram UPDATE_USER_NODE_METADATA_TIMER = timer("updateUserNodeMetadata");
+    private static final Histogram SAVE_REVOCATION_TIMER = timer("saveRevocation");
+    private static final Histogram GET_REVOCATIONS_TIMER = timer("getRevocations");
+    private static final Histogram SAVE_REFRESH_TOKEN_TIMER = timer("saveRefreshToken");
+    private static final Histogram USE_REFRESH_TOKEN_TIMER = timer("useRefreshToken");
+    private static final Histogram DELETE_REFRESH_TOKEN_FAMILY_TIMER = timer("deleteRefreshTokenFamily");
+    private static final Histogram DELETE_REFRESH_TOKENS_BY_EMAIL_TIMER = timer("deleteRefreshTokensByEmail");
+
     public MongoDbModule() {
         this(LocalAuth.getConfig().getMongoConnectionUri(), LocalAuth.getConfig().getMongoDatabaseName());
     }
@@ -83,78 +209,437 @@ public class MongoDbModule {
         datastore = Morphia.createDatastore(mongoClient, dbName);
         datastore.getMapper().mapPackage("net.reallifegames.localauth.models");
         datastore.ensureIndexes();
+        reactiveClient = com.mongodb.reactivestreams.client.MongoClients.create(connectionUri);
+        reactiveUsers = reactiveClient.getDatabase(dbName).getCollection("users");
+        emailFilterExecutor = Executors.newSingleThreadScheduledExecutor(runnable->{
+            final Thread thread = new Thread(runnable, "email-filter-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        emailFilterExecutor.scheduleWithFixedDelay(
+                this::rebuildEmailFilter, EMAIL_FILTER_REBUILD_INTERVAL, EMAIL_FILTER_REBUILD_INTERVAL, TimeUnit.SECONDS
+        );
     }
 
+    /**
+     * Fields fetched for authentication checks.
+     */
+    private static final String[] AUTH_FIELDS = new String[]{"active", "permissions"};
+
+    /**
+     * Fields fetched for login attempts.
+     */
+    private static final String[] CREDENTIAL_FIELDS = new String[]{"passwordHash", "active", "permissions"};
+
+    /**
+     * {@link #AUTH_FIELDS} for the asynchronous client.
+     */
+    private static final Document AUTH_PROJECTION = new Document("active", 1).append("permissions", 1);
+
+    /**
+     * {@link #CREDENTIAL_FIELDS} for the asynchronous client.
+     */
+    private static final Document CREDENTIAL_PROJECTION = new Document("passwordHash", 1).append("active", 1)
+            .append("permissions", 1);
+
     /**
      * @param email id to search by.
-     * @return the user model if found false otherwise.
+     * @return the full user model if found null otherwise.
      */
+    @Override
     @Nullable
     public UserModel getUserModelByEmail(@NotNull final String email) {
-        return datastore.find(UserModel.class)
-                .filter(Filters.eq("email", email))
-                .iterator()
-                .tryNext();
+        if (!emailFilter.mightContain(email)) {
+            return null;
+        }
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(UserModel.class)
+                    .filter(Filters.eq("email", email))
+                    .iterator(new FindOptions().limit(1))
+                    .tryNext();
+        } finally {
+            GET_USER_MODEL_BY_EMAIL_TIMER.observeSince(start);
+        }
     }
 
     /**
+     * Looks up the fields needed to authorize a request. Only the email, active and permissions fields of the
+     * returned model are loaded.
+     *
      * @param email id to search by.
-     * @return the user invite if found null otherwise.
+     * @return the partial user model if found null otherwise.
      */
+    @Override
     @Nullable
-    public UserInviteModel getUserInviteModelByEmail(@NotNull final String email) {
-        return datastore.find(UserInviteModel.class)
-                .filter(Filters.eq("email", email))
-                .iterator()
-                .tryNext();
+    public UserModel getUserAuthModelByEmail(@NotNull final String email) {
+        final UserModel cachedUserModel = userCache.get(email);
+        if (cachedUserModel != null) {
+            return cachedUserModel;
+        }
+        if (!emailFilter.mightContain(email)) {
+            return null;
+        }
+        final long generation = userCache.generation(email);
+        final long start = System.nanoTime();
+        final UserModel userModel;
+        try {
+            userModel = datastore.find(UserModel.class)
+                    .filter(Filters.eq("email", email))
+                    .iterator(new FindOptions().limit(1).projection().include(AUTH_FIELDS))
+                    .tryNext();
+        } finally {
+            GET_USER_AUTH_MODEL_BY_EMAIL_TIMER.observeSince(start);
+        }
+        if (userModel != null) {
+            userCache.put(email, userModel, System.currentTimeMillis() + USER_CACHE_TTL, generation);
+        }
+        return userModel;
     }
 
     /**
-     * @param email    id for this user.
-     * @param password password for the user.
-     * @return true if the user was created false otherwise.
+     * Looks up the fields needed to check a login and issue its token. Only the email, passwordHash, active and
+     * permissions fields of the returned model are loaded.
+     *
+     * @param email id to search by.
+     * @return the partial user model if found null otherwise.
+     */
+    @Override
+    @Nullable
+    public UserModel getUserCredentialsByEmail(@NotNull final String email) {
+        if (!emailFilter.mightContain(email)) {
+            return null;
+        }
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(UserModel.class)
+                    .filter(Filters.eq("email", email))
+                    .iterator(new FindOptions().limit(1).projection().include(CREDENTIAL_FIELDS))
+                    .tryNext();
+        } finally {
+            GET_USER_CREDENTIALS_BY_EMAIL_TIMER.observeSince(start);
+        }
+    }
+
+    @Override
+    @Nonnull
+    public CompletableFuture<UserModel> getUserModelByEmailAsync(@Nonnull final String email) {
+        if (!emailFilter.mightContain(email)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return first(reactiveUsers.find(new Document("_id", email)).first(), GET_USER_MODEL_BY_EMAIL_ASYNC_TIMER)
+                .thenApply(MongoDbModule::toUserModel);
+    }
+
+    @Override
+    @Nonnull
+    public CompletableFuture<UserModel> getUserAuthModelByEmailAsync(@Nonnull final String email) {
+        final UserModel cachedUserModel = userCache.get(email);
+        if (cachedUserModel != null) {
+            return CompletableFuture.completedFuture(cachedUserModel);
+        }
+        if (!emailFilter.mightContain(email)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final long generation = userCache.generation(email);
+        return first(reactiveUsers.find(new Document("_id", email)).projection(AUTH_PROJECTION).first(),
+                GET_USER_AUTH_MODEL_BY_EMAIL_ASYNC_TIMER)
+                .thenApply(document->{
+                    final UserModel userModel = toUserModel(document);
+                    if (userModel != null) {
+                        userCache.put(email, userModel, System.currentTimeMillis() + USER_CACHE_TTL, generation);
+                    }
+                    return userModel;
+                });
+    }
+
+    @Override
+    @Nonnull
+    public CompletableFuture<UserModel> getUserCredentialsByEmailAsync(@Nonnull final String email) {
+        if (!emailFilter.mightContain(email)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return first(reactiveUsers.find(new Document("_id", email)).projection(CREDENTIAL_PROJECTION).first(),
+                GET_USER_CREDENTIALS_BY_EMAIL_ASYNC_TIMER)
+                .thenApply(MongoDbModule::toUserModel);
+    }
+
+    /**
+     * @param publisher publishes at most one result.
+     * @param timer     records how long the result took.
+     * @param <T>       the type of the result.
+     * @return a future completed with the result, or null if there was none.
+     */
+    private static <T> CompletableFuture<T> first(@Nonnull final Publisher<T> publisher, @Nonnull final Histogram timer) {
+        final long start = System.nanoTime();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, throwable)->timer.observeSince(start));
+        publisher.subscribe(new Subscriber<T>() {
+            @Override
+            public void onSubscribe(final Subscription subscription) {
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(final T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @param method the name of the timed store method.
+     * @return the latency histogram of the method.
+     */
+    private static Histogram timer(@Nonnull final String method) {
+        return MetricsModule.getInstance().histogram(
+                "localauth_mongo_operation_seconds",
+                "Mongo store latency by method.",
+                "method=\"" + method + "\""
+        );
+    }
+
+    /**
+     * Maps a raw users document, which may be missing projected out fields, to a user model.
+     *
+     * @param document the document to map.
+     * @return the user model or null if the document is null.
+     */
+    @Nullable
+    private static UserModel toUserModel(@Nullable final Document document) {
+        if (document == null) {
+            return null;
+        }
+        final List<Integer> permissions = document.getList("permissions", Integer.class);
+        final String passwordHash = document.getString("passwordHash");
+        final String nodeMetaData = document.getString("nodeMetaData");
+        return new UserModel(
+                document.getString("_id"),
+                passwordHash == null ? "" : passwordHash,
+                document.getBoolean("active", false),
+                document.getBoolean("pending", false),
+                permissions == null ? new ArrayList<>() : permissions,
+                nodeMetaData == null ? "" : nodeMetaData
+        );
+    }
+
+    /**
+     * @param email id of the user to remove from the user cache.
+     */
+    public void invalidateUserCache(@Nonnull final String email) {
+        userCache.invalidate(email);
+    }
+
+    /**
+     * Removes every entry from the local caches.
+     */
+    @Override
+    public void clearCaches() {
+        userCache.clear();
+        userVersions.changedAll();
+        usersVersion.incrementAndGet();
+        nodesVersion.incrementAndGet();
+    }
+
+    /**
+     * Evicts local cache entries for a document which was changed outside of this module, for example by another
+     * replica.
+     *
+     * @param collection the name of the collection the document belongs to.
+     * @param id         the id of the changed document.
+     */
+    public void onDocumentChanged(@Nonnull final String collection, @Nonnull final String id) {
+        if (collection.equals("users")) {
+            userCache.invalidate(id);
+            userVersions.changed(id);
+            emailFilter.add(id);
+            usersVersion.incrementAndGet();
+        } else if (collection.equals("nodes")) {
+            nodesVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param versionsTracked true while every write from other replicas is seen by {@link
+     *                        #onDocumentChanged(String, String)}.
+     */
+    public void setVersionsTracked(final boolean versionsTracked) {
+        this.versionsTracked = versionsTracked;
+        usersVersion.incrementAndGet();
+        nodesVersion.incrementAndGet();
+        // Changes may have been missed while the change stream was closed
+        userVersions.changedAll();
+        userVersions.setTracked(versionsTracked);
+        if (versionsTracked) {
+            emailFilterExecutor.execute(this::rebuildEmailFilter);
+        } else {
+            emailFilter.invalidate();
+        }
+    }
+
+    /**
+     * Rebuilds the known email filter from the users collection, which drops deleted users from it. Does nothing
+     * while the change stream is closed, as the filter could not be trusted.
      */
-    public boolean createNewUser(@NotNull final String email,
-                                 @NotNull final String password) {
-        return createNewUser(LocalAuth.getConfig(), email, password);
+    public void rebuildEmailFilter() {
+        if (!versionsTracked) {
+            return;
+        }
+        final MongoCollection<Document> users = datastore.getDatabase().getCollection("users");
+        try {
+            emailFilter.rebuild(users.estimatedDocumentCount(), consumer->{
+                for (final Document document : users.find().projection(new Document("_id", 1))) {
+                    consumer.accept(document.getString("_id"));
+                }
+            });
+        } catch (MongoException e) {
+            emailFilter.invalidate();
+            LOGGER.warn("Could not rebuild the known email filter", e);
+        }
+    }
+
+    /**
+     * @return the filter of known emails.
+     */
+    public KnownEmailFilter getEmailFilter() {
+        return emailFilter;
     }
 
     /**
-     * @param config   module to use for account creation.
-     * @param email    id for this user.
-     * @param password password for the user.
+     * Without a change stream writes from other replicas are not seen, so the versions are only known while it is
+     * open.
+     */
+    @Override
+    public long getUsersVersion() {
+        return versionsTracked ? usersVersion.get() : -1;
+    }
+
+    @Override
+    public long getNodesVersion() {
+        return versionsTracked ? nodesVersion.get() : -1;
+    }
+
+    /**
+     * Changes from other replicas are only seen while the change stream is open, until then no token is current.
+     */
+    @Override
+    public UserVersions getUserVersions() {
+        return userVersions;
+    }
+
+    /**
+     * @return the number of user lookups served from the user cache.
+     */
+    public long getUserCacheHits() {
+        return userCache.getHitCount();
+    }
+
+    /**
+     * @return the number of user lookups which went to the database.
+     */
+    public long getUserCacheMisses() {
+        return userCache.getMissCount();
+    }
+
+    /**
+     * @param email id to search by.
+     * @return the user invite if found null otherwise.
+     */
+    @Override
+    @Nullable
+    public UserInviteModel getUserInviteModelByEmail(@NotNull final String email) {
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(UserInviteModel.class)
+                    .filter(Filters.eq("email", email))
+                    .iterator()
+                    .tryNext();
+        } finally {
+            GET_USER_INVITE_MODEL_BY_EMAIL_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * @param config       module to use for account creation.
+     * @param email        id for this user.
+     * @param passwordHash the BCrypt hash of the password for the user.
      * @return true if the user was created false otherwise.
      */
+    @Override
     @SuppressWarnings ("ArraysAsListWithZeroOrOneArgument")
-    public boolean createNewUser(@Nonnull final Config config,
-                                 @NotNull final String email,
-                                 @NotNull final String password) {
-        final boolean isFirstUser = datastore.find(UserModel.class).count() == 0;
-        final UserInviteModel userInviteModel = getUserInviteModelByEmail(email);
-
-        final List<Integer> permList = isFirstUser ?
-                Arrays.asList(Permissions.IS_USER_SUPER_ADMIN.value) : userInviteModel == null ?
-                new ArrayList<>() : userInviteModel.permissions;
-        if (getUserModelByEmail(email) == null) {
-            if (config.getAccountCreationType() == Config.ACCOUNT_CREATION_INVITE && !isFirstUser) {
-                if (userInviteModel == null) {
+    public boolean createNewUserWithHash(@Nonnull final Config config,
+                                         @NotNull final String email,
+                                         @NotNull final String passwordHash) {
+        final long start = System.nanoTime();
+        try {
+            final boolean isFirstUser = !hasUsers();
+            // Claim the invite up front so two signups can not both use it
+            final UserInviteModel userInviteModel = datastore.find(UserInviteModel.class)
+                    .filter(Filters.eq("email", email))
+                    .findAndDelete();
+            if (config.getAccountCreationType() == Config.ACCOUNT_CREATION_INVITE && !isFirstUser && userInviteModel == null) {
+                return false;
+            }
+            final List<Integer> permList = isFirstUser ?
+                    Arrays.asList(Permissions.IS_USER_SUPER_ADMIN.value) : userInviteModel == null ?
+                    new ArrayList<>() : userInviteModel.permissions;
+            try {
+                // The unique id rejects existing users, so there is no separate lookup
+                datastore.insert(new UserModel(
+                        email,
+                        passwordHash,
+                        isFirstUser || (userInviteModel != null),
+                        true,
+                        permList
+                ));
+            } catch (RuntimeException e) {
+                // Give the claimed invite back whatever stopped the insert
+                if (userInviteModel != null) {
+                    datastore.save(userInviteModel);
+                }
+                if (e instanceof MongoWriteException &&
+                        ((MongoWriteException) e).getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
                     return false;
                 }
+                throw e;
+            } finally {
+                userCache.invalidate(email);
             }
-            datastore.save(new UserModel(
-                    email,
-                    BCrypt.hashpw(password, BCrypt.gensalt()),
-                    isFirstUser || (userInviteModel != null),
-                    true,
-                    permList
-            ));
-            if (userInviteModel != null) {
-                datastore.delete(userInviteModel);
-            }
-        } else {
-            return false;
+            emailFilter.add(email);
+            hasUsers = true;
+            return true;
+        } finally {
+            usersVersion.incrementAndGet();
+            CREATE_NEW_USER_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * Checks for at least one user, once a user has been seen the answer is kept until a user is deleted.
+     *
+     * @return true if there is at least one user false otherwise.
+     */
+    private boolean hasUsers() {
+        if (!hasUsers) {
+            // Read the raw collection, an unfiltered Morphia query only matches documents carrying its class name
+            hasUsers = datastore.getMapper().getCollection(UserModel.class).withDocumentClass(Document.class)
+                    .find()
+                    .projection(new Document("_id", 1))
+                    .limit(1)
+                    .first() != null;
         }
-        return true;
+        return hasUsers;
     }
 
     /**
@@ -162,23 +647,35 @@ public class MongoDbModule {
      * @param permissions permissions this user should be given when joining.
      * @return true if invites was created false otherwise.
      */
+    @Override
     public boolean createNewInvite(@NotNull final String email,
                                    @NotNull final List<Integer> permissions) {
-        if (email.isEmpty()) {
-            return false;
+        final long start = System.nanoTime();
+        try {
+            if (email.isEmpty()) {
+                return false;
+            }
+            datastore.save(new UserInviteModel(email, permissions));
+            return true;
+        } finally {
+            CREATE_NEW_INVITE_TIMER.observeSince(start);
         }
-        datastore.save(new UserInviteModel(email, permissions));
-        return true;
     }
 
     /**
      * @return all user invites in the system.
      */
+    @Override
     public List<UserInviteModel> getAllUserInviteModels() {
-        return datastore.find(UserInviteModel.class)
-                .filter(Filters.ne("email", ""))
-                .iterator()
-                .toList();
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(UserInviteModel.class)
+                    .filter(Filters.ne("email", ""))
+                    .iterator()
+                    .toList();
+        } finally {
+            GET_ALL_USER_INVITE_MODELS_TIMER.observeSince(start);
+        }
     }
 
     /**
@@ -186,83 +683,165 @@ public class MongoDbModule {
      * @param permissions new permissions to give the invite.
      * @return true if the invite was updated false otherwise.
      */
+    @Override
     public boolean updateInvite(@NotNull final String email, @Nullable final List<Integer> permissions) {
-        if (permissions == null) {
-            return false;
+        final long start = System.nanoTime();
+        try {
+            if (permissions == null) {
+                return false;
+            }
+            return datastore.find(UserInviteModel.class)
+                    .filter(Filters.eq("email", email))
+                    .update(UpdateOperators.set("permissions", permissions))
+                    .execute().getModifiedCount() == 1;
+        } finally {
+            UPDATE_INVITE_TIMER.observeSince(start);
         }
-        return datastore.find(UserInviteModel.class)
-                .filter(Filters.eq("email", email))
-                .update(UpdateOperators.set("permissions", permissions))
-                .execute().getModifiedCount() == 1;
     }
 
     /**
      * @param email id to delete.
      * @return true if one user invite was deleted false otherwise.
      */
+    @Override
     public boolean deleteInvite(@Nonnull final String email) {
-        return datastore.find(UserInviteModel.class)
-                .filter(Filters.eq("email", email))
-                .delete()
-                .getDeletedCount() == 1;
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(UserInviteModel.class)
+                    .filter(Filters.eq("email", email))
+                    .delete()
+                    .getDeletedCount() == 1;
+        } finally {
+            DELETE_INVITE_TIMER.observeSince(start);
+        }
     }
 
     /**
-     * @return all users in this app.
+     * @return all users in this app, without their password hash.
      */
+    @Override
     @Nonnull
     public List<UserModel> getAllUserModels() {
-        return datastore.find(UserModel.class)
-                .filter(Filters.ne("email", ""))
-                .iterator()
-                .toList();
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(UserModel.class)
+                    .filter(Filters.ne("email", ""))
+                    .iterator(new FindOptions().projection().exclude("passwordHash"))
+                    .toList();
+        } finally {
+            GET_ALL_USER_MODELS_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * @param after only return users with an email after this one, null to start at the first user.
+     * @param limit the maximum amount of users to return, 0 for no limit.
+     * @return a cursor over the users ordered by email without their password hash, which must be closed by the
+     * caller.
+     */
+    @Override
+    @Nonnull
+    public StoreCursor<UserModel> getUserModelCursor(@Nullable final String after, final int limit) {
+        final MorphiaCursor<UserModel> cursor = datastore.find(UserModel.class)
+                .filter(after == null ? Filters.ne("email", "") : Filters.gt("email", after))
+                .iterator(new FindOptions().sort(Sort.ascending("email")).limit(limit).projection().exclude("passwordHash"));
+        return StoreCursor.of(cursor, cursor::close);
     }
 
     private static final UpdateOperator[] EMPTY_OP = new UpdateOperator[0];
 
     /**
-     * @param email       id of the user to update
-     * @param password    new password for the user, (empty string) to not update.
-     * @param active      should the user be set to active.
-     * @param permissions new permissions for the user. (null) to not update.
+     * @param email        id of the user to update
+     * @param passwordHash the BCrypt hash of the new password for the user, (null) to not update.
+     * @param active       should the user be set to active.
+     * @param permissions  new permissions for the user. (null) to not update.
      * @return true if the user was updated false otherwise.
      */
-    public boolean updateUserModel(@Nonnull final String email,
-                                   @Nonnull final String password,
-                                   final boolean active,
-                                   @Nullable final List<Integer> permissions) {
-        // We want to use updates with aggregation pipeline but morphia does not have that yet. so the solution is to use multi updates until the feature is available.
-        // https://docs.mongodb.com/manual/tutorial/update-documents-with-aggregation-pipeline/
-        // https://github.com/MorphiaOrg/morphia/issues/1634
-        final UpdateResult result2 = datastore.find(UserModel.class)
-                .filter(Filters.eq("email", email), Filters.nin("permissions", Collections.singletonList(0)))
-                .update(
-                        UpdateOperators.set("active", active),
-                        permissions != null ? new UpdateOperator[]{UpdateOperators.set("permissions", permissions)} : new UpdateOperator[0]
-                )
-                .execute();
-        boolean apSuccess = result2.getMatchedCount() == result2.getModifiedCount();
+    @Override
+    public boolean updateUserModelWithHash(@Nonnull final String email,
+                                           @Nullable final String passwordHash,
+                                           final boolean active,
+                                           @Nullable final List<Integer> permissions) {
+        final long start = System.nanoTime();
+        try {
+            try {
+                return updateUserModelDocuments(email, passwordHash, active, permissions);
+            } finally {
+                userCache.invalidate(email);
+                userVersions.changed(email);
+            }
+        } finally {
+            usersVersion.incrementAndGet();
+            UPDATE_USER_MODEL_TIMER.observeSince(start);
+        }
+    }
 
-        if (!password.equals("")) {
+    /**
+     * @param email        id of the user to update
+     * @param passwordHash the BCrypt hash of the new password for the user, (null) to not update.
+     * @param active       should the user be set to active.
+     * @param permissions  new permissions for the user. (null) to not update.
+     * @return true if the user was updated false otherwise.
+     */
+    private boolean updateUserModelDocuments(@Nonnull final String email,
+                                             @Nullable final String passwordHash,
+                                             final boolean active,
+                                             @Nullable final List<Integer> permissions) {
+        if (passwordHash == null) {
+            // The super admin can only change its password so it is filtered out
             final UpdateResult result = datastore.find(UserModel.class)
-                    .filter(Filters.eq("email", email))
-                    .update(UpdateOperators.set("passwordHash", BCrypt.hashpw(password, BCrypt.gensalt())))
+                    .filter(Filters.eq("email", email), Filters.nin("permissions", Collections.singletonList(0)))
+                    .update(
+                            UpdateOperators.set("active", active),
+                            permissions != null ? new UpdateOperator[]{UpdateOperators.set("permissions", permissions)} : EMPTY_OP
+                    )
                     .execute();
-            boolean pSuccess = result.getMatchedCount() == result.getModifiedCount();
-            return pSuccess && (result2.getMatchedCount() == 1 || apSuccess);
+            return result.getMatchedCount() == 1 && result.getModifiedCount() == 1;
         }
-
-        return result2.getMatchedCount() != 0 && apSuccess;
+        // Morphia has no bulk updates so the raw collection is used. Both updates go in one ordered bulk write, a single
+        // round trip, and at most one of the filters matches: the full update for other users or only the password
+        // for the super admin. A pipeline update could do the same but needs MongoDB 4.2.
+        final Document set = new Document("passwordHash", passwordHash).append("active", active);
+        if (permissions != null) {
+            set.append("permissions", permissions);
+        }
+        final int superAdmin = Permissions.IS_USER_SUPER_ADMIN.value;
+        final BulkWriteResult result = datastore.getMapper().getCollection(UserModel.class).bulkWrite(Arrays.asList(
+                new UpdateOneModel<>(
+                        new Document("_id", email).append("permissions", new Document("$ne", superAdmin)),
+                        new Document("$set", set)
+                ),
+                new UpdateOneModel<>(
+                        new Document("_id", email).append("permissions", superAdmin),
+                        new Document("$set", new Document("passwordHash", passwordHash))
+                )
+        ));
+        return result.getMatchedCount() == 1 && result.getModifiedCount() == 1;
     }
 
     /**
      * @param email id of the user to delete.
      * @return true if the user was deleted false otherwise.
      */
+    @Override
     public boolean deleteUser(@NotNull String email) {
-        return datastore.find(UserModel.class)
-                .filter(Filters.eq("email", email))
-                .delete().getDeletedCount() == 1;
+        final long start = System.nanoTime();
+        try {
+            deleteRefreshTokensByEmail(email);
+            final boolean deleted = datastore.find(UserModel.class)
+                    .filter(Filters.eq("email", email))
+                    .delete().getDeletedCount() == 1;
+            userCache.invalidate(email);
+            userVersions.changed(email);
+            if (deleted) {
+                // Check again on the next signup in case this was the last user
+                hasUsers = false;
+            }
+            return deleted;
+        } finally {
+            usersVersion.incrementAndGet();
+            DELETE_USER_TIMER.observeSince(start);
+        }
     }
 
     /**
@@ -270,13 +849,20 @@ public class MongoDbModule {
      * @param defaultText default text for the node.
      * @return true if the node was created false otherwise.
      */
+    @Override
     public boolean createNewNode(@NotNull final String id,
                                  @NotNull final String defaultText) {
-        if (id.isEmpty() || defaultText.isEmpty()) {
-            return false;
+        final long start = System.nanoTime();
+        try {
+            if (id.isEmpty() || defaultText.isEmpty()) {
+                return false;
+            }
+            datastore.save(new NodeModel(id, defaultText));
+            return true;
+        } finally {
+            nodesVersion.incrementAndGet();
+            CREATE_NEW_NODE_TIMER.observeSince(start);
         }
-        datastore.save(new NodeModel(id, defaultText));
-        return true;
     }
 
     /**
@@ -284,34 +870,160 @@ public class MongoDbModule {
      * @param defaultText the new text to set.
      * @return true if the node was updated false otherwise.
      */
+    @Override
     public boolean updateNode(@NotNull final String id,
                               @NotNull final String defaultText) {
-        return datastore.find(NodeModel.class)
-                .filter(Filters.eq("id", id))
-                .update(UpdateOperators.set("defaultText", defaultText))
-                .execute()
-                .getModifiedCount() == 1;
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(NodeModel.class)
+                    .filter(Filters.eq("id", id))
+                    .update(UpdateOperators.set("defaultText", defaultText))
+                    .execute()
+                    .getModifiedCount() == 1;
+        } finally {
+            nodesVersion.incrementAndGet();
+            UPDATE_NODE_TIMER.observeSince(start);
+        }
     }
 
     /**
      * @param id the id to delete.
      * @return ture if the node was deleted false otherwise.
      */
+    @Override
     public boolean deleteNode(@Nonnull final String id) {
-        return datastore.find(NodeModel.class)
-                .filter(Filters.eq("id", id))
-                .delete()
-                .getDeletedCount() == 1;
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(NodeModel.class)
+                    .filter(Filters.eq("id", id))
+                    .delete()
+                    .getDeletedCount() == 1;
+        } finally {
+            nodesVersion.incrementAndGet();
+            DELETE_NODE_TIMER.observeSince(start);
+        }
     }
 
     /**
      * @return all nodes in the database.
      */
+    @Override
     public List<NodeModel> getAllNodeModels() {
-        return datastore.find(NodeModel.class)
-                .filter(Filters.ne("id", ""))
-                .iterator()
-                .toList();
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(NodeModel.class)
+                    .filter(Filters.ne("id", ""))
+                    .iterator()
+                    .toList();
+        } finally {
+            GET_ALL_NODE_MODELS_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * Expired revocations are removed by the TTL index on {@link RevocationModel#expiresAt}.
+     *
+     * @param revocation the revocation to add or replace.
+     */
+    @Override
+    public void saveRevocation(@Nonnull final RevocationModel revocation) {
+        final long start = System.nanoTime();
+        try {
+            datastore.save(revocation);
+        } finally {
+            SAVE_REVOCATION_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * @param now the current time in epoch milliseconds.
+     * @return every revocation which has not expired yet.
+     */
+    @Override
+    public List<RevocationModel> getRevocations(final long now) {
+        final long start = System.nanoTime();
+        try {
+            return datastore.find(RevocationModel.class)
+                    .filter(Filters.gt("expiresAt", new Date(now)))
+                    .iterator()
+                    .toList();
+        } finally {
+            GET_REVOCATIONS_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * Expired refresh tokens are removed by the TTL index on {@link RefreshTokenModel#expiresAt}.
+     *
+     * @param refreshToken the refresh token to add.
+     */
+    @Override
+    public void saveRefreshToken(@Nonnull final RefreshTokenModel refreshToken) {
+        final long start = System.nanoTime();
+        try {
+            datastore.save(refreshToken);
+        } finally {
+            SAVE_REFRESH_TOKEN_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * Marks a refresh token as used if it was not already. Only one caller can ever see an unused token.
+     *
+     * @param id  the id of the refresh token.
+     * @param now the current time in epoch milliseconds.
+     * @return the refresh token as it was before this call, or null if it does not exist or has expired.
+     */
+    @Override
+    @Nullable
+    public RefreshTokenModel useRefreshToken(@Nonnull final String id, final long now) {
+        final long start = System.nanoTime();
+        try {
+            final RefreshTokenModel unused = datastore.find(RefreshTokenModel.class)
+                    .filter(Filters.eq("id", id), Filters.eq("usedAt", 0L), Filters.gt("expiresAt", new Date(now)))
+                    .modify(UpdateOperators.set("usedAt", now))
+                    .execute(new ModifyOptions().returnDocument(ReturnDocument.BEFORE));
+            if (unused != null) {
+                return unused;
+            }
+            // Either unknown or already used, which the caller treats as a replayed token
+            return datastore.find(RefreshTokenModel.class)
+                    .filter(Filters.eq("id", id), Filters.gt("expiresAt", new Date(now)))
+                    .iterator(new FindOptions().limit(1))
+                    .tryNext();
+        } finally {
+            USE_REFRESH_TOKEN_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * @param family the family of refresh tokens to remove.
+     */
+    @Override
+    public void deleteRefreshTokenFamily(@Nonnull final String family) {
+        final long start = System.nanoTime();
+        try {
+            datastore.find(RefreshTokenModel.class)
+                    .filter(Filters.eq("family", family))
+                    .delete(new DeleteOptions().multi(true));
+        } finally {
+            DELETE_REFRESH_TOKEN_FAMILY_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * @param email the email the refresh tokens were issued to.
+     */
+    @Override
+    public void deleteRefreshTokensByEmail(@Nonnull final String email) {
+        final long start = System.nanoTime();
+        try {
+            datastore.find(RefreshTokenModel.class)
+                    .filter(Filters.eq("email", email))
+                    .delete(new DeleteOptions().multi(true));
+        } finally {
+            DELETE_REFRESH_TOKENS_BY_EMAIL_TIMER.observeSince(start);
+        }
     }
 
     /**
@@ -319,19 +1031,38 @@ public class MongoDbModule {
      * @param nodeMetaData new data to set.
      * @return true if data was updated false otherwise.
      */
+    @Override
     public boolean updateUserNodeMetadata(@Nonnull final String email,
                                           @Nonnull final String nodeMetaData) {
-        return datastore.find(UserModel.class)
-                .filter(Filters.eq("email", email))
-                .update(UpdateOperators.set("nodeMetaData", nodeMetaData))
-                .execute()
-                .getModifiedCount() == 1;
+        final long start = System.nanoTime();
+        try {
+            final boolean updated = datastore.find(UserModel.class)
+                    .filter(Filters.eq("email", email))
+                    .update(UpdateOperators.set("nodeMetaData", nodeMetaData))
+                    .execute()
+                    .getModifiedCount() == 1;
+            userCache.invalidate(email);
+            return updated;
+        } finally {
+            usersVersion.incrementAndGet();
+            UPDATE_USER_NODE_METADATA_TIMER.observeSince(start);
+        }
+    }
+
+    /**
+     * @return the database this module uses.
+     */
+    public MongoDatabase getDatabase() {
+        return datastore.getDatabase();
     }
 
     /**
      * Closes the mongodb connection.
      */
+    @Override
     public void close() {
+        emailFilterExecutor.shutdownNow();
+        reactiveClient.close();
         mongoClient.close();
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.NodeModel;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Persistence for nodes.
+ */
+public interface NodeStore {
+
+    /**
+     * @param id          id fo the new node.
+     * @param defaultText default text for the node.
+     * @return true if the node was created false otherwise.
+     */
+    boolean createNewNode(@Nonnull final String id, @Nonnull final String defaultText);
+
+    /**
+     * @param id          of the node to update.
+     * @param defaultText the new text to set.
+     * @return true if the node was updated false otherwise.
+     */
+    boolean updateNode(@Nonnull final String id, @Nonnull final String defaultText);
+
+    /**
+     * @param id the id to delete.
+     * @return ture if the node was deleted false otherwise.
+     */
+    boolean deleteNode(@Nonnull final String id);
+
+    /**
+     * @return all nodes in the database.
+     */
+    List<NodeModel> getAllNodeModels();
+
+    /**
+     * @return a number which changes whenever a node changes, or -1 if this store can not tell, for example when other
+     * processes write to the same database unseen.
+     */
+    default long getNodesVersion() {
+        return -1;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A module which runs password hashing and verification on a bounded worker pool, so slow BCrypt work can not take
+ * over the request threads.
+ *
+ * @author Tyler Bucher
+ */
+public class PasswordModule {
+
+    /**
+     * Time spent hashing passwords.
+     */
+    private static final Histogram hashTimer = timer("hash");
+
+    /**
+     * Time spent checking passwords.
+     */
+    private static final Histogram checkTimer = timer("check");
+
+    /**
+     * The worker pool password work is run on.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The executor work which follows a password task is continued on, so it does not hold a password worker.
+     */
+    private volatile Executor callbackExecutor = ForkJoinPool.commonPool();
+
+    public PasswordModule() {
+        this(LocalAuth.getConfig().getPasswordThreads(), LocalAuth.getConfig().getPasswordQueueSize());
+    }
+
+    /**
+     * @param threads   the number of worker threads.
+     * @param queueSize the number of tasks which may wait for a worker before new tasks are rejected.
+     */
+    public PasswordModule(final int threads, final int queueSize) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable->{
+                    final Thread thread = new Thread(runnable, "password-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Runs a task on the password worker pool. Tasks should only hash or check a password, lookups and writes belong
+     * before the task or in the stages which follow it.
+     *
+     * @param task the task to run.
+     * @param <T>  the result type of the task.
+     * @return a future which completes with the result of the task on the callback executor.
+     *
+     * @throws RejectedExecutionException if the worker queue is full.
+     */
+    public <T> CompletableFuture<T> submit(@Nonnull final Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor).thenApplyAsync(Function.identity(), callbackExecutor);
+    }
+
+    /**
+     * @param callbackExecutor the executor work which follows a password task is continued on, usually the request
+     *                         thread pool.
+     */
+    public void setCallbackExecutor(@Nonnull final Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * @param password the password to hash.
+     * @return the BCrypt hash of the password.
+     */
+    public static String hashPassword(@Nonnull final String password) {
+        final long start = System.nanoTime();
+        try {
+            return BCrypt.hashpw(password, BCrypt.gensalt());
+        } finally {
+            hashTimer.observeSince(start);
+        }
+    }
+
+    /**
+     * @param password     the plain text password.
+     * @param passwordHash the BCrypt hash to check against.
+     * @return true if the password matches the hash false otherwise.
+     */
+    public static boolean checkPassword(@Nonnull final String password, @Nonnull final String passwordHash) {
+        final long start = System.nanoTime();
+        try {
+            return BCrypt.checkpw(password, passwordHash);
+        } finally {
+            checkTimer.observeSince(start);
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of password hashes and checks performed.
+     */
+    public static long getHashCount() {
+        return hashTimer.getCount() + checkTimer.getCount();
+    }
+
+    /**
+     * @return the total time in nanoseconds spent hashing and checking passwords.
+     */
+    public static long getHashNanos() {
+        return hashTimer.getSumNanos() + checkTimer.getSumNanos();
+    }
+
+    /**
+     * @param operation the timed BCrypt operation.
+     * @return the latency histogram of the operation.
+     */
+    private static Histogram timer(@Nonnull final String operation) {
+        return MetricsModule.getInstance().histogram(
+                "localauth_bcrypt_seconds",
+                "BCrypt latency by operation.",
+                "operation=\"" + operation + "\""
+        );
+    }
+
+    /**
+     * Stops the worker pool.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -23,7 +23,10 @@
  */
 package net.reallifegames.localauth;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -55,10 +58,17 @@ public class Permissions {
          */
         public final int value;
 
+        /**
+         * The bit for this permission in a permission mask.
+         */
+        @JsonIgnore
+        public final long mask;
+
         private Permission(@Nonnull final String name, @Nonnull final String description, final int value) {
             this.name = name;
             this.description = description;
             this.value = value;
+            this.mask = 1L << value;
         }
     }
 
@@ -94,18 +104,82 @@ public class Permissions {
     public static final List<Integer> ALL_PERMISSION_VALUES = ALL_PERMISSIONS.stream().map(permission->permission.value).collect(Collectors.toList());
 
     /**
-     * List of admin permissions.
+     * Permission mask which requires no permissions.
      */
-    public static final List<Integer> ADMIN_PERMISSIONS = Arrays.asList(
-            IS_USER_ADMIN.value,
-            IS_USER_SUPER_ADMIN.value
-    );
+    public static final long NO_PERMISSIONS = 0L;
+
+    /**
+     * Permission mask of all assignable permissions.
+     */
+    public static final long ALL_PERMISSIONS_MASK = mask(ALL_PERMISSION_VALUES);
+
+    /**
+     * Permission mask of the admin permissions.
+     */
+    public static final long ADMIN_PERMISSIONS = mask(IS_USER_ADMIN, IS_USER_SUPER_ADMIN);
+
+    /**
+     * @param permissions the permissions to combine.
+     * @return a permission mask with the bit of each permission set.
+     */
+    public static long mask(@Nonnull final Permission... permissions) {
+        long mask = NO_PERMISSIONS;
+        for (final Permission permission : permissions) {
+            mask |= permission.mask;
+        }
+        return mask;
+    }
+
+    /**
+     * @param values the permission values to combine, values outside of a mask are ignored.
+     * @return a permission mask with the bit of each value set.
+     */
+    public static long mask(@Nonnull final List<Integer> values) {
+        long mask = NO_PERMISSIONS;
+        for (int i = 0; i < values.size(); i++) {
+            final Integer value = values.get(i);
+            if (value != null && value >= 0 && value < Long.SIZE) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param mask the permission mask to expand.
+     * @return the value of each permission set in the mask.
+     */
+    public static List<Integer> values(final long mask) {
+        final List<Integer> values = new ArrayList<>(Long.bitCount(mask));
+        long remaining = mask;
+        while (remaining != 0) {
+            values.add(Long.numberOfTrailingZeros(remaining));
+            remaining &= remaining - 1;
+        }
+        return values;
+    }
+
+    /**
+     * @param mask  the permission mask to check.
+     * @param value the permission value to look for.
+     * @return true if the value is set in the mask false otherwise.
+     */
+    public static boolean hasValue(final long mask, final int value) {
+        return value >= 0 && value < Long.SIZE && (mask & (1L << value)) != 0;
+    }
 
     /**
      * @param permissions trims a list of permissions to a valid list.
      * @return only the valid permissions for the list.
      */
     public static List<Integer> getValidPermissions(@Nonnull final List<Integer> permissions) {
-        return permissions.stream().filter(ALL_PERMISSION_VALUES::contains).collect(Collectors.toList());
+        final List<Integer> validPermissions = new ArrayList<>(permissions.size());
+        for (int i = 0; i < permissions.size(); i++) {
+            final Integer permission = permissions.get(i);
+            if (permission != null && hasValue(ALL_PERMISSIONS_MASK, permission)) {
+                validPermissions.add(permission);
+            }
+        }
+        return validPermissions;
     }
 }
@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keyed token buckets. Each bucket is a single {@link AtomicLong} holding the time it will be full again (the generic
+ * cell rate algorithm), so taking a permit is one compare and set. Buckets are spread over stripes which each hold a
+ * bounded number of keys, a full stripe drops its refilled buckets and then its least used one before it takes a new key.
+ */
+public class RateLimiter {
+
+    /**
+     * The number of stripes, a power of two.
+     */
+    private static final int STRIPES = 16;
+
+    /**
+     * Time in nanoseconds it takes to refill one permit, 0 when unlimited.
+     */
+    private final long refillNanos;
+
+    /**
+     * Time in nanoseconds it takes to refill an empty bucket.
+     */
+    private final long capacityNanos;
+
+    /**
+     * The most keys a single stripe may track.
+     */
+    private final int maxStripeKeys;
+
+    /**
+     * Buckets keyed by their key, split by key hash.
+     */
+    @SuppressWarnings ({"unchecked", "rawtypes"})
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+
+    /**
+     * Number of refused permits.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param permitsPerMinute the sustained number of permits per key, 0 or less for no limit.
+     * @param burst            the number of permits a key may take at once.
+     * @param maxKeys          the most keys to track, once reached new keys evict the bucket closest to full.
+     */
+    public RateLimiter(final int permitsPerMinute, final int burst, final int maxKeys) {
+        refillNanos = permitsPerMinute > 0 ? 60_000_000_000L / permitsPerMinute : 0;
+        capacityNanos = refillNanos * Math.max(burst, 1);
+        maxStripeKeys = Math.max(maxKeys / STRIPES, 1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * @param key the key to take a permit for.
+     * @return true if a permit was taken false if the key is out of permits.
+     */
+    public boolean tryAcquire(@Nonnull final String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    /**
+     * @param key the key to take a permit for.
+     * @param now the current {@link System#nanoTime()}.
+     * @return true if a permit was taken false if the key is out of permits.
+     */
+    boolean tryAcquire(@Nonnull final String key, final long now) {
+        if (refillNanos == 0) {
+            return true;
+        }
+        final ConcurrentHashMap<String, AtomicLong> stripe = stripe(key);
+        AtomicLong bucket = stripe.get(key);
+        if (bucket == null) {
+            if (stripe.size() >= maxStripeKeys) {
+                sweep(stripe, now);
+                if (stripe.size() >= maxStripeKeys) {
+                    // Refusing unknown keys would lock every new client out under a flood of keys
+                    evictClosestToFull(stripe, now);
+                }
+            }
+            bucket = stripe.computeIfAbsent(key, k->new AtomicLong(now));
+        }
+        while (true) {
+            final long fullAt = bucket.get();
+            final long nextFullAt = Math.max(fullAt - now, 0) + now + refillNanos;
+            if (nextFullAt - now > capacityNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (bucket.compareAndSet(fullAt, nextFullAt)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops every bucket which has refilled, as it behaves the same as a missing one.
+     */
+    public void sweep() {
+        final long now = System.nanoTime();
+        for (final ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            sweep(stripe, now);
+        }
+    }
+
+    /**
+     * @return the number of keys being tracked.
+     */
+    public int size() {
+        int size = 0;
+        for (final ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of refused permits.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * A permit taken while its bucket is being dropped is forgotten, which at worst grants that key one extra permit.
+     *
+     * @param stripe the stripe to sweep.
+     * @param now    the current {@link System#nanoTime()}.
+     */
+    private static void sweep(@Nonnull final ConcurrentHashMap<String, AtomicLong> stripe, final long now) {
+        stripe.values().removeIf(bucket->bucket.get() - now <= 0);
+    }
+
+    /**
+     * Drops the bucket which will be full soonest, the key which has taken the fewest recent permits. At worst that key
+     * gets a full bucket again.
+     *
+     * @param stripe the stripe to evict a bucket from.
+     * @param now    the current {@link System#nanoTime()}.
+     */
+    private static void evictClosestToFull(@Nonnull final ConcurrentHashMap<String, AtomicLong> stripe, final long now) {
+        String closestKey = null;
+        long closestRemaining = Long.MAX_VALUE;
+        for (final Map.Entry<String, AtomicLong> entry : stripe.entrySet()) {
+            final long remaining = entry.getValue().get() - now;
+            if (remaining < closestRemaining) {
+                closestRemaining = remaining;
+                closestKey = entry.getKey();
+            }
+        }
+        if (closestKey != null) {
+            stripe.remove(closestKey);
+        }
+    }
+
+    /**
+     * @param key the key to find the stripe of.
+     * @return the stripe which holds the key.
+     */
+    private ConcurrentHashMap<String, AtomicLong> stripe(@Nonnull final String key) {
+        final int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.RefreshTokenModel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Persistence for refresh tokens.
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * @param refreshToken the refresh token to add.
+     */
+    void saveRefreshToken(@Nonnull final RefreshTokenModel refreshToken);
+
+    /**
+     * Marks a refresh token as used if it was not already. Only one caller can ever see an unused token.
+     *
+     * @param id  the id of the refresh token.
+     * @param now the current time in epoch milliseconds.
+     * @return the refresh token as it was before this call, or null if it does not exist or has expired.
+     */
+    @Nullable
+    RefreshTokenModel useRefreshToken(@Nonnull final String id, final long now);
+
+    /**
+     * @param family the family of refresh tokens to remove.
+     */
+    void deleteRefreshTokenFamily(@Nonnull final String family);
+
+    /**
+     * Removes every login of a user, so a deleted user's refresh tokens can not be used by a new user with the email.
+     *
+     * @param email the email the refresh tokens were issued to.
+     */
+    void deleteRefreshTokensByEmail(@Nonnull final String email);
+}
@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.RevocationModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps every revoked token and user in memory so checking a token never reaches the database. Revocations are
+ * written through to a {@link RevocationStore} and reloaded from it periodically to pick up those made by other
+ * replicas. Entries are forgotten once the tokens they revoke would have expired anyway.
+ *
+ * @author Tyler Bucher
+ */
+public class RevocationModule {
+
+    /**
+     * The static logger for this module.
+     */
+    public static final Logger LOGGER = LoggerFactory.getLogger(RevocationModule.class);
+
+    /**
+     * Revoked token ids mapped to the time in epoch milliseconds the token expires at.
+     */
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * Revoked user emails mapped to the time in epoch milliseconds their tokens must be issued after.
+     */
+    private final ConcurrentHashMap<String, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    /**
+     * Where revocations are shared with other replicas.
+     */
+    private final RevocationStore revocationStore;
+
+    /**
+     * The longest time in milliseconds a token is valid for.
+     */
+    private final long maxTokenAge;
+
+    /**
+     * Reloads the revocations in the background, null when periodic reloads are disabled.
+     */
+    private final ScheduledExecutorService refreshExecutor;
+
+    public RevocationModule() {
+        this(LocalAuth.getDbModule(), LocalAuth.getConfig().getJwtExpireTime(),
+                LocalAuth.getConfig().getRevocationRefreshInterval());
+    }
+
+    /**
+     * @param revocationStore where revocations are shared with other replicas.
+     * @param maxTokenAge     the longest time in milliseconds a token is valid for.
+     * @param refreshInterval seconds between reloads of the revocations, 0 to only load them once.
+     */
+    public RevocationModule(@Nonnull final RevocationStore revocationStore, final long maxTokenAge, final int refreshInterval) {
+        this.revocationStore = revocationStore;
+        this.maxTokenAge = maxTokenAge;
+        refresh();
+        if (refreshInterval > 0) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable->{
+                final Thread thread = new Thread(runnable, "revocation-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refreshExecutor.scheduleWithFixedDelay(this::refreshQuietly, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+        } else {
+            refreshExecutor = null;
+        }
+    }
+
+    /**
+     * @param tokenId  the id of the token, null if it has none.
+     * @param email    the email the token was issued to.
+     * @param issuedAt the time in epoch milliseconds the token was issued at, 0 if unknown.
+     * @return true if the token or every token of its user issued at that time was revoked.
+     */
+    public boolean isRevoked(@Nullable final String tokenId, @Nullable final String email, final long issuedAt) {
+        if (tokenId != null && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        if (email == null) {
+            return false;
+        }
+        final Long revokedBefore = revokedUsers.get(email);
+        // Tokens without a millisecond issue time only have second precision, one issued in the same second is revoked too
+        return revokedBefore != null && issuedAt < revokedBefore;
+    }
+
+    /**
+     * Revokes a single token, for example on logout.
+     *
+     * @param tokenId   the id of the token.
+     * @param expiresAt the time in epoch milliseconds the token expires at.
+     */
+    public void revokeToken(@Nonnull final String tokenId, final long expiresAt) {
+        revokedTokens.merge(tokenId, expiresAt, Math::max);
+        save(RevocationModel.forToken(tokenId, expiresAt));
+    }
+
+    /**
+     * Revokes every token issued to a user until now, for example when the user is deleted or deactivated.
+     *
+     * @param email the email of the user.
+     */
+    public void revokeUser(@Nonnull final String email) {
+        final long now = System.currentTimeMillis();
+        revokedUsers.merge(email, now, Math::max);
+        save(RevocationModel.forUser(email, now, maxTokenAge));
+    }
+
+    /**
+     * Loads the revocations made by every replica and forgets expired ones.
+     */
+    public void refresh() {
+        final long now = System.currentTimeMillis();
+        for (final RevocationModel revocation : revocationStore.getRevocations(now)) {
+            if (revocation.isToken()) {
+                revokedTokens.merge(revocation.getSubject(), revocation.expiresAt.getTime(), Math::max);
+            } else {
+                revokedUsers.merge(revocation.getSubject(), revocation.revokedBefore, Math::max);
+            }
+        }
+        purge(now);
+    }
+
+    /**
+     * Forgets revocations of tokens which have expired.
+     *
+     * @param now the current time in epoch milliseconds.
+     */
+    void purge(final long now) {
+        revokedTokens.values().removeIf(expiresAt->expiresAt <= now);
+        revokedUsers.values().removeIf(revokedBefore->revokedBefore + maxTokenAge <= now);
+    }
+
+    /**
+     * @return the number of revoked tokens and users held in memory.
+     */
+    public int size() {
+        return revokedTokens.size() + revokedUsers.size();
+    }
+
+    /**
+     * Stops the background reloads.
+     */
+    public void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes a revocation through to the store. The revocation already applies to this replica if the write fails.
+     *
+     * @param revocation the revocation to write.
+     */
+    private void save(@Nonnull final RevocationModel revocation) {
+        try {
+            revocationStore.saveRevocation(revocation);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not share revocation " + revocation.id, e);
+        }
+    }
+
+    /**
+     * Reloads the revocations, keeping the current ones if the store can not be reached.
+     */
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not reload revocations", e);
+        }
+    }
+}
@@ -25,15 +25,26 @@ package net.reallifegames.localauth;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
+import net.reallifegames.localauth.models.UserModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
 
 /**
  * A module to handle all security and authentication related functions.
@@ -66,22 +77,284 @@ public final class SecurityModule {
     }
 
     /**
-     * Checks if a {@link Jws} token is valid.
+     * The maximum amount of verified tokens to remember.
+     */
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10000;
+
+    /**
+     * The longest time in milliseconds a verified token is remembered, used for tokens without an expire time.
+     */
+    private static final long VERIFIED_TOKEN_MAX_AGE = 300000L;
+
+    /**
+     * Claim holding the permission mask of the user an access token was issued to.
+     */
+    public static final String PERMISSIONS_CLAIM = "perm";
+
+    /**
+     * Claim holding the issue time in epoch milliseconds, as {@code iat} only has second precision.
+     */
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iatms";
+
+    /**
+     * Random bytes in a refresh token.
+     */
+    private static final int REFRESH_TOKEN_BYTES = 32;
+
+    /**
+     * Per thread digest used to key the verified token cache.
+     */
+    private static final ThreadLocal<MessageDigest> TOKEN_DIGEST = ThreadLocal.withInitial(()->{
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * The claims of a {@link Jws} token which passed signature verification.
+     */
+    public static final class VerifiedToken {
+
+        /**
+         * The id claim of the token, null for tokens issued without one.
+         */
+        public final String id;
+
+        /**
+         * The email claim of the token.
+         */
+        public final String email;
+
+        /**
+         * The time in epoch milliseconds this token was issued at, or 0 if unknown.
+         */
+        public final long issuedAt;
+
+        /**
+         * The time in epoch milliseconds this token expires at, or {@link Long#MAX_VALUE} if it never does.
+         */
+        public final long expiresAt;
+
+        /**
+         * The active user described by the email and permission claims, null for tokens issued without permissions.
+         */
+        public final UserModel userModel;
+
+        public VerifiedToken(@Nullable final String id,
+                             @Nullable final String email,
+                             final long issuedAt,
+                             final long expiresAt) {
+            this(id, email, issuedAt, expiresAt, null);
+        }
+
+        public VerifiedToken(@Nullable final String id,
+                             @Nullable final String email,
+                             final long issuedAt,
+                             final long expiresAt,
+                             @Nullable final UserModel userModel) {
+            this.id = id;
+            this.email = email;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+            this.userModel = userModel;
+        }
+    }
+
+    /**
+     * Tokens which have already passed verification keyed by their SHA-256 digest.
+     */
+    private final ExpiringCache<ByteBuffer, VerifiedToken> verifiedTokenCache = new ExpiringCache<>(VERIFIED_TOKEN_CACHE_SIZE);
+
+    /**
+     * Time spent verifying tokens which were not in the verified token cache.
+     */
+    private static final Histogram VERIFY_TIMER = MetricsModule.getInstance().histogram(
+            "localauth_jwt_verify_seconds",
+            "Signature verification latency of tokens missing from the verified token cache.",
+            ""
+    );
+
+    /**
+     * The signing key the cached tokens were verified with.
+     */
+    private volatile Key verifiedTokenKey;
+
+    /**
+     * The JSON web key of the last public signing key used.
+     */
+    private volatile JsonWebKey jsonWebKey;
+
+    /**
+     * Source of refresh tokens.
+     */
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Revoked tokens, null if tokens are never revoked.
+     */
+    private volatile RevocationModule revocationModule;
+
+    /**
+     * The time each user last changed, null if the claims of access tokens are always trusted.
+     */
+    private volatile UserVersions userVersions;
+
+    /**
+     * Verifies a {@link Jws} token, or returns the result of a previous verification of the same token.
      *
+     * @param config     the configuration holding the signing key.
      * @param authCookie the authentication token to verify.
-     * @return true if the token is valid false otherwise.
+     * @return the verified token claims or null if the token is not valid.
      */
-    public boolean isJWSTokenValid(@Nonnull final Config config, @Nullable final String authCookie) {
+    @Nullable
+    public VerifiedToken verifyJWSToken(@Nonnull final Config config, @Nullable final String authCookie) {
         if (authCookie == null || authCookie.length() == 0) {
-            return false;
+            return null;
+        }
+        final KeyPair keyPair = config.getSigningKeyPair();
+        final Key key = keyPair == null ? config.getSecretKey() : keyPair.getPublic();
+        if (key != verifiedTokenKey) {
+            checkVerifiedTokenKey(key);
+        }
+        final long now = System.currentTimeMillis();
+        final ByteBuffer digest = digestToken(authCookie);
+        if (digest == null) {
+            return null;
+        }
+        final VerifiedToken cached = verifiedTokenCache.get(digest, now);
+        if (cached != null) {
+            return isRevoked(cached) ? null : cached;
         }
+        final Claims claims;
+        final long start = System.nanoTime();
         try {
-            Jwts.parser().setSigningKey(config.getSecretKey()).parseClaimsJws(authCookie);
+            claims = Jwts.parser().setSigningKey(key).parseClaimsJws(authCookie).getBody();
         } catch (JwtException e) {
             LOGGER.debug("JWS Token Parse Error", e);
-            return false;
+            return null;
+        } finally {
+            VERIFY_TIMER.observeSince(start);
+        }
+        final String email = claims.get("email", String.class);
+        final Long permissions = claims.get(PERMISSIONS_CLAIM, Long.class);
+        final Long issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM, Long.class);
+        final Date issuedAt = claims.getIssuedAt();
+        final Date expiration = claims.getExpiration();
+        final VerifiedToken verifiedToken = new VerifiedToken(
+                claims.getId(),
+                email,
+                issuedAtMillis != null ? issuedAtMillis : issuedAt == null ? 0 : issuedAt.getTime(),
+                expiration == null ? Long.MAX_VALUE : expiration.getTime(),
+                email == null || permissions == null ? null :
+                        new UserModel(email, "", true, false, Permissions.values(permissions))
+        );
+        verifiedTokenCache.put(digest, verifiedToken, Math.min(verifiedToken.expiresAt, now + VERIFIED_TOKEN_MAX_AGE));
+        return isRevoked(verifiedToken) ? null : verifiedToken;
+    }
+
+    /**
+     * @param verifiedToken the token to check.
+     * @return true if the token was revoked.
+     */
+    private boolean isRevoked(@Nonnull final VerifiedToken verifiedToken) {
+        final RevocationModule revocationModule = this.revocationModule;
+        return revocationModule != null &&
+                revocationModule.isRevoked(verifiedToken.id, verifiedToken.email, verifiedToken.issuedAt);
+    }
+
+    /**
+     * @param revocationModule the revoked tokens to reject, null to never reject a token as revoked.
+     */
+    public void setRevocationModule(@Nullable final RevocationModule revocationModule) {
+        this.revocationModule = revocationModule;
+    }
+
+    /**
+     * @param userVersions the time each user last changed, null to never trust the claims of access tokens.
+     */
+    public void setUserVersions(@Nullable final UserVersions userVersions) {
+        this.userVersions = userVersions;
+    }
+
+    /**
+     * Revokes a single token so it is rejected from now on. Tokens without an id can not be revoked on their own.
+     *
+     * @param verifiedToken the token to revoke.
+     */
+    public void revokeToken(@Nonnull final VerifiedToken verifiedToken) {
+        final RevocationModule revocationModule = this.revocationModule;
+        if (revocationModule != null && verifiedToken.id != null) {
+            revocationModule.revokeToken(verifiedToken.id, verifiedToken.expiresAt);
+        }
+    }
+
+    /**
+     * Revokes every token issued to a user so far.
+     *
+     * @param email the email of the user.
+     */
+    public void revokeUser(@Nonnull final String email) {
+        final RevocationModule revocationModule = this.revocationModule;
+        if (revocationModule != null) {
+            revocationModule.revokeUser(email);
+        }
+    }
+
+    /**
+     * Clears the verified token cache if the signing key has changed.
+     *
+     * @param key the current signing key.
+     */
+    private synchronized void checkVerifiedTokenKey(@Nullable final Key key) {
+        if (key == null || !key.equals(verifiedTokenKey)) {
+            verifiedTokenCache.clear();
+        }
+        verifiedTokenKey = key;
+    }
+
+    /**
+     * Forgets all previously verified tokens.
+     */
+    public void clearVerifiedTokens() {
+        verifiedTokenCache.clear();
+    }
+
+    /**
+     * @return the verified token cache.
+     */
+    public ExpiringCache<ByteBuffer, VerifiedToken> getVerifiedTokenCache() {
+        return verifiedTokenCache;
+    }
+
+    /**
+     * @param token the token to digest.
+     * @return the SHA-256 digest of the token or null if the token is not ascii and so can not be a valid token.
+     */
+    @Nullable
+    private static ByteBuffer digestToken(@Nonnull final String token) {
+        final MessageDigest messageDigest = TOKEN_DIGEST.get();
+        // Tokens are base64url so every valid char fits in a byte, anything wider would collide once truncated
+        for (int i = 0; i < token.length(); i++) {
+            final char c = token.charAt(i);
+            if (c > 0x7F) {
+                messageDigest.reset();
+                return null;
+            }
+            messageDigest.update((byte) c);
         }
-        return true;
+        return ByteBuffer.wrap(messageDigest.digest());
+    }
+
+    /**
+     * Checks if a {@link Jws} token is valid.
+     *
+     * @param authCookie the authentication token to verify.
+     * @return true if the token is valid false otherwise.
+     */
+    public boolean isJWSTokenValid(@Nonnull final Config config, @Nullable final String authCookie) {
+        return verifyJWSToken(config, authCookie) != null;
     }
 
     /**
@@ -102,11 +375,7 @@ public final class SecurityModule {
      * @return the generated token.
      */
     public String getJWSToken(@Nonnull final Config config, @Nonnull final String email, @Nonnull final Date expirationDate) {
-        return Jwts.builder()
-                .setExpiration(expirationDate)
-                .claim("email", email)
-                .signWith(config.getSecretKey())
-                .compact();
+        return sign(config, tokenBuilder(email, new Date(), expirationDate));
     }
 
     /**
@@ -120,6 +389,150 @@ public final class SecurityModule {
         return getJWSToken(LocalAuth.getConfig(), email, expirationDate);
     }
 
+    /**
+     * Gets a short lived access token which carries the permissions of the user, so it can be authorized without
+     * looking the user up.
+     *
+     * @param config    the configuration holding the signing key and access token lifetime.
+     * @param userModel the active user to issue the token to.
+     * @return the generated token.
+     */
+    public String getAccessToken(@Nonnull final Config config, @Nonnull final UserModel userModel) {
+        return getAccessToken(config, userModel, System.currentTimeMillis(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Gets a short lived access token which carries the permissions of the user and does not outlive its login. The
+     * token is issued at the time the user was read, so a change made to the user while the token was being issued
+     * still outdates or revokes it.
+     *
+     * @param config         the configuration holding the signing key and access token lifetime.
+     * @param userModel      the active user to issue the token to.
+     * @param readAt         the time in epoch milliseconds just before the user was read.
+     * @param loginExpiresAt the time in epoch milliseconds the login of the token ends at.
+     * @return the generated token.
+     */
+    public String getAccessToken(@Nonnull final Config config,
+                                 @Nonnull final UserModel userModel,
+                                 final long readAt,
+                                 final long loginExpiresAt) {
+        final long expiresAt = Math.min(System.currentTimeMillis() + config.getAccessTokenExpireTime(), loginExpiresAt);
+        return sign(config, tokenBuilder(userModel.email, new Date(readAt), new Date(expiresAt))
+                .claim(PERMISSIONS_CLAIM, userModel.getPermissionMask()));
+    }
+
+    /**
+     * Gets a short lived access token which carries the permissions of the user.
+     *
+     * @param userModel the active user to issue the token to.
+     * @return the generated token.
+     */
+    public String getAccessToken(@Nonnull final UserModel userModel) {
+        return getAccessToken(LocalAuth.getConfig(), userModel);
+    }
+
+    /**
+     * @param email          the email for the token.
+     * @param issuedAt       the date the token is issued at.
+     * @param expirationDate the date for the token to expire at.
+     * @return a token builder with a unique id and the issue time set.
+     */
+    private static JwtBuilder tokenBuilder(@Nonnull final String email,
+                                           @Nonnull final Date issuedAt,
+                                           @Nonnull final Date expirationDate) {
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(issuedAt)
+                .claim(ISSUED_AT_MILLIS_CLAIM, issuedAt.getTime())
+                .setExpiration(expirationDate)
+                .claim("email", email);
+    }
+
+    /**
+     * Signs a token with the signing key pair if there is one, naming the key so it can be found in the key set, or
+     * with the secret key otherwise.
+     *
+     * @param config  the configuration holding the signing key.
+     * @param builder the token to sign.
+     * @return the signed token.
+     */
+    private String sign(@Nonnull final Config config, @Nonnull final JwtBuilder builder) {
+        final KeyPair keyPair = config.getSigningKeyPair();
+        if (keyPair == null) {
+            return builder.signWith(config.getSecretKey()).compact();
+        }
+        return builder.setHeaderParam("kid", getJsonWebKey(keyPair.getPublic()).kid)
+                .signWith(keyPair.getPrivate())
+                .compact();
+    }
+
+    /**
+     * @param publicKey the public signing key.
+     * @return the JSON web key of the public signing key, made once per key.
+     */
+    public JsonWebKey getJsonWebKey(@Nonnull final PublicKey publicKey) {
+        JsonWebKey jsonWebKey = this.jsonWebKey;
+        if (jsonWebKey == null || !jsonWebKey.describes(publicKey)) {
+            jsonWebKey = new JsonWebKey(publicKey);
+            this.jsonWebKey = jsonWebKey;
+        }
+        return jsonWebKey;
+    }
+
+    /**
+     * @return a new random refresh token.
+     */
+    public String newRefreshToken() {
+        final byte[] bytes = new byte[REFRESH_TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @param refreshToken the refresh token to identify.
+     * @return the id a refresh token is stored under, a digest so the stored id can not be used as a token, or null if
+     * the token is not ascii and so can not be a refresh token.
+     */
+    @Nullable
+    public String getRefreshTokenId(@Nonnull final String refreshToken) {
+        final ByteBuffer digest = digestToken(refreshToken);
+        return digest == null ? null : Base64.getUrlEncoder().withoutPadding().encodeToString(digest.array());
+    }
+
+    /**
+     * Gets the user an access token describes, without looking the user up. The claims are only used while the user
+     * has not changed since the token was issued.
+     *
+     * @param config the configuration holding the signing key.
+     * @param token  the JWS string token to process.
+     * @return the user with only the email, active and permissions fields set, or null if the token is not a valid
+     * access token or the user has to be looked up.
+     */
+    @Nullable
+    public UserModel getJWSUserClaims(@Nonnull final Config config, @Nullable final String token) {
+        final VerifiedToken verifiedToken = verifyJWSToken(config, token);
+        if (verifiedToken == null || verifiedToken.userModel == null) {
+            return null;
+        }
+        final UserVersions userVersions = this.userVersions;
+        // Without versions a change to the user could go unnoticed, so the user is always looked up
+        if (userVersions == null || !userVersions.isCurrent(verifiedToken.email, verifiedToken.issuedAt)) {
+            return null;
+        }
+        return verifiedToken.userModel;
+    }
+
+    /**
+     * Gets the user an access token describes, without looking the user up.
+     *
+     * @param token the JWS string token to process.
+     * @return the user or null if the token is not a valid access token.
+     */
+    @Nullable
+    public UserModel getJWSUserClaims(@Nullable final String token) {
+        return getJWSUserClaims(LocalAuth.getConfig(), token);
+    }
+
     /**
      * Extract the email {@link Claims claim} for the {@link Jws} token payload.
      *
@@ -128,19 +541,8 @@ public final class SecurityModule {
      */
     public String getJWSEmailClaim(@Nonnull final Config config, @Nullable final String token) {
         // Attempt to extract the username
-        if (token == null || token.length() == 0) {
-            LOGGER.debug("JWS Token Parse Error");
-            return "";
-        }
-        try {
-            final Jws<Claims> jws = Jwts.parser()
-                    .setSigningKey(config.getSecretKey())
-                    .parseClaimsJws(token);
-            return jws.getBody().get("email", String.class);
-        } catch (JwtException ex) {
-            LOGGER.debug("JWS Token Parse Error", ex);
-            return "";
-        }
+        final VerifiedToken verifiedToken = verifyJWSToken(config, token);
+        return verifiedToken == null ? "" : verifiedToken.email;
     }
 
     /**
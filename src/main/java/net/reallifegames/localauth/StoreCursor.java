@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Iterator over store results which holds on to database resources until closed.
+ *
+ * @param <T> the type of the results.
+ */
+public interface StoreCursor<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Releases the database resources held by this cursor.
+     */
+    @Override
+    void close();
+
+    /**
+     * Reads the remaining results and closes this cursor.
+     *
+     * @return the remaining results.
+     */
+    @Nonnull
+    default List<T> toList() {
+        final List<T> results = new ArrayList<>();
+        try {
+            while (hasNext()) {
+                results.add(next());
+            }
+        } finally {
+            close();
+        }
+        return results;
+    }
+
+    /**
+     * @param iterator the results to iterate over.
+     * @param onClose  called when the cursor is closed.
+     * @param <T>      the type of the results.
+     * @return a cursor over the iterator.
+     */
+    @Nonnull
+    static <T> StoreCursor<T> of(@Nonnull final Iterator<T> iterator, @Nonnull final Runnable onClose) {
+        return new StoreCursor<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                onClose.run();
+            }
+        };
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.UserModel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Persistence for user accounts.
+ */
+public interface UserStore {
+
+    /**
+     * @param email id to search by.
+     * @return the full user model if found null otherwise.
+     */
+    @Nullable
+    UserModel getUserModelByEmail(@Nonnull final String email);
+
+    /**
+     * Looks up the fields needed to authorize a request. Only the email, active and permissions fields of the
+     * returned model are required to be loaded.
+     *
+     * @param email id to search by.
+     * @return the partial user model if found null otherwise.
+     */
+    @Nullable
+    UserModel getUserAuthModelByEmail(@Nonnull final String email);
+
+    /**
+     * Looks up the fields needed to check a login and issue its token. Only the email, passwordHash, active and
+     * permissions fields of the returned model are required to be loaded.
+     *
+     * @param email id to search by.
+     * @return the partial user model if found null otherwise.
+     */
+    @Nullable
+    UserModel getUserCredentialsByEmail(@Nonnull final String email);
+
+    /**
+     * Asynchronous {@link #getUserModelByEmail(String)}. Stores without an asynchronous driver complete the future on
+     * the calling thread.
+     *
+     * @param email id to search by.
+     * @return the full user model if found null otherwise.
+     */
+    @Nonnull
+    default CompletableFuture<UserModel> getUserModelByEmailAsync(@Nonnull final String email) {
+        return complete(()->getUserModelByEmail(email));
+    }
+
+    /**
+     * Asynchronous {@link #getUserAuthModelByEmail(String)}. Stores without an asynchronous driver complete the future
+     * on the calling thread.
+     *
+     * @param email id to search by.
+     * @return the partial user model if found null otherwise.
+     */
+    @Nonnull
+    default CompletableFuture<UserModel> getUserAuthModelByEmailAsync(@Nonnull final String email) {
+        return complete(()->getUserAuthModelByEmail(email));
+    }
+
+    /**
+     * Asynchronous {@link #getUserCredentialsByEmail(String)}. Stores without an asynchronous driver complete the
+     * future on the calling thread.
+     *
+     * @param email id to search by.
+     * @return the partial user model if found null otherwise.
+     */
+    @Nonnull
+    default CompletableFuture<UserModel> getUserCredentialsByEmailAsync(@Nonnull final String email) {
+        return complete(()->getUserCredentialsByEmail(email));
+    }
+
+    /**
+     * @param email    id for this user.
+     * @param password password for the user.
+     * @return true if the user was created false otherwise.
+     */
+    default boolean createNewUser(@Nonnull final String email, @Nonnull final String password) {
+        return createNewUser(LocalAuth.getConfig(), email, password);
+    }
+
+    /**
+     * @param config   module to use for account creation.
+     * @param email    id for this user.
+     * @param password password for the user.
+     * @return true if the user was created false otherwise.
+     */
+    default boolean createNewUser(@Nonnull final Config config, @Nonnull final String email, @Nonnull final String password) {
+        return createNewUserWithHash(config, email, PasswordModule.hashPassword(password));
+    }
+
+    /**
+     * @param email        id for this user.
+     * @param passwordHash the BCrypt hash of the password for the user.
+     * @return true if the user was created false otherwise.
+     */
+    default boolean createNewUserWithHash(@Nonnull final String email, @Nonnull final String passwordHash) {
+        return createNewUserWithHash(LocalAuth.getConfig(), email, passwordHash);
+    }
+
+    /**
+     * Creates a user from a password which has already been hashed, so the hashing can run on the password worker
+     * pool and the store work can not.
+     *
+     * @param config       module to use for account creation.
+     * @param email        id for this user.
+     * @param passwordHash the BCrypt hash of the password for the user.
+     * @return true if the user was created false otherwise.
+     */
+    boolean createNewUserWithHash(@Nonnull final Config config, @Nonnull final String email, @Nonnull final String passwordHash);
+
+    /**
+     * @return all users in this app, without their password hash.
+     */
+    @Nonnull
+    List<UserModel> getAllUserModels();
+
+    /**
+     * @param after only return users with an email after this one, null to start at the first user.
+     * @param limit the maximum amount of users to return, 0 for no limit.
+     * @return a cursor over the users ordered by email without their password hash, which must be closed by the
+     * caller.
+     */
+    @Nonnull
+    StoreCursor<UserModel> getUserModelCursor(@Nullable final String after, final int limit);
+
+    /**
+     * @param email       id of the user to update
+     * @param password    new password for the user, (empty string) to not update.
+     * @param active      should the user be set to active.
+     * @param permissions new permissions for the user. (null) to not update.
+     * @return true if the user was updated false otherwise.
+     */
+    default boolean updateUserModel(@Nonnull final String email,
+                                    @Nonnull final String password,
+                                    final boolean active,
+                                    @Nullable final List<Integer> permissions) {
+        return updateUserModelWithHash(email, password.isEmpty() ? null : PasswordModule.hashPassword(password), active,
+                permissions);
+    }
+
+    /**
+     * Updates a user with a password which has already been hashed, so the hashing can run on the password worker
+     * pool and the store work can not.
+     *
+     * @param email        id of the user to update
+     * @param passwordHash the BCrypt hash of the new password for the user, (null) to not update.
+     * @param active       should the user be set to active.
+     * @param permissions  new permissions for the user. (null) to not update.
+     * @return true if the user was updated false otherwise.
+     */
+    boolean updateUserModelWithHash(@Nonnull final String email,
+                                    @Nullable final String passwordHash,
+                                    final boolean active,
+                                    @Nullable final List<Integer> permissions);
+
+    /**
+     * @param email id of the user to delete.
+     * @return true if the user was deleted false otherwise.
+     */
+    boolean deleteUser(@Nonnull final String email);
+
+    /**
+     * @param email        id to update.
+     * @param nodeMetaData new data to set.
+     * @return true if data was updated false otherwise.
+     */
+    boolean updateUserNodeMetadata(@Nonnull final String email, @Nonnull final String nodeMetaData);
+
+    /**
+     * @return a number which changes whenever a user changes, or -1 if this store can not tell, for example when other
+     * processes write to the same database unseen.
+     */
+    default long getUsersVersion() {
+        return -1;
+    }
+
+    /**
+     * @return the time each user last changed, or null if this store does not track it and users are always looked up.
+     */
+    @Nullable
+    default UserVersions getUserVersions() {
+        return null;
+    }
+
+    /**
+     * @param lookup the blocking lookup to run.
+     * @return a future completed with the result of the lookup or the exception it threw.
+     */
+    private static CompletableFuture<UserModel> complete(@Nonnull final Supplier<UserModel> lookup) {
+        try {
+            return CompletableFuture.completedFuture(lookup.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The time each user was last seen to change, which is the version claims in a token are compared against. A token
+ * issued after the version of its user still describes the stored user, older tokens have to look the user up.
+ * <p>
+ * Nothing is known about changes made before this instance was created, so it starts with every user changed. While
+ * changes made by other replicas can not be seen no token is current.
+ */
+public class UserVersions {
+
+    /**
+     * The time in epoch milliseconds each user last changed at.
+     */
+    private final ConcurrentHashMap<String, Long> changedAt = new ConcurrentHashMap<>();
+
+    /**
+     * The time in epoch milliseconds every user last changed at.
+     */
+    private volatile long allChangedAt = System.currentTimeMillis();
+
+    /**
+     * States if every change to a user is seen.
+     */
+    private volatile boolean tracked;
+
+    public UserVersions() {
+        this(true);
+    }
+
+    /**
+     * @param tracked true if every change to a user is seen.
+     */
+    public UserVersions(final boolean tracked) {
+        this.tracked = tracked;
+    }
+
+    /**
+     * @param tracked true if every change to a user is seen, false while changes may be missed.
+     */
+    public void setTracked(final boolean tracked) {
+        this.tracked = tracked;
+    }
+
+    /**
+     * Marks a user as changed from now on.
+     *
+     * @param email the email of the user.
+     */
+    public void changed(@Nonnull final String email) {
+        changedAt.merge(email, System.currentTimeMillis(), Math::max);
+    }
+
+    /**
+     * Marks every user as changed from now on, for when changes may have been missed.
+     */
+    public void changedAll() {
+        allChangedAt = System.currentTimeMillis();
+        changedAt.values().removeIf(time->time <= allChangedAt);
+    }
+
+    /**
+     * @param email the email of the user.
+     * @return the time in epoch milliseconds the user last changed at.
+     */
+    public long getVersion(@Nonnull final String email) {
+        final Long time = changedAt.get(email);
+        return time == null ? allChangedAt : Math.max(time, allChangedAt);
+    }
+
+    /**
+     * @param email    the email of the user.
+     * @param issuedAt the time in epoch milliseconds a token was issued at.
+     * @return true if the user is known not to have changed since the token was issued.
+     */
+    public boolean isCurrent(@Nonnull final String email, final long issuedAt) {
+        return tracked && issuedAt > getVersion(email);
+    }
+
+    /**
+     * @return the number of users with a known change.
+     */
+    public int size() {
+        return changedAt.size();
+    }
+}
@@ -23,20 +23,31 @@
  */
 package net.reallifegames.localauth.api.v1;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.io.SegmentedStringWriter;
 import io.javalin.http.Context;
 import io.javalin.http.UnauthorizedResponse;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.models.UserModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Base Api controller, handles initial authentication and api versioning responses.
@@ -56,20 +67,50 @@ public class ApiController {
     public static final ApiResponse apiResponse = new ApiResponse("v2");
 
     /**
-     * Should be called before all secure api end-points.
+     * Random per process so version tags handed out before a restart never match.
+     */
+    private static final String ETAG_EPOCH = Long.toHexString(new SecureRandom().nextLong());
+
+    /**
+     * Per thread digest used to tag response bodies.
+     */
+    private static final ThreadLocal<MessageDigest> ETAG_DIGEST = ThreadLocal.withInitial(()->{
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * {@link #apiResponse} encoded once, declared after the digest it is tagged with.
+     */
+    private static final StaticJsonResponse apiInformation = new StaticJsonResponse(apiResponse);
+
+    /**
+     * Should be called before all secure api end-points. Access tokens are authorized from their claims alone, only
+     * tokens issued without permissions look the user up.
      *
-     * @param context the REST request context to modify.
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     * @param permissions    mask of permissions of which the user needs at least one.
+     * @return the authenticated user, with only the email, active and permissions fields loaded.
      */
     public static UserModel beforeApiAuthentication(@Nonnull final Context context,
-                                                    @Nonnull final MongoDbModule dbModule,
+                                                    @Nonnull final DbModule dbModule,
                                                     @Nonnull final SecurityModule securityModule,
-                                                    @Nonnull final List<Integer> permissions) {
+                                                    final long permissions) {
         // Set response type
         context.contentType("application/json");
         // Check if user is authenticated
-        final String email = securityModule.getJWSEmailClaim(context.cookie("authToken"));
-        final UserModel userModel = dbModule.getUserModelByEmail(email);
-        if (email.equals("") || userModel == null || !userModel.hasPermission(permissions)) {
+        final String authToken = context.cookie("authToken");
+        UserModel userModel = securityModule.getJWSUserClaims(authToken);
+        if (userModel == null) {
+            final String email = securityModule.getJWSEmailClaim(authToken);
+            userModel = email == null || email.isEmpty() ? null : dbModule.getUserAuthModelByEmail(email);
+        }
+        if (userModel == null || !userModel.hasPermission(permissions)) {
             context.status(401);
             context.result("Unauthorized");
             throw new UnauthorizedResponse("Unauthorized");
@@ -77,16 +118,79 @@ public class ApiController {
         return userModel;
     }
 
+    /**
+     * Asynchronous {@link #beforeApiAuthentication(Context, DbModule, SecurityModule, long)} which frees the request
+     * thread while the user is looked up. Access tokens complete the future at once. On failure the context is set to
+     * 401 and the future completes with null.
+     *
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     * @param permissions    mask of permissions of which the user needs at least one.
+     * @return the authenticated user, with only the email, active and permissions fields loaded, or null.
+     */
+    public static CompletableFuture<UserModel> beforeApiAuthenticationAsync(@Nonnull final Context context,
+                                                                           @Nonnull final DbModule dbModule,
+                                                                           @Nonnull final SecurityModule securityModule,
+                                                                           final long permissions) {
+        // Set response type
+        context.contentType("application/json");
+        // Check if user is authenticated
+        final String authToken = context.cookie("authToken");
+        final UserModel claimedUserModel = securityModule.getJWSUserClaims(authToken);
+        final CompletableFuture<UserModel> userModelFuture;
+        if (claimedUserModel != null) {
+            userModelFuture = CompletableFuture.completedFuture(claimedUserModel);
+        } else {
+            final String email = securityModule.getJWSEmailClaim(authToken);
+            userModelFuture = email == null || email.isEmpty() ?
+                    CompletableFuture.completedFuture(null) : dbModule.getUserAuthModelByEmailAsync(email);
+        }
+        return userModelFuture.thenApply(userModel->{
+            if (userModel == null || !userModel.hasPermission(permissions)) {
+                context.status(401);
+                return null;
+            }
+            return userModel;
+        });
+    }
+
+    /**
+     * @param context the REST request context.
+     * @param config  the configuration naming the header the reverse proxy puts the client address in.
+     * @return the address of the client.
+     */
+    @Nonnull
+    public static String clientAddress(@Nonnull final Context context, @Nonnull final Config config) {
+        final String headerName = config.getClientAddressHeader();
+        final String header = headerName == null ? null : context.header(headerName);
+        if (header == null || header.isEmpty()) {
+            return context.ip();
+        }
+        // The proxy appends the address it saw, anything before it came from the client
+        final int separator = header.lastIndexOf(',');
+        return separator < 0 ? header.trim() : header.substring(separator + 1).trim();
+    }
+
+    /**
+     * Tells the client the server is too busy to handle the request right now.
+     *
+     * @param context the REST request context to modify.
+     */
+    public static void serviceUnavailable(@Nonnull final Context context) {
+        context.status(503);
+        context.header("Retry-After", "1");
+        context.result("Service Unavailable");
+    }
+
     /**
      * Returns the current version of this api.
      *
      * @param context the REST request context to modify.
      * @throws IOException if the object could not be marshaled.
      */
-    @SuppressWarnings ("Duplicates")
     public static void getApiInformation(@Nonnull final Context context) throws IOException {
-        // Prep Jackson-JSON
-        ApiController.jsonContextResponse(apiResponse, context);
+        apiInformation.write(context);
     }
 
     /**
@@ -109,4 +213,178 @@ public class ApiController {
         context.result(stringWriter.getAndClear());
         jsonGenerator.close();
     }
+
+    /**
+     * Pre packaged json response with an object and an entity tag. When no tag is given one is computed from the
+     * encoded body and the client is answered with 304 if it already holds it.
+     *
+     * @param marshallObject the response to marshall.
+     * @param context        the REST request context to modify.
+     * @param etag           the tag of the response or null to tag it by its content.
+     * @throws IOException if the object could not be marshaled.
+     */
+    public static void jsonContextResponse(@Nonnull final Object marshallObject,
+                                           @Nonnull final Context context,
+                                           @Nullable final String etag) throws IOException {
+        if (etag != null) {
+            context.header("ETag", etag);
+            context.header("Cache-Control", "private, no-cache");
+            jsonContextResponse(marshallObject, context);
+            return;
+        }
+        final byte[] body = LocalAuth.objectMapper.writeValueAsBytes(marshallObject);
+        final String bodyETag = bodyETag(body);
+        if (!notModified(context, bodyETag)) {
+            jsonBytesResponse(body, bodyETag, context);
+        }
+    }
+
+    /**
+     * Writes an already encoded json body.
+     *
+     * @param body    the encoded response.
+     * @param etag    the tag of the response.
+     * @param context the REST request context to modify.
+     */
+    private static void jsonBytesResponse(@Nonnull final byte[] body, @Nonnull final String etag, @Nonnull final Context context) {
+        context.contentType("application/json");
+        context.status(200);
+        context.header("ETag", etag);
+        context.header("Cache-Control", "private, no-cache");
+        context.result(new ByteArrayInputStream(body));
+    }
+
+    /**
+     * Answers with 304 if the client already holds the tagged response.
+     *
+     * @param context the REST request context to modify.
+     * @param etag    the tag of the current response.
+     * @return true if the response was not modified and nothing more should be written.
+     */
+    public static boolean notModified(@Nonnull final Context context, @Nonnull final String etag) {
+        final String ifNoneMatch = context.header("If-None-Match");
+        if (ifNoneMatch == null || !matchesETag(ifNoneMatch, etag)) {
+            return false;
+        }
+        context.status(304);
+        context.header("ETag", etag);
+        context.header("Cache-Control", "private, no-cache");
+        return true;
+    }
+
+    /**
+     * @param ifNoneMatch the If-None-Match header value.
+     * @param etag        the tag of the current response.
+     * @return true if the header lists the tag, compared weakly as If-None-Match requires.
+     */
+    static boolean matchesETag(@Nonnull final String ifNoneMatch, @Nonnull final String etag) {
+        for (final String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            final String opaqueTag = tag.startsWith("W/") ? tag.substring(2) : tag;
+            if (tag.equals("*") || opaqueTag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param version the version of the data the response is built from, negative if unknown.
+     * @param variant distinguishes responses built from the same data, must be safe in a header.
+     * @return the tag of the response or null if the version is unknown.
+     */
+    @Nullable
+    public static String versionETag(final long version, @Nonnull final String variant) {
+        return version < 0 ? null : "\"" + ETAG_EPOCH + "-" + Long.toHexString(version) + "-" + variant + "\"";
+    }
+
+    /**
+     * @param etag the strong tag of the uncompressed response.
+     * @return the strong tag of the gzip compressed response, which is a different representation.
+     */
+    @Nonnull
+    public static String gzipETag(@Nonnull final String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * @param context the REST request context to read.
+     * @return true if the client accepts gzip compressed responses.
+     */
+    public static boolean acceptsGzip(@Nonnull final Context context) {
+        final String acceptEncoding = context.header("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    /**
+     * @param body the encoded response.
+     * @return a strong tag derived from the content of the response.
+     */
+    @Nonnull
+    public static String bodyETag(@Nonnull final byte[] body) {
+        final byte[] digest = ETAG_DIGEST.get().digest(body);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+    }
+
+    /**
+     * Writes json content to a generator.
+     */
+    @FunctionalInterface
+    public interface JsonStreamWriter {
+
+        /**
+         * @param jsonGenerator the generator to write to.
+         * @throws IOException if the content could not be written.
+         */
+        void write(@Nonnull final JsonGenerator jsonGenerator) throws IOException;
+    }
+
+    /**
+     * Json response which is written straight to the servlet output stream instead of being buffered into a string
+     * first. Use for large payloads.
+     *
+     * @param marshallObject the response to marshall.
+     * @param context        the REST request context to modify.
+     * @param gzip           should the response be gzip compressed when the client accepts it.
+     * @throws IOException if the object could not be marshaled.
+     */
+    public static void jsonStreamResponse(@Nonnull final Object marshallObject,
+                                          @Nonnull final Context context,
+                                          final boolean gzip) throws IOException {
+        jsonStreamResponse(context, gzip, jsonGenerator->LocalAuth.objectMapper.writeValue(jsonGenerator, marshallObject));
+    }
+
+    /**
+     * Json response which is written straight to the servlet output stream instead of being buffered into a string
+     * first. Use for large payloads.
+     *
+     * @param context the REST request context to modify.
+     * @param gzip    should the response be gzip compressed when the client accepts it.
+     * @param writer  writes the response content.
+     * @throws IOException if the content could not be written.
+     */
+    public static void jsonStreamResponse(@Nonnull final Context context,
+                                          final boolean gzip,
+                                          @Nonnull final JsonStreamWriter writer) throws IOException {
+        context.contentType("application/json");
+        context.status(200);
+        final boolean useGzip = gzip && acceptsGzip(context);
+        if (gzip) {
+            context.header("Vary", "Accept-Encoding");
+        }
+        if (useGzip) {
+            context.header("Content-Encoding", "gzip");
+        }
+        final OutputStream servletStream = context.res.getOutputStream();
+        final GZIPOutputStream gzipStream = useGzip ? new GZIPOutputStream(servletStream) : null;
+        final JsonGenerator jsonGenerator = LocalAuth.jsonFactory.createGenerator(useGzip ? gzipStream : servletStream, JsonEncoding.UTF8);
+        jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Append api response
+        writer.write(jsonGenerator);
+        jsonGenerator.close();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+        servletStream.flush();
+    }
 }
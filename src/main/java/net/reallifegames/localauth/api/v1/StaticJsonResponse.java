@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v1;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.LocalAuth;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A json response which never changes while running. It is encoded and compressed once, then written straight to
+ * the servlet stream, so serving it allocates next to nothing.
+ *
+ * @author Tyler Bucher
+ */
+public final class StaticJsonResponse {
+
+    /**
+     * The encoded response.
+     */
+    private final byte[] body;
+
+    /**
+     * The gzip compressed response.
+     */
+    private final byte[] gzipBody;
+
+    /**
+     * Tag of the encoded response.
+     */
+    private final String etag;
+
+    /**
+     * Tag of the compressed response, which is a different representation so needs its own strong tag.
+     */
+    private final String gzipETag;
+
+    /**
+     * @param response the response to encode.
+     * @throws IllegalStateException if the response could not be encoded.
+     */
+    public StaticJsonResponse(@Nonnull final Object response) {
+        try {
+            body = LocalAuth.objectMapper.writeValueAsBytes(response);
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length);
+            try (final GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+                gzipStream.write(body);
+            }
+            gzipBody = compressed.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode " + response.getClass().getSimpleName(), e);
+        }
+        etag = ApiController.bodyETag(body);
+        gzipETag = ApiController.gzipETag(etag);
+    }
+
+    /**
+     * Writes the response, compressed if the client accepts gzip, or 304 if the client already holds it.
+     *
+     * @param context the REST request context to modify.
+     * @throws IOException if the response could not be written.
+     */
+    public void write(@Nonnull final Context context) throws IOException {
+        final boolean gzip = ApiController.acceptsGzip(context);
+        final String responseETag = gzip ? gzipETag : etag;
+        context.header("Vary", "Accept-Encoding");
+        if (ApiController.notModified(context, responseETag)) {
+            return;
+        }
+        final byte[] responseBody = gzip ? gzipBody : body;
+        context.contentType("application/json");
+        context.status(200);
+        context.header("ETag", responseETag);
+        context.header("Cache-Control", "private, no-cache");
+        if (gzip) {
+            context.header("Content-Encoding", "gzip");
+        }
+        context.res.setContentLength(responseBody.length);
+        final OutputStream servletStream = context.res.getOutputStream();
+        servletStream.write(responseBody);
+        servletStream.flush();
+    }
+
+    /**
+     * @return a copy of the encoded response.
+     */
+    @Nonnull
+    public byte[] getBody() {
+        return body.clone();
+    }
+
+    /**
+     * @return the tag of the uncompressed response.
+     */
+    @Nonnull
+    public String getETag() {
+        return etag;
+    }
+}
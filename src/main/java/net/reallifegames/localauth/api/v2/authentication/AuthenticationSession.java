@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.authentication;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.UserModel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.Cookie;
+import java.util.Date;
+
+/**
+ * Issues and clears the cookies of a login. A login is a short lived access token, which is authorized without
+ * looking the user up, and a refresh token which is stored and traded for a new pair when the access token expires.
+ *
+ * @author Tyler Bucher
+ */
+public final class AuthenticationSession {
+
+    /**
+     * Cookie holding the access token.
+     */
+    public static final String ACCESS_TOKEN_COOKIE = "authToken";
+
+    /**
+     * Cookie holding the refresh token.
+     */
+    public static final String REFRESH_TOKEN_COOKIE = "refreshToken";
+
+    /**
+     * Cookie readable by scripts which states that the client is logged in.
+     */
+    public static final String HAS_AUTH_TOKEN_COOKIE = "hasAuthToken";
+
+    private AuthenticationSession() {
+    }
+
+    /**
+     * Starts a new login for an active user which lasts {@link Config#getJwtExpireTime()} and sets its cookies.
+     *
+     * @param context        the REST request context to modify.
+     * @param userModel      the user with at least the email and permissions fields loaded.
+     * @param readAt         the time in epoch milliseconds just before the user was read.
+     * @param family         the family of the refresh token, new for every login.
+     * @param persistent     true if the login should outlive the browsing session.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     * @param config         the module instance to use.
+     */
+    public static void issue(@Nonnull final Context context,
+                             @Nonnull final UserModel userModel,
+                             final long readAt,
+                             @Nonnull final String family,
+                             final boolean persistent,
+                             @Nonnull final DbModule dbModule,
+                             @Nonnull final SecurityModule securityModule,
+                             @Nonnull final Config config) {
+        issue(context, userModel, readAt, family, persistent,
+                new Date(System.currentTimeMillis() + config.getJwtExpireTime()), dbModule, securityModule, config);
+    }
+
+    /**
+     * Issues a new access token and refresh token to an active user and sets their cookies. Neither outlives the
+     * login, so refreshing never extends it.
+     *
+     * @param context        the REST request context to modify.
+     * @param userModel      the user with at least the email and permissions fields loaded.
+     * @param readAt         the time in epoch milliseconds just before the user was read, the access token is issued
+     *                       at this time so changes made to the user since outdate it.
+     * @param family         the family of the refresh token, new for every login.
+     * @param persistent     true if the login should outlive the browsing session.
+     * @param expiresAt      the time the login ends at.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     * @param config         the module instance to use.
+     */
+    public static void issue(@Nonnull final Context context,
+                             @Nonnull final UserModel userModel,
+                             final long readAt,
+                             @Nonnull final String family,
+                             final boolean persistent,
+                             @Nonnull final Date expiresAt,
+                             @Nonnull final DbModule dbModule,
+                             @Nonnull final SecurityModule securityModule,
+                             @Nonnull final Config config) {
+        final String refreshToken = securityModule.newRefreshToken();
+        dbModule.saveRefreshToken(new RefreshTokenModel(
+                securityModule.getRefreshTokenId(refreshToken),
+                userModel.email,
+                family,
+                0,
+                persistent,
+                expiresAt
+        ));
+        final int maxAge = persistent ? (int) Math.max((expiresAt.getTime() - System.currentTimeMillis()) / 1000, 0) : -1;
+        setCookie(context, ACCESS_TOKEN_COOKIE, securityModule.getAccessToken(config, userModel, readAt,
+                expiresAt.getTime()), maxAge, true, config);
+        setCookie(context, REFRESH_TOKEN_COOKIE, refreshToken, maxAge, true, config);
+        setCookie(context, HAS_AUTH_TOKEN_COOKIE, "true", maxAge, false, config);
+    }
+
+    /**
+     * Tells the client to drop every cookie of its login.
+     *
+     * @param context the REST request context to modify.
+     * @param config  the module instance to use.
+     */
+    public static void clear(@Nonnull final Context context, @Nonnull final Config config) {
+        setCookie(context, ACCESS_TOKEN_COOKIE, "", 0, true, config);
+        setCookie(context, REFRESH_TOKEN_COOKIE, "", 0, true, config);
+        setCookie(context, HAS_AUTH_TOKEN_COOKIE, "", 0, false, config);
+    }
+
+    /**
+     * @param context  the REST request context to modify.
+     * @param name     the name of the cookie.
+     * @param value    the value of the cookie.
+     * @param maxAge   seconds the cookie lives for, -1 for the browsing session or 0 to drop it.
+     * @param httpOnly true if scripts may not read the cookie.
+     * @param config   the module instance to use.
+     */
+    private static void setCookie(@Nonnull final Context context,
+                                  @Nonnull final String name,
+                                  @Nullable final String value,
+                                  final int maxAge,
+                                  final boolean httpOnly,
+                                  @Nonnull final Config config) {
+        final Cookie cookie = new Cookie(name, value);
+        cookie.setDomain(config.getDomain());
+        cookie.setPath("/");
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(httpOnly);
+        cookie.setSecure(false);
+        context.cookie(cookie);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.authentication.delete;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.LocalAuth;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v2.authentication.AuthenticationSession;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Logs a client out by revoking its tokens and clearing its authentication cookies.
+ *
+ * @author Tyler Bucher
+ */
+public class AuthenticationDeleteController {
+
+    /**
+     * Logs the client out.
+     *
+     * @param context the REST request context to modify.
+     */
+    public static void deleteAuthentication(@Nonnull final Context context) {
+        deleteAuthentication(context, LocalAuth.getDbModule(), LocalAuth.getSecurityModule(), LocalAuth.getConfig());
+    }
+
+    /**
+     * Logs the client out. The access token is revoked so a copy of the cookie can not be used after logging out,
+     * and every refresh token of the login is removed.
+     *
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     * @param config         the module instance to use.
+     */
+    public static void deleteAuthentication(@Nonnull final Context context,
+                                            @Nonnull final DbModule dbModule,
+                                            @Nonnull final SecurityModule securityModule,
+                                            @Nonnull final Config config) {
+        final SecurityModule.VerifiedToken verifiedToken = securityModule.verifyJWSToken(config,
+                context.cookie(AuthenticationSession.ACCESS_TOKEN_COOKIE));
+        if (verifiedToken != null) {
+            securityModule.revokeToken(verifiedToken);
+        }
+        final String refreshToken = context.cookie(AuthenticationSession.REFRESH_TOKEN_COOKIE);
+        final String refreshTokenId = refreshToken == null || refreshToken.isEmpty() ? null :
+                securityModule.getRefreshTokenId(refreshToken);
+        if (refreshTokenId != null) {
+            final RefreshTokenModel refreshTokenModel = dbModule.useRefreshToken(
+                    refreshTokenId, System.currentTimeMillis());
+            if (refreshTokenModel != null) {
+                dbModule.deleteRefreshTokenFamily(refreshTokenModel.family);
+            }
+        }
+        AuthenticationSession.clear(context, config);
+        context.status(200);
+        context.result("Success");
+    }
+}
@@ -24,14 +24,13 @@
 package net.reallifegames.localauth.api.v2.authentication.get;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiController;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Gets the status of a users authentication token and deems if they can login.
@@ -41,9 +40,9 @@ import java.util.List;
 public class AuthenticationGetController {
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = new ArrayList<>();
+    private static final long PERMISSIONS = Permissions.NO_PERMISSIONS;
 
     /**
      * Checks to see if a token is valid.
@@ -55,16 +54,23 @@ public class AuthenticationGetController {
     }
 
     /**
-     * Checks to see if a token is valid.
+     * Checks to see if a token is valid, without holding the request thread while the user is looked up.
      *
-     * @param context the REST request context to modify.
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
      */
     public static void getAuthentication(@Nonnull final Context context,
-                                         @Nonnull final MongoDbModule dbModule,
+                                         @Nonnull final DbModule dbModule,
                                          @Nonnull final SecurityModule securityModule) {
-        ApiController.beforeApiAuthentication(context, dbModule, securityModule, PERMISSIONS);
-        // Set response status
-        context.status(200);
-        context.result("");
+        context.result(ApiController.beforeApiAuthenticationAsync(context, dbModule, securityModule, PERMISSIONS)
+                .thenApply(userModel->{
+                    if (userModel == null) {
+                        return "Unauthorized";
+                    }
+                    // Set response status
+                    context.status(200);
+                    return "";
+                }));
     }
 }
@@ -25,15 +25,22 @@ package net.reallifegames.localauth.api.v2.authentication.post;
 
 import io.javalin.http.Context;
 import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.LoginThrottleModule;
+import net.reallifegames.localauth.PasswordModule;
 import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v1.ApiController;
+import net.reallifegames.localauth.api.v2.authentication.AuthenticationSession;
+import net.reallifegames.localauth.models.UserModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
-import javax.servlet.http.Cookie;
 import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Attempts to log a client in and return them a authentication cookie used for accessing secure endpoints.
@@ -53,18 +60,25 @@ public class AuthenticationPostController {
      * @param context the REST request context to modify.
      */
     public static void postAuthentication(@Nonnull final Context context) {
-        postAuthentication(context, LocalAuth.getDbModule(), LocalAuth.getSecurityModule(), LocalAuth.getConfig());
+        postAuthentication(context, LocalAuth.getDbModule(), LocalAuth.getSecurityModule(), LocalAuth.getPasswordModule(),
+                LocalAuth.getLoginThrottleModule(), LocalAuth.getConfig());
     }
 
     /**
-     * Attempts to login a user from the post data.
+     * Attempts to login a user from the post data. Only the password check runs on the password worker pool.
      *
-     * @param context  the REST request context to modify.
-     * @param dbModule the module instance to use.
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     * @param passwordModule the module instance to use.
+     * @param throttleModule the module instance to use.
+     * @param config         the module instance to use.
      */
     public static void postAuthentication(@Nonnull final Context context,
-                                          @Nonnull final MongoDbModule dbModule,
+                                          @Nonnull final DbModule dbModule,
                                           @Nonnull final SecurityModule securityModule,
+                                          @Nonnull final PasswordModule passwordModule,
+                                          @Nonnull final LoginThrottleModule throttleModule,
                                           @Nonnull final Config config) {
         final AuthenticationPostRequest postRequest;
         try {
@@ -75,60 +89,41 @@ public class AuthenticationPostController {
             context.result("Bad Request");
             return;
         }
-        final int validationResponse = postRequest.validate(dbModule);
-        if (validationResponse < -1) {
+        // Turn throttled attempts away before they spend any password hashing time
+        if (!throttleModule.tryAcquire(ApiController.clientAddress(context, config), postRequest.getEmail())) {
+            context.status(429);
+            context.header("Retry-After", "60");
+            context.result("Too Many Requests");
+            return;
+        }
+        // Only the password check runs on the password worker pool, the lookup and the session stay off it
+        final long readAt = System.currentTimeMillis();
+        final UserModel userModel = postRequest.findUser(dbModule);
+        if (userModel == null) {
             context.status(406);
             context.result("Not Acceptable");
-        } else if (validationResponse == -1) {
-            context.status(409);
-            context.result("Conflict");
-        } else {
-            setAuthToken(context, postRequest, securityModule, config);
-            setHasAuthToken(context, postRequest, config);
-
-            context.status(200);
-            context.result("Success");
+            return;
         }
-    }
-
-    /**
-     * Sets the login auth token information.
-     *
-     * @param context        the REST request context to modify.
-     * @param postRequest    the module instance to use.
-     * @param securityModule the module instance to use.
-     */
-    private static void setAuthToken(@Nonnull final Context context,
-                                     @Nonnull final AuthenticationPostRequest postRequest,
-                                     @Nonnull final SecurityModule securityModule,
-                                     @Nonnull final Config config) {
-        final String token = postRequest.generateToken(securityModule, config);
-        final Cookie cookie = new Cookie("authToken", token);
-        cookie.setDomain(config.getDomain());
-        cookie.setPath("/");
-        cookie.setMaxAge(postRequest.rememberMe ? (int) config.getJwtExpireTime() : -1);
-        cookie.setHttpOnly(true);
-        cookie.setSecure(false);
-        context.cookie(cookie);
-        System.out.println(cookie.toString());
-    }
-
-    /**
-     * Sets the has auth token information.
-     *
-     * @param context     the REST request context to modify.
-     * @param postRequest the module instance to use.
-     * @param config      the module instance to use.
-     */
-    private static void setHasAuthToken(@Nonnull final Context context,
-                                        @Nonnull final AuthenticationPostRequest postRequest,
-                                        @Nonnull final Config config) {
-        final Cookie cookie = new Cookie("hasAuthToken", "true");
-        cookie.setDomain(config.getDomain());
-        cookie.setPath("/");
-        cookie.setMaxAge(postRequest.rememberMe ? (int) config.getJwtExpireTime() : -1);
-        cookie.setHttpOnly(false);
-        cookie.setSecure(false);
-        context.cookie(cookie);
+        final CompletableFuture<Boolean> checkFuture;
+        try {
+            checkFuture = passwordModule.submit(()->postRequest.checkPassword(userModel));
+        } catch (RejectedExecutionException e) {
+            ApiController.serviceUnavailable(context);
+            return;
+        }
+        context.result(checkFuture.thenApply(passwordMatches->{
+            if (!passwordMatches) {
+                context.status(406);
+                return "Not Acceptable";
+            } else if (!userModel.active) {
+                context.status(409);
+                return "Conflict";
+            } else {
+                AuthenticationSession.issue(context, userModel, readAt, UUID.randomUUID().toString(),
+                        postRequest.rememberMe, dbModule, securityModule, config);
+                context.status(200);
+                return "Success";
+            }
+        }));
     }
 }
@@ -25,15 +25,12 @@ package net.reallifegames.localauth.api.v2.authentication.post;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import io.jsonwebtoken.Jws;
-import net.reallifegames.localauth.Config;
-import net.reallifegames.localauth.MongoDbModule;
-import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.PasswordModule;
 import net.reallifegames.localauth.models.UserModel;
-import org.mindrot.jbcrypt.BCrypt;
 
 import javax.annotation.Nonnull;
-import java.util.Date;
+import javax.annotation.Nullable;
 
 /**
  * Get request model for the /authentication endpoint.
@@ -67,31 +64,29 @@ public class AuthenticationPostRequest {
     }
 
     /**
+     * @return the user to try and login as, empty if the request did not name one.
+     */
+    @Nonnull
+    String getEmail() {
+        return email == null ? "" : email;
+    }
+
+    /**
+     * Looks up the user to login as, with the email, passwordHash, active and permissions fields loaded.
+     *
      * @param dbModule the module instance to use.
-     * @return A set of error codes based on the state of the data.<ul>
-     * <li>0: if the user is valid, active and the password is correct.</li>
-     * <li>-1: if the user is valid, used a correct password but not active.</li>
-     * <li>-2: if the user is valid, but used an incorrect password.</li>
-     * <li>-3: if the user is not valid.</li>
-     * </ul>
+     * @return the user if found null otherwise.
      */
-    public int validate(@Nonnull final MongoDbModule dbModule) {
-        final UserModel userModel = dbModule.getUserModelByEmail(this.email);
-        if (userModel == null) {
-            return -3;
-        } else if (!BCrypt.checkpw(this.password, userModel.passwordHash)) {
-            return -2;
-        } else if (userModel.active) {
-            return 0;
-        } else {
-            return -1;
-        }
+    @Nullable
+    UserModel findUser(@Nonnull final DbModule dbModule) {
+        return dbModule.getUserCredentialsByEmail(this.email);
     }
 
     /**
-     * @return a newly created {@link Jws} token for the user.
+     * @param userModel the user to login as.
+     * @return true if the password of this attempt matches the user's false otherwise.
      */
-    String generateToken(@Nonnull final SecurityModule securityModule, @Nonnull final Config config) {
-        return securityModule.getJWSToken(this.email, new Date(System.currentTimeMillis() + config.getJwtExpireTime()));
+    boolean checkPassword(@Nonnull final UserModel userModel) {
+        return PasswordModule.checkPassword(this.password, userModel.passwordHash);
     }
 }
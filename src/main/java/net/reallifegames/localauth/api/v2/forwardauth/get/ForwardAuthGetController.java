@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.forwardauth.get;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.LocalAuth;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.models.UserModel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Forward authentication check for reverse proxies such as Traefik or nginx auth_request.
+ *
+ * @author Tyler Bucher
+ */
+public class ForwardAuthGetController {
+
+    /**
+     * Checks if the request carries a valid authentication token.
+     *
+     * @param context the REST request context to modify.
+     */
+    public static void getForwardAuth(@Nonnull final Context context) {
+        getForwardAuth(context, LocalAuth.getDbModule(), LocalAuth.getSecurityModule());
+    }
+
+    /**
+     * Checks if the request carries a valid authentication token. A comma separated list of permission values may
+     * be passed in the permissions query param, in which case the user must have at least one of them. Access tokens
+     * are answered from their claims alone. For tokens issued without permissions the user is looked up
+     * asynchronously so the request thread is not held while the database works.
+     *
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     */
+    public static void getForwardAuth(@Nonnull final Context context,
+                                      @Nonnull final DbModule dbModule,
+                                      @Nonnull final SecurityModule securityModule) {
+        final String authToken = context.cookie("authToken");
+        final String permissions = context.queryParam("permissions");
+        final UserModel claimedUserModel = securityModule.getJWSUserClaims(authToken);
+        if (claimedUserModel != null) {
+            respond(context, claimedUserModel, permissions);
+            return;
+        }
+        final String email = securityModule.getJWSEmailClaim(authToken);
+        if (email == null || email.isEmpty()) {
+            context.status(401);
+            return;
+        }
+        context.result(dbModule.getUserAuthModelByEmailAsync(email).thenApply(userModel->{
+            respond(context, userModel, permissions);
+            return "";
+        }));
+    }
+
+    /**
+     * @param context     the REST request context to modify.
+     * @param userModel   the user the token belongs to, null if it was not found.
+     * @param permissions comma separated list of permission values, null or empty for none.
+     */
+    private static void respond(@Nonnull final Context context,
+                                @Nullable final UserModel userModel,
+                                @Nullable final String permissions) {
+        if (userModel == null || !hasRequiredPermission(userModel, permissions)) {
+            context.status(401);
+            return;
+        }
+        context.header("X-Auth-User", userModel.email);
+        context.header("X-Auth-Permissions", userModel.getPermissionsHeader());
+        context.status(200);
+    }
+
+    /**
+     * @param userModel   the user to check.
+     * @param permissions comma separated list of permission values, null or empty for none.
+     * @return true if the user is active and has at least one of the permissions.
+     */
+    static boolean hasRequiredPermission(@Nonnull final UserModel userModel, @Nullable final String permissions) {
+        if (!userModel.active) {
+            return false;
+        }
+        if (permissions == null || permissions.isEmpty()) {
+            return true;
+        }
+        // Parsed in place so the check does not allocate
+        int value = -1;
+        for (int i = 0; i <= permissions.length(); i++) {
+            final char c = i < permissions.length() ? permissions.charAt(i) : ',';
+            if (c == ',') {
+                if (value >= 0 && userModel.hasPermissionValue(value)) {
+                    return true;
+                }
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > Short.MAX_VALUE) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -25,7 +25,7 @@ package net.reallifegames.localauth.api.v2.invites.delete;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
 
 import javax.annotation.Nonnull;
 
@@ -50,7 +50,7 @@ public class InviteDeleteRequest {
      * @param dbModule the module instance to use.
      * @return true if the invite was deleted false otherwise.
      */
-    public boolean deleteInvite(@Nonnull final MongoDbModule dbModule) {
+    public boolean deleteInvite(@Nonnull final DbModule dbModule) {
         return dbModule.deleteInvite(this.email);
     }
 }
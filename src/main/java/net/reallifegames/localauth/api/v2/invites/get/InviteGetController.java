@@ -24,15 +24,13 @@
 package net.reallifegames.localauth.api.v2.invites.get;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiController;
 
 import javax.annotation.Nonnull;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * Returns a list of invites pending signup.
@@ -42,13 +40,13 @@ import java.util.List;
 public class InviteGetController {
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = Arrays.asList(
-            Permissions.IS_USER_SUPER_ADMIN.value,
-            Permissions.IS_USER_ADMIN.value,
-            Permissions.CAN_USER_MOD_INVITE.value,
-            Permissions.CAN_USER_DELETE_INVITE.value
+    private static final long PERMISSIONS = Permissions.mask(
+            Permissions.IS_USER_SUPER_ADMIN,
+            Permissions.IS_USER_ADMIN,
+            Permissions.CAN_USER_MOD_INVITE,
+            Permissions.CAN_USER_DELETE_INVITE
     );
 
     /**
@@ -66,7 +64,7 @@ public class InviteGetController {
      * @param context the REST request context to modify.
      */
     public static void getInvites(@Nonnull final Context context,
-                                  @Nonnull final MongoDbModule dbModule,
+                                  @Nonnull final DbModule dbModule,
                                   @Nonnull final SecurityModule securityModule) throws Exception {
         ApiController.beforeApiAuthentication(context, dbModule, securityModule, PERMISSIONS);
         // Set the response type
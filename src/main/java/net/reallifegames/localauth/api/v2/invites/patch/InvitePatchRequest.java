@@ -26,7 +26,7 @@ package net.reallifegames.localauth.api.v2.invites.patch;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import net.reallifegames.localauth.DataValidation;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.Permissions;
 
 import javax.annotation.Nonnull;
@@ -68,7 +68,7 @@ public class InvitePatchRequest {
      * @param withPermissions should the permissions be updated.
      * @return true if the invite was updated false otherwise.
      */
-    public boolean updateInvite(@Nonnull final MongoDbModule dbModule, final boolean withPermissions) {
+    public boolean updateInvite(@Nonnull final DbModule dbModule, final boolean withPermissions) {
         return dbModule.updateInvite(this.email, withPermissions ? Permissions.getValidPermissions(this.permissions) : null);
     }
 }
@@ -26,7 +26,7 @@ package net.reallifegames.localauth.api.v2.invites.post;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import net.reallifegames.localauth.DataValidation;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.Permissions;
 
 import javax.annotation.Nonnull;
@@ -69,7 +69,7 @@ public class InvitePostRequest {
      * @param withPermissions should the permissions be updated.
      * @return true if the invite was created false otherwise.
      */
-    public boolean createNewInvite(@Nonnull final MongoDbModule dbModule, final boolean withPermissions) {
+    public boolean createNewInvite(@Nonnull final DbModule dbModule, final boolean withPermissions) {
         return dbModule.createNewInvite(this.email, withPermissions ? Permissions.getValidPermissions(this.permissions) : new ArrayList<>());
     }
 }
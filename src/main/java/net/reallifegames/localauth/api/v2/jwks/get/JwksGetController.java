@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.jwks.get;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.LocalAuth;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v1.StaticJsonResponse;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.util.Collections;
+
+/**
+ * Returns the public keys tokens are signed with, so other services can verify tokens without calling back.
+ *
+ * @author Tyler Bucher
+ */
+public class JwksGetController {
+
+    /**
+     * Cached response, encoded once as the signing key never changes while running.
+     */
+    private static volatile StaticJsonResponse response;
+
+    /**
+     * The key pair the cached response was made from.
+     */
+    private static volatile KeyPair responseKeyPair;
+
+    /**
+     * Writes the public key set.
+     *
+     * @param context the REST request context to modify.
+     * @throws IOException if the response could not be written.
+     */
+    public static void getJwks(@Nonnull final Context context) throws IOException {
+        getJwks(context, LocalAuth.getSecurityModule(), LocalAuth.getConfig());
+    }
+
+    /**
+     * Writes the public key set. No keys are listed while tokens are signed with a shared secret.
+     *
+     * @param context        the REST request context to modify.
+     * @param securityModule the module instance to use.
+     * @param config         the module instance to use.
+     * @throws IOException if the response could not be written.
+     */
+    public static void getJwks(@Nonnull final Context context,
+                               @Nonnull final SecurityModule securityModule,
+                               @Nonnull final Config config) throws IOException {
+        final KeyPair keyPair = config.getSigningKeyPair();
+        StaticJsonResponse jwks = response;
+        if (jwks == null || responseKeyPair != keyPair) {
+            jwks = new StaticJsonResponse(new JwksGetResponse(keyPair == null ? Collections.emptyList() :
+                    Collections.singletonList(securityModule.getJsonWebKey(keyPair.getPublic()))));
+            response = jwks;
+            responseKeyPair = keyPair;
+        }
+        jwks.write(context);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.metrics.get;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.MetricsModule;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Returns the application metrics in the prometheus text format.
+ *
+ * @author Tyler Bucher
+ */
+public class MetricsGetController {
+
+    /**
+     * Content type of the prometheus text format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Writes the current metrics to the response.
+     *
+     * @param context the REST request context to modify.
+     */
+    public static void getMetrics(@Nonnull final Context context) {
+        getMetrics(context, MetricsModule.getInstance());
+    }
+
+    /**
+     * Writes the current metrics to the response.
+     *
+     * @param context       the REST request context to modify.
+     * @param metricsModule the module instance to use.
+     */
+    public static void getMetrics(@Nonnull final Context context, @Nonnull final MetricsModule metricsModule) {
+        context.status(200);
+        context.contentType(CONTENT_TYPE);
+        context.result(metricsModule.scrape());
+    }
+}
@@ -24,8 +24,8 @@
 package net.reallifegames.localauth.api.v2.nodes.delete;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiController;
@@ -36,8 +36,6 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * Attempts to delete a node based on the id.
@@ -52,12 +50,12 @@ public class NodeDeleteController {
     public static final Logger LOGGER = LoggerFactory.getLogger(NodeDeleteController.class);
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = Arrays.asList(
-            Permissions.IS_USER_ADMIN.value,
-            Permissions.IS_USER_SUPER_ADMIN.value,
-            Permissions.CAN_USER_DELETE_NODE.value
+    private static final long PERMISSIONS = Permissions.mask(
+            Permissions.IS_USER_ADMIN,
+            Permissions.IS_USER_SUPER_ADMIN,
+            Permissions.CAN_USER_DELETE_NODE
     );
 
     /**
@@ -77,7 +75,7 @@ public class NodeDeleteController {
      * @param securityModule the module instance to use.
      */
     public static void deleteNode(@Nonnull final Context context,
-                                  @Nonnull final MongoDbModule dbModule,
+                                  @Nonnull final DbModule dbModule,
                                   @Nonnull final SecurityModule securityModule) {
         ApiController.beforeApiAuthentication(context, dbModule, securityModule, PERMISSIONS);
         final String[] path = context.path().split("/");
@@ -25,7 +25,7 @@ package net.reallifegames.localauth.api.v2.nodes.delete;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
 
 import javax.annotation.Nonnull;
 
@@ -50,7 +50,7 @@ public class NodeDeleteRequest {
      * @param dbModule the module instance to use.
      * @return true if the node was deleted false otherwise.
      */
-    public boolean deleteNode(@Nonnull final MongoDbModule dbModule) {
+    public boolean deleteNode(@Nonnull final DbModule dbModule) {
         return dbModule.deleteNode(this.id);
     }
 }
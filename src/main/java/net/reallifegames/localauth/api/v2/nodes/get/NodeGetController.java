@@ -24,14 +24,13 @@
 package net.reallifegames.localauth.api.v2.nodes.get;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiController;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Returns a list of all nodes.
@@ -41,9 +40,9 @@ import java.util.List;
 public class NodeGetController {
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = new ArrayList<>();
+    private static final long PERMISSIONS = Permissions.NO_PERMISSIONS;
 
     /**
      * Attempts to retrieve all nodes from the system.
@@ -60,11 +59,15 @@ public class NodeGetController {
      * @param context the REST request context to modify.
      */
     public static void getNodes(@Nonnull final Context context,
-                                @Nonnull final MongoDbModule dbModule,
+                                @Nonnull final DbModule dbModule,
                                 @Nonnull final SecurityModule securityModule) throws Exception {
         ApiController.beforeApiAuthentication(context, dbModule, securityModule, PERMISSIONS);
+        final String etag = ApiController.versionETag(dbModule.getNodesVersion(), "nodes");
+        if (etag != null && ApiController.notModified(context, etag)) {
+            return;
+        }
         // Set the response type
-        ApiController.jsonContextResponse(new NodeGetRequest(dbModule.getAllNodeModels()), context);
+        ApiController.jsonContextResponse(new NodeGetRequest(dbModule.getAllNodeModels()), context, etag);
     }
 
 }
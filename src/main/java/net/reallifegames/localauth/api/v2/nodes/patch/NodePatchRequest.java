@@ -24,7 +24,7 @@
 package net.reallifegames.localauth.api.v2.nodes.patch;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
 
 import javax.annotation.Nonnull;
 
@@ -62,7 +62,7 @@ public class NodePatchRequest {
      * @param dbModule the module instance to use.
      * @return true if the node was created false otherwise.
      */
-    public boolean updateNode(@Nonnull final MongoDbModule dbModule) {
+    public boolean updateNode(@Nonnull final DbModule dbModule) {
         return dbModule.updateNode(this.id, this.defaultText);
     }
 }
@@ -24,8 +24,8 @@
 package net.reallifegames.localauth.api.v2.nodes.post;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiController;
@@ -34,8 +34,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * Attempts to create a new node.
@@ -50,12 +48,12 @@ public class NodePostController {
     public static final Logger LOGGER = LoggerFactory.getLogger(NodePostController.class);
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = Arrays.asList(
-            Permissions.IS_USER_ADMIN.value,
-            Permissions.IS_USER_SUPER_ADMIN.value,
-            Permissions.CAN_USER_ADD_NODE.value
+    private static final long PERMISSIONS = Permissions.mask(
+            Permissions.IS_USER_ADMIN,
+            Permissions.IS_USER_SUPER_ADMIN,
+            Permissions.CAN_USER_ADD_NODE
     );
 
     /**
@@ -75,7 +73,7 @@ public class NodePostController {
      * @param securityModule the module instance to use.
      */
     public static void postNode(@Nonnull final Context context,
-                                @Nonnull final MongoDbModule dbModule,
+                                @Nonnull final DbModule dbModule,
                                 @Nonnull final SecurityModule securityModule) {
         ApiController.beforeApiAuthentication(context, dbModule, securityModule, PERMISSIONS);
         final NodePostRequest postRequest;
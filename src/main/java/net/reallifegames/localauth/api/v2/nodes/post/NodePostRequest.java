@@ -24,7 +24,7 @@
 package net.reallifegames.localauth.api.v2.nodes.post;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
 
 import javax.annotation.Nonnull;
 
@@ -62,7 +62,7 @@ public class NodePostRequest {
      * @param dbModule the module instance to use.
      * @return true if the node was created false otherwise.
      */
-    public boolean createNewNode(@Nonnull final MongoDbModule dbModule) {
+    public boolean createNewNode(@Nonnull final DbModule dbModule) {
         return dbModule.createNewNode(this.id, this.defaultText);
     }
 }
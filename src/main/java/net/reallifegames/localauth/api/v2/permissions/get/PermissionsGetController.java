@@ -24,15 +24,14 @@
 package net.reallifegames.localauth.api.v2.permissions.get;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiController;
+import net.reallifegames.localauth.api.v1.StaticJsonResponse;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Returns the list of permissions this app uses.
@@ -42,14 +41,16 @@ import java.util.List;
 public class PermissionsGetController {
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = new ArrayList<>();
+    private static final long PERMISSIONS = Permissions.NO_PERMISSIONS;
 
     /**
-     * Cached response.
+     * Cached response, encoded once as the permissions never change while running.
      */
-    private static final PermissionsGetResponse response = new PermissionsGetResponse(Permissions.ALL_PERMISSIONS);
+    private static final StaticJsonResponse response = new StaticJsonResponse(
+            new PermissionsGetResponse(Permissions.ALL_PERMISSIONS)
+    );
 
     /**
      * Attempts to create a new user from the post data.
@@ -68,10 +69,9 @@ public class PermissionsGetController {
      * @param securityModule the module instance to use.
      */
     public static void getPermissions(@Nonnull final Context context,
-                                      @Nonnull final MongoDbModule dbModule,
+                                      @Nonnull final DbModule dbModule,
                                       @Nonnull final SecurityModule securityModule) throws Exception {
         ApiController.beforeApiAuthentication(context, dbModule, securityModule, PERMISSIONS);
-        // Set the response type
-        ApiController.jsonContextResponse(response, context);
+        response.write(context);
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.refresh.post;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.LocalAuth;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v2.authentication.AuthenticationSession;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.UserModel;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Trades a refresh token for a new access token and refresh token. This is the only place a logged in user is looked
+ * up, so permission changes and deactivations take effect here.
+ *
+ * @author Tyler Bucher
+ */
+public class RefreshPostController {
+
+    /**
+     * Time in milliseconds a used refresh token is answered with a conflict instead of revoking its login, so
+     * concurrent refreshes from the same client do not log it out.
+     */
+    private static final long REUSE_GRACE = 10000L;
+
+    /**
+     * Attempts to refresh the login of the client.
+     *
+     * @param context the REST request context to modify.
+     */
+    public static void postRefresh(@Nonnull final Context context) {
+        postRefresh(context, LocalAuth.getDbModule(), LocalAuth.getSecurityModule(), LocalAuth.getConfig());
+    }
+
+    /**
+     * Attempts to refresh the login of the client. Each refresh token can be used once, a token used again after
+     * {@link #REUSE_GRACE} is treated as stolen and ends the login it came from.
+     *
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param securityModule the module instance to use.
+     * @param config         the module instance to use.
+     */
+    public static void postRefresh(@Nonnull final Context context,
+                                   @Nonnull final DbModule dbModule,
+                                   @Nonnull final SecurityModule securityModule,
+                                   @Nonnull final Config config) {
+        final String refreshToken = context.cookie(AuthenticationSession.REFRESH_TOKEN_COOKIE);
+        final String refreshTokenId = refreshToken == null || refreshToken.isEmpty() ? null :
+                securityModule.getRefreshTokenId(refreshToken);
+        if (refreshTokenId == null) {
+            unauthorized(context, config);
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final RefreshTokenModel refreshTokenModel = dbModule.useRefreshToken(refreshTokenId, now);
+        if (refreshTokenModel == null) {
+            unauthorized(context, config);
+            return;
+        }
+        if (refreshTokenModel.usedAt != 0) {
+            if (now - refreshTokenModel.usedAt < REUSE_GRACE) {
+                context.status(409);
+                context.result("Conflict");
+            } else {
+                dbModule.deleteRefreshTokenFamily(refreshTokenModel.family);
+                unauthorized(context, config);
+            }
+            return;
+        }
+        final long readAt = System.currentTimeMillis();
+        final UserModel userModel = dbModule.getUserAuthModelByEmail(refreshTokenModel.email);
+        if (userModel == null || !userModel.active) {
+            dbModule.deleteRefreshTokenFamily(refreshTokenModel.family);
+            unauthorized(context, config);
+            return;
+        }
+        // Rotated tokens keep the expiry of the login so refreshing never extends it
+        AuthenticationSession.issue(context, userModel, readAt, refreshTokenModel.family,
+                refreshTokenModel.persistent, refreshTokenModel.expiresAt, dbModule, securityModule, config);
+        context.status(200);
+        context.result("Success");
+    }
+
+    /**
+     * @param context the REST request context to modify.
+     * @param config  the module instance to use.
+     */
+    private static void unauthorized(@Nonnull final Context context, @Nonnull final Config config) {
+        AuthenticationSession.clear(context, config);
+        context.status(401);
+        context.result("Unauthorized");
+    }
+}
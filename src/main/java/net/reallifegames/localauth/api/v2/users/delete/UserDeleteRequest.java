@@ -24,7 +24,8 @@
 package net.reallifegames.localauth.api.v2.users.delete;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.SecurityModule;
 
 import javax.annotation.Nonnull;
 
@@ -53,7 +54,16 @@ public class UserDeleteRequest {
      * @param dbModule the module instance to use.
      * @return true if the user was created false otherwise.
      */
-    public boolean deletePlayer(@Nonnull final MongoDbModule dbModule) {
+    public boolean deletePlayer(@Nonnull final DbModule dbModule) {
         return dbModule.deleteUser(this.email);
     }
+
+    /**
+     * Revokes every token issued to the deleted user.
+     *
+     * @param securityModule the module instance to use.
+     */
+    public void revokeTokens(@Nonnull final SecurityModule securityModule) {
+        securityModule.revokeUser(this.email);
+    }
 }
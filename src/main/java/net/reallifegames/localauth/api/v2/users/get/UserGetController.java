@@ -23,19 +23,22 @@
  */
 package net.reallifegames.localauth.api.v2.users.get;
 
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.StoreCursor;
 import net.reallifegames.localauth.api.v1.ApiController;
 import net.reallifegames.localauth.models.UserModel;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -47,15 +50,26 @@ import java.util.List;
 public class UserGetController {
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = Arrays.asList(
-            Permissions.IS_USER_SUPER_ADMIN.value,
-            Permissions.IS_USER_ADMIN.value,
-            Permissions.CAN_USER_MOD_USERS.value,
-            Permissions.CAN_USER_DELETE_USERS.value
+    private static final long PERMISSIONS = Permissions.mask(
+            Permissions.IS_USER_SUPER_ADMIN,
+            Permissions.IS_USER_ADMIN,
+            Permissions.CAN_USER_MOD_USERS,
+            Permissions.CAN_USER_DELETE_USERS
     );
 
+    /**
+     * The largest page of users which can be requested at once.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Writes a single user without flushing the stream after each one.
+     */
+    private static final ObjectWriter SAFE_USER_WRITER = LocalAuth.objectMapper.writerFor(SafeUserModel.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
     /**
      * Returns a user based on the post data or a list of users.
      *
@@ -73,36 +87,119 @@ public class UserGetController {
      * @param securityModule the module instance to use.
      */
     public static void getUsers(@Nonnull final Context context,
-                                @Nonnull final MongoDbModule dbModule,
+                                @Nonnull final DbModule dbModule,
                                 @Nonnull final SecurityModule securityModule) throws Exception {
-        final UserModel authUserModel = ApiController.beforeApiAuthentication(context, dbModule, securityModule, new ArrayList<>());
+        final UserModel authUserModel = ApiController.beforeApiAuthentication(context, dbModule, securityModule, Permissions.NO_PERMISSIONS);
         final String[] path = context.path().split("/");
         if (authUserModel.hasPermission(PERMISSIONS) && path.length == 5) {
             final String pathVal = URLDecoder.decode(path[4], StandardCharsets.UTF_8);
             if(pathVal.equals("*")) {
-                ApiController.jsonContextResponse(new UserGetRequest(convertUserModelList(dbModule.getAllUserModels())), context);
+                final int limit;
+                try {
+                    limit = parseLimit(context.queryParam("limit"));
+                } catch (NumberFormatException e) {
+                    context.status(400);
+                    context.result("Bad Request");
+                    return;
+                }
+                // Streamed pages can not be tagged by content, so they are only tagged when the store has versions
+                final String versionETag = ApiController.versionETag(dbModule.getUsersVersion(), "users");
+                // The compressed page is a different representation so it needs its own strong tag
+                final String etag = versionETag == null || !ApiController.acceptsGzip(context) ? versionETag :
+                        ApiController.gzipETag(versionETag);
+                context.header("Vary", "Accept-Encoding");
+                if (etag != null && ApiController.notModified(context, etag)) {
+                    return;
+                }
+                streamUsers(context, dbModule, context.queryParam("after"), limit, etag);
             } else {
+                final String etag = ApiController.versionETag(dbModule.getUsersVersion(), "user");
+                if (etag != null && ApiController.notModified(context, etag)) {
+                    return;
+                }
                 final UserModel userModel = dbModule.getUserModelByEmail(pathVal);
                 if (userModel != null) {
-                    ApiController.jsonContextResponse(new UserGetRequest(convertUserModelList(userModel)), context);
+                    ApiController.jsonContextResponse(new UserGetRequest(convertUserModelList(userModel)), context, etag);
                 } else {
                     context.status(400);
                     context.result("Bad Request");
                 }
             }
         } else {
-            ApiController.jsonContextResponse(new UserGetRequest(convertUserModelList(authUserModel)), context);
+            // The same path may return a different user per caller, so the caller is part of the tag
+            final String etag = ApiController.versionETag(
+                    dbModule.getUsersVersion(), "self-" + Integer.toHexString(authUserModel.email.hashCode())
+            );
+            if (etag != null && ApiController.notModified(context, etag)) {
+                return;
+            }
+            // The auth model only holds the permission fields so load the rest of the user
+            final UserModel userModel = dbModule.getUserModelByEmail(authUserModel.email);
+            if (userModel != null) {
+                ApiController.jsonContextResponse(new UserGetRequest(convertUserModelList(userModel)), context, etag);
+            } else {
+                context.status(400);
+                context.result("Bad Request");
+            }
         }
     }
 
     /**
-     * @param userModels the list to be converted.
-     * @return the new converted SafeUserModel list.
+     * @param limit the limit query param.
+     * @return the page size to use, 0 for no limit.
+     *
+     * @throws NumberFormatException if the limit is not a valid page size.
      */
-    private static List<SafeUserModel> convertUserModelList(@Nonnull final List<UserModel> userModels) {
-        final List<SafeUserModel> safeUserModels = new ArrayList<>();
-        userModels.forEach(userModel->safeUserModels.add(SafeUserModel.fromUserModel(userModel)));
-        return safeUserModels;
+    private static int parseLimit(@Nullable final String limit) {
+        if (limit == null || limit.isEmpty()) {
+            return 0;
+        }
+        final int value = Integer.parseInt(limit);
+        if (value < 1) {
+            throw new NumberFormatException("limit must be positive");
+        }
+        return Math.min(value, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Streams users from the database cursor to the client one at a time. When a limit is given the response also
+     * contains a next field with the email to pass as after for the next page, or null on the last page.
+     *
+     * @param context  the REST request context to modify.
+     * @param dbModule the module instance to use.
+     * @param after    only return users after this email, null to start at the first user.
+     * @param limit    the maximum amount of users to return, 0 for no limit.
+     * @param etag     the tag of the response, null to send it untagged.
+     * @throws IOException if the users could not be written.
+     */
+    private static void streamUsers(@Nonnull final Context context,
+                                    @Nonnull final DbModule dbModule,
+                                    @Nullable final String after,
+                                    final int limit,
+                                    @Nullable final String etag) throws IOException {
+        if (etag != null) {
+            context.header("ETag", etag);
+            context.header("Cache-Control", "private, no-cache");
+        }
+        try (final StoreCursor<UserModel> cursor = dbModule.getUserModelCursor(after, limit)) {
+            ApiController.jsonStreamResponse(context, true, jsonGenerator->{
+                int count = 0;
+                String lastEmail = null;
+                jsonGenerator.writeStartObject();
+                jsonGenerator.writeArrayFieldStart("users");
+                while (cursor.hasNext()) {
+                    final UserModel userModel = cursor.next();
+                    SAFE_USER_WRITER.writeValue(jsonGenerator, SafeUserModel.fromUserModel(userModel));
+                    lastEmail = userModel.email;
+                    count++;
+                }
+                jsonGenerator.writeEndArray();
+                if (limit > 0) {
+                    jsonGenerator.writeStringField("next", count == limit ? lastEmail : null);
+                }
+                jsonGenerator.writeEndObject();
+            });
+        }
     }
 
     /**
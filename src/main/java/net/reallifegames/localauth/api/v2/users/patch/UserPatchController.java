@@ -24,8 +24,9 @@
 package net.reallifegames.localauth.api.v2.users.patch;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.PasswordModule;
 import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiController;
@@ -35,9 +36,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 /**
  * Attempts to update a user.
@@ -52,12 +53,12 @@ public class UserPatchController {
     public static final Logger LOGGER = LoggerFactory.getLogger(UserPatchController.class);
 
     /**
-     * Default list of permissions for this endpoint.
+     * Default permission mask for this endpoint.
      */
-    private static final List<Integer> PERMISSIONS = Arrays.asList(
-            Permissions.IS_USER_ADMIN.value,
-            Permissions.IS_USER_SUPER_ADMIN.value,
-            Permissions.CAN_USER_MOD_USERS.value
+    private static final long PERMISSIONS = Permissions.mask(
+            Permissions.IS_USER_ADMIN,
+            Permissions.IS_USER_SUPER_ADMIN,
+            Permissions.CAN_USER_MOD_USERS
     );
 
     /**
@@ -66,7 +67,7 @@ public class UserPatchController {
      * @param context the REST request context to modify.
      */
     public static void patchUser(@Nonnull final Context context) {
-        patchUser(context, LocalAuth.getDbModule(), LocalAuth.getSecurityModule());
+        patchUser(context, LocalAuth.getDbModule(), LocalAuth.getSecurityModule(), LocalAuth.getPasswordModule());
     }
 
     /**
@@ -75,11 +76,13 @@ public class UserPatchController {
      * @param context        the REST request context to modify.
      * @param dbModule       the module instance to use.
      * @param securityModule the module instance to use.
+     * @param passwordModule the module instance to use.
      */
     public static void patchUser(@Nonnull final Context context,
-                                 @Nonnull final MongoDbModule dbModule,
-                                 @Nonnull final SecurityModule securityModule) {
-        final UserModel userModel = ApiController.beforeApiAuthentication(context, dbModule, securityModule, new ArrayList<>());
+                                 @Nonnull final DbModule dbModule,
+                                 @Nonnull final SecurityModule securityModule,
+                                 @Nonnull final PasswordModule passwordModule) {
+        final UserModel userModel = ApiController.beforeApiAuthentication(context, dbModule, securityModule, Permissions.NO_PERMISSIONS);
         final UsersPatchRequest postRequest;
         try {
             postRequest = LocalAuth.objectMapper.readValue(context.body(), UsersPatchRequest.class);
@@ -104,22 +107,13 @@ public class UserPatchController {
             }
         } else {
             if (userModel.hasPermission(PERMISSIONS)) {
-                if (!postRequest.updateUser(dbModule, userModel.hasPermission(Permissions.ADMIN_PERMISSIONS))) {
-                    context.status(409);
-                    context.result("Conflict");
-                } else {
-                    context.status(200);
-                    context.result("Success");
-                }
+                final boolean withPermissions = userModel.hasPermission(Permissions.ADMIN_PERMISSIONS);
+                updateUser(context, passwordModule, postRequest,
+                        passwordHash->postRequest.updateUser(dbModule, securityModule, passwordHash, withPermissions));
             } else {
                 if (postRequest.isEmailEqual(userModel.email)) {
-                    if (!postRequest.updateUserLite(dbModule, userModel)) {
-                        context.status(409);
-                        context.result("Conflict");
-                    } else {
-                        context.status(200);
-                        context.result("Success");
-                    }
+                    updateUser(context, passwordModule, postRequest,
+                            passwordHash->postRequest.updateUserLite(dbModule, passwordHash, userModel));
                 } else {
                     context.status(401);
                     context.result("Unauthorized");
@@ -127,4 +121,46 @@ public class UserPatchController {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs a user update and responds with its result. Updates which change the password hash it on the password
+     * worker pool first, the update itself runs after the hash.
+     *
+     * @param context        the REST request context to modify.
+     * @param passwordModule the module instance to use.
+     * @param postRequest    the request being processed.
+     * @param update         the update to run with the new password hash, or null if the password is unchanged.
+     */
+    private static void updateUser(@Nonnull final Context context,
+                                   @Nonnull final PasswordModule passwordModule,
+                                   @Nonnull final UsersPatchRequest postRequest,
+                                   @Nonnull final Function<String, Boolean> update) {
+        if (!postRequest.hasPassword()) {
+            context.result(updateResponse(context, update.apply(null)));
+            return;
+        }
+        final CompletableFuture<String> hashFuture;
+        try {
+            hashFuture = passwordModule.submit(postRequest::hashPassword);
+        } catch (RejectedExecutionException e) {
+            ApiController.serviceUnavailable(context);
+            return;
+        }
+        context.result(hashFuture.thenApply(passwordHash->updateResponse(context, update.apply(passwordHash))));
+    }
+
+    /**
+     * @param context the REST request context to modify.
+     * @param updated true if the user was updated.
+     * @return the response body for the update.
+     */
+    private static String updateResponse(@Nonnull final Context context, final boolean updated) {
+        if (!updated) {
+            context.status(409);
+            return "Conflict";
+        } else {
+            context.status(200);
+            return "Success";
+        }
+    }
+}
@@ -25,11 +25,14 @@ package net.reallifegames.localauth.api.v2.users.patch;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.PasswordModule;
 import net.reallifegames.localauth.Permissions;
+import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.models.UserModel;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
@@ -87,7 +90,7 @@ public class UsersPatchRequest {
      * @param dbModule the module instance to use.
      * @return true if the user was updated false otherwise.
      */
-    public boolean updateMetaData(@Nonnull final MongoDbModule dbModule) {
+    public boolean updateMetaData(@Nonnull final DbModule dbModule) {
         return dbModule.updateUserNodeMetadata(this.email, this.nodeMetaData);
     }
 
@@ -98,6 +101,20 @@ public class UsersPatchRequest {
         return this.nodeMetaData.isEmpty();
     }
 
+    /**
+     * @return true if the request changes the password false otherwise.
+     */
+    public boolean hasPassword() {
+        return !this.password.isEmpty();
+    }
+
+    /**
+     * @return the BCrypt hash of the new password.
+     */
+    public String hashPassword() {
+        return PasswordModule.hashPassword(this.password);
+    }
+
     /**
      * @param email the email to validate.
      * @return true if the emails are equal.
@@ -107,28 +124,46 @@ public class UsersPatchRequest {
     }
 
     /**
+     * Updates the user and revokes its tokens if it was deactivated.
+     *
      * @param dbModule        the module instance to use.
+     * @param securityModule  the module instance to use.
+     * @param passwordHash    the hash of the new password, (null) to not update.
      * @param withPermissions should permissions
      * @return true if the user was updated false otherwise.
      */
-    public boolean updateUser(@Nonnull final MongoDbModule dbModule, final boolean withPermissions) {
-        return dbModule.updateUserModel(
+    public boolean updateUser(@Nonnull final DbModule dbModule,
+                              @Nonnull final SecurityModule securityModule,
+                              @Nullable final String passwordHash,
+                              final boolean withPermissions) {
+        final boolean updated = dbModule.updateUserModelWithHash(
                 this.email,
-                this.password,
+                passwordHash,
                 this.active,
                 withPermissions ? Permissions.getValidPermissions(this.permissions) : null
         );
+        if (updated && !this.active) {
+            // The super admin keeps its active flag so check what was stored
+            final UserModel userModel = dbModule.getUserAuthModelByEmail(this.email);
+            if (userModel == null || !userModel.active) {
+                securityModule.revokeUser(this.email);
+            }
+        }
+        return updated;
     }
 
     /**
-     * @param dbModule  the module instance to use.
-     * @param userModel the user to use fields from.
+     * @param dbModule     the module instance to use.
+     * @param passwordHash the hash of the new password, (null) to not update.
+     * @param userModel    the user to use fields from.
      * @return true if the user was updated false otherwise.
      */
-    public boolean updateUserLite(@Nonnull final MongoDbModule dbModule, @Nonnull final UserModel userModel) {
-        return dbModule.updateUserModel(
+    public boolean updateUserLite(@Nonnull final DbModule dbModule,
+                                  @Nullable final String passwordHash,
+                                  @Nonnull final UserModel userModel) {
+        return dbModule.updateUserModelWithHash(
                 this.email,
-                this.password,
+                passwordHash,
                 userModel.active,
                 null
         );
@@ -24,13 +24,17 @@
 package net.reallifegames.localauth.api.v2.users.post;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.DbModule;
 import net.reallifegames.localauth.LocalAuth;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.PasswordModule;
+import net.reallifegames.localauth.api.v1.ApiController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for handling the creation of new users.
@@ -50,17 +54,20 @@ public class UserPostController {
      * @param context the REST request context to modify.
      */
     public static void postUser(@Nonnull final Context context) {
-        postUser(context, LocalAuth.getDbModule());
+        postUser(context, LocalAuth.getDbModule(), LocalAuth.getPasswordModule());
     }
 
     /**
-     * Attempts to create a new user from the post data.
+     * Attempts to create a new user from the post data. The password is hashed on the password worker pool and the
+     * user is created after it.
      *
-     * @param context  the REST request context to modify.
-     * @param dbModule the module instance to use.
+     * @param context        the REST request context to modify.
+     * @param dbModule       the module instance to use.
+     * @param passwordModule the module instance to use.
      */
     public static void postUser(@Nonnull final Context context,
-                                @Nonnull final MongoDbModule dbModule) {
+                                @Nonnull final DbModule dbModule,
+                                @Nonnull final PasswordModule passwordModule) {
         final UsersPostRequest postRequest;
         try {
             postRequest = LocalAuth.objectMapper.readValue(context.body(), UsersPostRequest.class);
@@ -75,12 +82,21 @@ public class UserPostController {
             context.result("Not Acceptable");
             return;
         }
-        if (!postRequest.createNewUser(dbModule)) {
-            context.status(409);
-            context.result("Conflict");
-        } else {
-            context.status(200);
-            context.result("Success");
+        final CompletableFuture<String> hashFuture;
+        try {
+            hashFuture = passwordModule.submit(postRequest::hashPassword);
+        } catch (RejectedExecutionException e) {
+            ApiController.serviceUnavailable(context);
+            return;
         }
+        context.result(hashFuture.thenApply(passwordHash->{
+            if (!postRequest.createNewUser(dbModule, passwordHash)) {
+                context.status(409);
+                return "Conflict";
+            } else {
+                context.status(200);
+                return "Success";
+            }
+        }));
     }
 }
@@ -26,7 +26,8 @@ package net.reallifegames.localauth.api.v2.users.post;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import net.reallifegames.localauth.DataValidation;
-import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.DbModule;
+import net.reallifegames.localauth.PasswordModule;
 
 import javax.annotation.Nonnull;
 
@@ -68,13 +69,21 @@ public class UsersPostRequest {
         return DataValidation.isEmailValid(this.email) && this.password.equals(this.passwordConfirm);
     }
 
+    /**
+     * @return the BCrypt hash of the password.
+     */
+    public String hashPassword() {
+        return PasswordModule.hashPassword(this.password);
+    }
+
     /**
      * Attempts to create a new user.
      *
-     * @param dbModule the module instance to use.
+     * @param dbModule     the module instance to use.
+     * @param passwordHash the hash of the password from {@link #hashPassword()}.
      * @return true if the user was created false otherwise.
      */
-    public boolean createNewUser(@Nonnull final MongoDbModule dbModule) {
-        return dbModule.createNewUser(this.email, this.password);
+    public boolean createNewUser(@Nonnull final DbModule dbModule, @Nonnull final String passwordHash) {
+        return dbModule.createNewUserWithHash(this.email, passwordHash);
     }
 }
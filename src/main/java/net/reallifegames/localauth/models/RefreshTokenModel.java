@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.models;
+
+import dev.morphia.annotations.Entity;
+import dev.morphia.annotations.Id;
+import dev.morphia.annotations.IndexOptions;
+import dev.morphia.annotations.Indexed;
+
+import javax.annotation.Nonnull;
+import java.util.Date;
+
+/**
+ * A refresh token which can be traded once for a new access token and refresh token. Every refresh token issued from
+ * the same login shares a family, so a reused token can revoke the whole login.
+ *
+ * @author Tyler Bucher
+ */
+@Entity ("refresh_tokens")
+public class RefreshTokenModel {
+
+    /**
+     * Digest of the refresh token, the token itself is never stored.
+     */
+    @Id
+    public final String id;
+
+    /**
+     * The email of the user this token was issued to.
+     */
+    @Indexed
+    public final String email;
+
+    /**
+     * Id shared by every refresh token issued from the same login.
+     */
+    @Indexed
+    public final String family;
+
+    /**
+     * The time in epoch milliseconds this token was traded in at, 0 if it has not been used.
+     */
+    public final long usedAt;
+
+    /**
+     * States if the login should outlive the browsing session.
+     */
+    public final boolean persistent;
+
+    /**
+     * The time this token expires at.
+     */
+    @Indexed (options = @IndexOptions (expireAfterSeconds = 0))
+    public final Date expiresAt;
+
+    private RefreshTokenModel() {
+        id = null;
+        email = null;
+        family = null;
+        usedAt = 0;
+        persistent = false;
+        expiresAt = null;
+    }
+
+    public RefreshTokenModel(@Nonnull final String id,
+                             @Nonnull final String email,
+                             @Nonnull final String family,
+                             final long usedAt,
+                             final boolean persistent,
+                             @Nonnull final Date expiresAt) {
+        this.id = id;
+        this.email = email;
+        this.family = family;
+        this.usedAt = usedAt;
+        this.persistent = persistent;
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.models;
+
+import dev.morphia.annotations.Entity;
+import dev.morphia.annotations.Id;
+import dev.morphia.annotations.IndexOptions;
+import dev.morphia.annotations.Indexed;
+
+import javax.annotation.Nonnull;
+import java.util.Date;
+
+/**
+ * A revoked token, or every token of a user issued before a point in time. Entries are only kept until the tokens
+ * they revoke would have expired anyway.
+ *
+ * @author Tyler Bucher
+ */
+@Entity ("revocations")
+public class RevocationModel {
+
+    /**
+     * Id prefix of a single revoked token.
+     */
+    public static final String TOKEN_PREFIX = "token:";
+
+    /**
+     * Id prefix of a revoked user.
+     */
+    public static final String USER_PREFIX = "user:";
+
+    /**
+     * The token id or user email with its prefix.
+     */
+    @Id
+    public final String id;
+
+    /**
+     * The time in epoch milliseconds tokens of a revoked user must be issued after, unused for a single token.
+     */
+    public final long revokedBefore;
+
+    /**
+     * The time this entry may be forgotten at.
+     */
+    @Indexed (options = @IndexOptions (expireAfterSeconds = 0))
+    public final Date expiresAt;
+
+    private RevocationModel() {
+        id = null;
+        revokedBefore = 0;
+        expiresAt = null;
+    }
+
+    public RevocationModel(@Nonnull final String id, final long revokedBefore, @Nonnull final Date expiresAt) {
+        this.id = id;
+        this.revokedBefore = revokedBefore;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @param tokenId   the id of the token to revoke.
+     * @param expiresAt the time in epoch milliseconds the token expires at.
+     * @return a revocation of a single token.
+     */
+    public static RevocationModel forToken(@Nonnull final String tokenId, final long expiresAt) {
+        return new RevocationModel(TOKEN_PREFIX + tokenId, 0, new Date(expiresAt));
+    }
+
+    /**
+     * @param email         the email of the user to revoke.
+     * @param revokedBefore the time in epoch milliseconds tokens must be issued after.
+     * @param maxTokenAge   the longest time in milliseconds a token is valid for.
+     * @return a revocation of every token the user was issued before the given time.
+     */
+    public static RevocationModel forUser(@Nonnull final String email, final long revokedBefore, final long maxTokenAge) {
+        return new RevocationModel(USER_PREFIX + email, revokedBefore, new Date(revokedBefore + maxTokenAge));
+    }
+
+    /**
+     * @return true if this revokes a single token, false if it revokes a user.
+     */
+    public boolean isToken() {
+        return id.startsWith(TOKEN_PREFIX);
+    }
+
+    /**
+     * @return the token id or user email without its prefix.
+     */
+    public String getSubject() {
+        return id.substring(isToken() ? TOKEN_PREFIX.length() : USER_PREFIX.length());
+    }
+}
@@ -25,10 +25,10 @@ package net.reallifegames.localauth.models;
 
 import dev.morphia.annotations.Entity;
 import dev.morphia.annotations.Id;
+import net.reallifegames.localauth.Permissions;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -70,6 +70,21 @@ public class UserModel {
      */
     public final String nodeMetaData;
 
+    /**
+     * Marks the permission mask as not yet computed.
+     */
+    private static final long UNSET_MASK = Long.MIN_VALUE;
+
+    /**
+     * Lazily computed mask of {@link #permissions}.
+     */
+    private transient volatile long permissionMask = UNSET_MASK;
+
+    /**
+     * Lazily built comma separated list of permissions.
+     */
+    private transient String permissionsHeader;
+
     private UserModel() {
         email = null;
         passwordHash = null;
@@ -92,6 +107,20 @@ public class UserModel {
         this.nodeMetaData = "";
     }
 
+    public UserModel(@Nonnull final String email,
+                     @Nonnull final String passwordHash,
+                     final boolean active,
+                     final boolean pending,
+                     @Nonnull final List<Integer> permissions,
+                     @Nonnull final String nodeMetaData) {
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.active = active;
+        this.pending = pending;
+        this.permissions = permissions;
+        this.nodeMetaData = nodeMetaData;
+    }
+
     public UserModel(@Nonnull final String email,
                      @Nonnull final String nodeMetaData) {
         this.email = email;
@@ -103,10 +132,50 @@ public class UserModel {
     }
 
     /**
-     * @param permissionNodes list of nodes to check.
+     * @return the permissions of this user as a permission mask.
+     */
+    public long getPermissionMask() {
+        long mask = this.permissionMask;
+        if (mask == UNSET_MASK) {
+            mask = Permissions.mask(this.permissions);
+            this.permissionMask = mask;
+        }
+        return mask;
+    }
+
+    /**
+     * @param permissionMask mask of nodes to check.
      * @return true if this user has any of the provided nodes, false otherwise.
      */
-    public boolean hasPermission(@Nonnull final List<Integer> permissionNodes) {
-        return this.active && (permissionNodes.isEmpty() || !Collections.disjoint(this.permissions, permissionNodes));
+    public boolean hasPermission(final long permissionMask) {
+        return this.active && (permissionMask == Permissions.NO_PERMISSIONS || (getPermissionMask() & permissionMask) != 0);
+    }
+
+    /**
+     * @param permissionNode the node to check.
+     * @return true if this user has the provided node, false otherwise.
+     */
+    public boolean hasPermissionValue(final int permissionNode) {
+        return this.active && Permissions.hasValue(getPermissionMask(), permissionNode);
+    }
+
+    /**
+     * @return the permissions of this user as a comma separated list.
+     */
+    @Nonnull
+    public String getPermissionsHeader() {
+        String header = this.permissionsHeader;
+        if (header == null) {
+            final StringBuilder builder = new StringBuilder();
+            for (final Integer permission : this.permissions) {
+                if (builder.length() != 0) {
+                    builder.append(',');
+                }
+                builder.append(permission);
+            }
+            header = builder.toString();
+            this.permissionsHeader = header;
+        }
+        return header;
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ChangeStreamWatcherTest {
+
+    private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
+    private final ChangeStreamWatcher watcher = new ChangeStreamWatcher(dbModule);
+
+    @SuppressWarnings ("unchecked")
+    private static ChangeStreamDocument<Document> mockChange(final String namespace, final String id) {
+        final ChangeStreamDocument<Document> change = Mockito.mock(ChangeStreamDocument.class);
+        Mockito.when(change.getOperationType()).thenReturn(OperationType.UPDATE);
+        Mockito.when(change.getNamespace()).thenReturn(namespace == null ? null : new MongoNamespace(namespace));
+        Mockito.when(change.getDocumentKey()).thenReturn(id == null ? null : new BsonDocument("_id", new BsonString(id)));
+        Mockito.when(change.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString("token")));
+        return change;
+    }
+
+    @Test
+    public void handleChange_userEvicted() {
+        watcher.handleChange(mockChange("testdb.users", "test@test.com"));
+        Mockito.verify(dbModule).onDocumentChanged("users", "test@test.com");
+        Assert.assertEquals(new BsonDocument("_data", new BsonString("token")), watcher.getResumeToken());
+    }
+
+    @Test
+    public void handleChange_invalidateClearsCaches() {
+        watcher.handleChange(mockChange(null, null));
+        Mockito.verify(dbModule).clearCaches();
+    }
+
+    @Test
+    public void run_unexpectedException() {
+        Mockito.when(dbModule.getDatabase()).thenThrow(new IllegalStateException());
+        watcher.start();
+        try {
+            Mockito.verify(dbModule, Mockito.timeout(1000)).setVersionsTracked(false);
+            Mockito.verify(dbModule, Mockito.timeout(1000)).clearCaches();
+        } finally {
+            watcher.stop();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+    private final ExpiringCache<String, String> cache = new ExpiringCache<>(16);
+
+    @Test
+    public void get_expired() {
+        cache.put("key", "value", 1000);
+        Assert.assertEquals("value", cache.get("key", 999));
+        Assert.assertNull(cache.get("key", 1000));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void put_invalidatedWhileReading() {
+        final long generation = cache.generation("key");
+        // The key changes while the old value is being read
+        cache.invalidate("key");
+        cache.put("key", "old", Long.MAX_VALUE, generation);
+        Assert.assertNull(cache.get("key"));
+        cache.put("key", "new", Long.MAX_VALUE, cache.generation("key"));
+        Assert.assertEquals("new", cache.get("key"));
+    }
+
+    @Test
+    public void put_clearedWhileReading() {
+        final long generation = cache.generation("key");
+        cache.clear();
+        cache.put("key", "old", Long.MAX_VALUE, generation);
+        Assert.assertNull(cache.get("key"));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.RevocationModel;
+import net.reallifegames.localauth.models.UserModel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class JdbcDbModuleTest {
+
+    private JdbcDbModule jdbcDbModule;
+    private File databaseFile;
+    private final Config config = Mockito.mock(Config.class);
+
+    @Before
+    public void setUp() throws IOException {
+        databaseFile = File.createTempFile("local-auth", ".db");
+        jdbcDbModule = new JdbcDbModule("jdbc:sqlite:" + databaseFile.getAbsolutePath(), 2);
+        Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_INVITE);
+        // The first user becomes the super admin
+        Assert.assertTrue(jdbcDbModule.createNewUser(config, "admin@test.com", "password"));
+        Assert.assertTrue(jdbcDbModule.createNewInvite("invited@test.com", Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void firstUserIsSuperAdmin() {
+        final UserModel userModel = jdbcDbModule.getUserModelByEmail("admin@test.com");
+        Assert.assertNotNull(userModel);
+        Assert.assertTrue(userModel.active);
+        Assert.assertEquals(Collections.singletonList(0), userModel.permissions);
+        Assert.assertTrue(PasswordModule.checkPassword("password", userModel.passwordHash));
+    }
+
+    @Test
+    public void createNewUser_invite() {
+        Assert.assertFalse(jdbcDbModule.createNewUser(config, "uninvited@test.com", "password"));
+        Assert.assertTrue(jdbcDbModule.createNewUser(config, "invited@test.com", "password"));
+        Assert.assertNull(jdbcDbModule.getUserInviteModelByEmail("invited@test.com"));
+        final UserModel userModel = jdbcDbModule.getUserAuthModelByEmail("invited@test.com");
+        Assert.assertNotNull(userModel);
+        Assert.assertTrue(userModel.active);
+        Assert.assertEquals(Arrays.asList(1, 2), userModel.permissions);
+        Assert.assertFalse(jdbcDbModule.createNewUser(config, "invited@test.com", "password"));
+    }
+
+    @Test
+    public void updateUserModel() {
+        Assert.assertTrue(jdbcDbModule.createNewUser(config, "invited@test.com", "password"));
+        Assert.assertTrue(jdbcDbModule.updateUserModel("invited@test.com", "newpassword", false, Arrays.asList(5)));
+        final UserModel userModel = jdbcDbModule.getUserCredentialsByEmail("invited@test.com");
+        Assert.assertNotNull(userModel);
+        Assert.assertFalse(userModel.active);
+        Assert.assertTrue(PasswordModule.checkPassword("newpassword", userModel.passwordHash));
+        Assert.assertEquals(Arrays.asList(5), jdbcDbModule.getUserAuthModelByEmail("invited@test.com").permissions);
+        Assert.assertEquals(1, jdbcDbModule.getUserVersions().size());
+        // Writes from other processes are never seen
+        Assert.assertFalse(jdbcDbModule.getUserVersions().isCurrent("other@test.com", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void updateUserModel_superAdmin() {
+        Assert.assertFalse(jdbcDbModule.updateUserModel("admin@test.com", "", false, Arrays.asList(5)));
+        Assert.assertTrue(jdbcDbModule.updateUserModel("admin@test.com", "newpassword", false, Arrays.asList(5)));
+        final UserModel userModel = jdbcDbModule.getUserModelByEmail("admin@test.com");
+        Assert.assertNotNull(userModel);
+        Assert.assertTrue(userModel.active);
+        Assert.assertEquals(Collections.singletonList(0), userModel.permissions);
+        Assert.assertTrue(PasswordModule.checkPassword("newpassword", userModel.passwordHash));
+    }
+
+    @Test
+    public void revocations() {
+        final long now = System.currentTimeMillis();
+        jdbcDbModule.saveRevocation(RevocationModel.forToken("expired", now - 1000));
+        jdbcDbModule.saveRevocation(RevocationModel.forUser("invited@test.com", now, 60000));
+        jdbcDbModule.saveRevocation(RevocationModel.forUser("invited@test.com", now + 1, 60000));
+        final List<RevocationModel> revocations = jdbcDbModule.getRevocations(now);
+        Assert.assertEquals(1, revocations.size());
+        Assert.assertEquals("invited@test.com", revocations.get(0).getSubject());
+        Assert.assertEquals(now + 1, revocations.get(0).revokedBefore);
+    }
+
+    @Test
+    public void refreshTokens() {
+        final long now = System.currentTimeMillis();
+        jdbcDbModule.saveRefreshToken(new RefreshTokenModel("first", "admin@test.com", "family", 0, true, new Date(now + 60000)));
+        jdbcDbModule.saveRefreshToken(new RefreshTokenModel("second", "admin@test.com", "family", 0, true, new Date(now + 60000)));
+        Assert.assertEquals(0, jdbcDbModule.useRefreshToken("first", now).usedAt);
+        Assert.assertEquals(now, jdbcDbModule.useRefreshToken("first", now + 1).usedAt);
+        Assert.assertNull(jdbcDbModule.useRefreshToken("second", now + 60000));
+        jdbcDbModule.deleteRefreshTokenFamily("family");
+        Assert.assertNull(jdbcDbModule.useRefreshToken("second", now));
+    }
+
+    @Test
+    public void reopen() {
+        final JdbcDbModule reopened = new JdbcDbModule("jdbc:sqlite:" + databaseFile.getAbsolutePath(), 1);
+        Assert.assertNotNull(reopened.getUserModelByEmail("admin@test.com"));
+        reopened.close();
+    }
+
+    @Test
+    public void deleteExpired() {
+        final long now = System.currentTimeMillis();
+        jdbcDbModule.saveRevocation(RevocationModel.forToken("expired", now - 1000));
+        jdbcDbModule.saveRefreshToken(new RefreshTokenModel("expired", "admin@test.com", "family", 0, true, new Date(now - 1000)));
+        Assert.assertEquals(1, jdbcDbModule.getRevocations(now - 2000).size());
+        jdbcDbModule.deleteExpired(now);
+        Assert.assertTrue(jdbcDbModule.getRevocations(now - 2000).isEmpty());
+        Assert.assertNull(jdbcDbModule.useRefreshToken("expired", now - 2000));
+    }
+
+    @Test
+    public void getUserModelCursor() {
+        Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_OPEN);
+        Assert.assertTrue(jdbcDbModule.createNewUser(config, "b@test.com", "password"));
+        Assert.assertTrue(jdbcDbModule.createNewUser(config, "c@test.com", "password"));
+        final List<UserModel> firstPage = jdbcDbModule.getUserModelCursor(null, 2).toList();
+        Assert.assertEquals(2, firstPage.size());
+        Assert.assertEquals("admin@test.com", firstPage.get(0).email);
+        Assert.assertEquals("b@test.com", firstPage.get(1).email);
+        final List<UserModel> secondPage = jdbcDbModule.getUserModelCursor("b@test.com", 2).toList();
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertEquals("c@test.com", secondPage.get(0).email);
+        Assert.assertEquals("", secondPage.get(0).passwordHash);
+        Assert.assertEquals(3, jdbcDbModule.getAllUserModels().size());
+    }
+
+    @Test
+    public void deleteUser() {
+        final long now = System.currentTimeMillis();
+        jdbcDbModule.saveRefreshToken(new RefreshTokenModel("first", "admin@test.com", "family", 0, true, new Date(now + 60000)));
+        Assert.assertTrue(jdbcDbModule.deleteUser("admin@test.com"));
+        Assert.assertFalse(jdbcDbModule.deleteUser("admin@test.com"));
+        Assert.assertNull(jdbcDbModule.getUserModelByEmail("admin@test.com"));
+        // Logins of the deleted user do not carry over to a new user with the same email
+        Assert.assertNull(jdbcDbModule.useRefreshToken("first", now));
+    }
+
+    @Test
+    public void invites() {
+        Assert.assertFalse(jdbcDbModule.createNewInvite("", Collections.emptyList()));
+        Assert.assertTrue(jdbcDbModule.updateInvite("invited@test.com", Arrays.asList(3)));
+        Assert.assertFalse(jdbcDbModule.updateInvite("invited@test.com", null));
+        Assert.assertEquals(Arrays.asList(3), jdbcDbModule.getUserInviteModelByEmail("invited@test.com").permissions);
+        Assert.assertEquals(1, jdbcDbModule.getAllUserInviteModels().size());
+        Assert.assertTrue(jdbcDbModule.deleteInvite("invited@test.com"));
+        Assert.assertEquals(0, jdbcDbModule.getAllUserInviteModels().size());
+    }
+
+    @Test
+    public void nodes() {
+        Assert.assertFalse(jdbcDbModule.createNewNode("", "text"));
+        Assert.assertTrue(jdbcDbModule.createNewNode("node", "text"));
+        Assert.assertTrue(jdbcDbModule.updateNode("node", "other"));
+        Assert.assertEquals("other", jdbcDbModule.getAllNodeModels().get(0).defaultText);
+        Assert.assertTrue(jdbcDbModule.updateUserNodeMetadata("admin@test.com", "{}"));
+        Assert.assertEquals("{}", jdbcDbModule.getUserModelByEmail("admin@test.com").nodeMetaData);
+        Assert.assertTrue(jdbcDbModule.deleteNode("node"));
+        Assert.assertTrue(jdbcDbModule.getAllNodeModels().isEmpty());
+    }
+
+    @After
+    public void tearDown() {
+        jdbcDbModule.close();
+        databaseFile.delete();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class KnownEmailFilterTest {
+
+    private final KnownEmailFilter emailFilter = new KnownEmailFilter();
+
+    @Test
+    public void bloomFilter_noFalseNegatives() {
+        final BloomFilter bloomFilter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            bloomFilter.put("user" + i + "@test.com");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(bloomFilter.mightContain("user" + i + "@test.com"));
+            if (bloomFilter.mightContain("other" + i + "@test.com")) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < 300);
+    }
+
+    @Test
+    public void mightContain_notReady() {
+        Assert.assertTrue(emailFilter.mightContain("unknown@test.com"));
+        Assert.assertEquals(0, emailFilter.getSkippedCount());
+    }
+
+    @Test
+    public void rebuild_dropsDeleted() {
+        final List<String> emails = Arrays.asList("a@test.com", "b@test.com");
+        emailFilter.rebuild(emails.size(), consumer->emails.forEach(consumer));
+        emailFilter.add("c@test.com");
+        Assert.assertTrue(emailFilter.mightContain("a@test.com"));
+        Assert.assertTrue(emailFilter.mightContain("c@test.com"));
+        Assert.assertFalse(emailFilter.mightContain("unknown@test.com"));
+        emailFilter.rebuild(1, consumer->consumer.accept("a@test.com"));
+        Assert.assertFalse(emailFilter.mightContain("b@test.com"));
+    }
+
+    @Test
+    public void rebuild_invalidatedWhileRunning() {
+        emailFilter.rebuild(1, consumer->{
+            consumer.accept("a@test.com");
+            emailFilter.invalidate();
+        });
+        Assert.assertFalse(emailFilter.isReady());
+    }
+
+    @Test
+    public void add_whileRebuilding() {
+        emailFilter.rebuild(1, consumer->emailFilter.add("new@test.com"));
+        Assert.assertTrue(emailFilter.isReady());
+        Assert.assertTrue(emailFilter.mightContain("new@test.com"));
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.RevocationModel;
+import net.reallifegames.localauth.models.UserModel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class MemoryDbModuleTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+    private final Config config = Mockito.mock(Config.class);
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder().toPath();
+        Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_INVITE);
+    }
+
+    private MemoryDbModule open(final int journalSize) {
+        return new MemoryDbModule(directory, journalSize, 0, false);
+    }
+
+    @Test
+    public void createNewUser() {
+        final MemoryDbModule memoryDbModule = open(4096);
+        Assert.assertTrue(memoryDbModule.createNewUser(config, "admin@test.com", "password"));
+        Assert.assertFalse(memoryDbModule.createNewUser(config, "admin@test.com", "password"));
+        Assert.assertFalse(memoryDbModule.createNewUser(config, "uninvited@test.com", "password"));
+        Assert.assertTrue(memoryDbModule.createNewInvite("invited@test.com", Arrays.asList(1, 2)));
+        Assert.assertTrue(memoryDbModule.createNewUser(config, "invited@test.com", "password"));
+        Assert.assertNull(memoryDbModule.getUserInviteModelByEmail("invited@test.com"));
+        Assert.assertEquals(Collections.singletonList(0), memoryDbModule.getUserModelByEmail("admin@test.com").permissions);
+        Assert.assertEquals(Arrays.asList(1, 2), memoryDbModule.getUserAuthModelByEmail("invited@test.com").permissions);
+        memoryDbModule.close();
+    }
+
+    @Test
+    public void updateUserModel_superAdmin() {
+        final MemoryDbModule memoryDbModule = open(4096);
+        Assert.assertTrue(memoryDbModule.createNewUser(config, "admin@test.com", "password"));
+        Assert.assertFalse(memoryDbModule.updateUserModel("admin@test.com", "", false, Arrays.asList(5)));
+        Assert.assertTrue(memoryDbModule.updateUserModel("admin@test.com", "newpassword", false, Arrays.asList(5)));
+        final UserModel userModel = memoryDbModule.getUserCredentialsByEmail("admin@test.com");
+        Assert.assertTrue(userModel.active);
+        Assert.assertEquals(Collections.singletonList(0), userModel.permissions);
+        Assert.assertTrue(PasswordModule.checkPassword("newpassword", userModel.passwordHash));
+        memoryDbModule.close();
+    }
+
+    @Test
+    public void getUserModelCursor() {
+        final MemoryDbModule memoryDbModule = open(4096);
+        Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_OPEN);
+        Assert.assertTrue(memoryDbModule.createNewUser(config, "c@test.com", "password"));
+        Assert.assertTrue(memoryDbModule.createNewUser(config, "a@test.com", "password"));
+        Assert.assertTrue(memoryDbModule.createNewUser(config, "b@test.com", "password"));
+        final List<UserModel> firstPage = memoryDbModule.getUserModelCursor(null, 2).toList();
+        Assert.assertEquals("a@test.com", firstPage.get(0).email);
+        Assert.assertEquals("b@test.com", firstPage.get(1).email);
+        Assert.assertEquals("", firstPage.get(0).passwordHash);
+        final List<UserModel> secondPage = memoryDbModule.getUserModelCursor("b@test.com", 2).toList();
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertEquals("c@test.com", secondPage.get(0).email);
+        memoryDbModule.close();
+    }
+
+    @Test
+    public void versions() {
+        final MemoryDbModule memoryDbModule = open(4096);
+        final long usersVersion = memoryDbModule.getUsersVersion();
+        final long nodesVersion = memoryDbModule.getNodesVersion();
+        Assert.assertTrue(memoryDbModule.createNewNode("node", "text"));
+        Assert.assertEquals(usersVersion, memoryDbModule.getUsersVersion());
+        Assert.assertTrue(memoryDbModule.getNodesVersion() > nodesVersion);
+        Assert.assertTrue(memoryDbModule.createNewUser(config, "admin@test.com", "password"));
+        Assert.assertTrue(memoryDbModule.getUsersVersion() > usersVersion);
+        memoryDbModule.close();
+    }
+
+    @Test
+    public void recoverFromJournal() {
+        final MemoryDbModule crashed = open(4096);
+        Assert.assertTrue(crashed.createNewNode("node", "text"));
+        Assert.assertTrue(crashed.createNewInvite("invited@test.com", Arrays.asList(3)));
+        Assert.assertTrue(crashed.updateNode("node", "other"));
+        Assert.assertTrue(crashed.deleteInvite("invited@test.com"));
+        // Not closed, so nothing was written but the journal
+        final MemoryDbModule recovered = open(4096);
+        Assert.assertEquals("other", recovered.getAllNodeModels().get(0).defaultText);
+        Assert.assertTrue(recovered.getAllUserInviteModels().isEmpty());
+        recovered.close();
+    }
+
+    @Test
+    public void recoverFromSnapshotAndJournal() {
+        final MemoryDbModule crashed = open(4096);
+        Assert.assertTrue(crashed.createNewNode("node1", "text"));
+        crashed.snapshot();
+        Assert.assertTrue(crashed.createNewNode("node2", "text"));
+        Assert.assertTrue(crashed.deleteNode("node1"));
+        final MemoryDbModule recovered = open(4096);
+        Assert.assertEquals(1, recovered.getAllNodeModels().size());
+        Assert.assertEquals("node2", recovered.getAllNodeModels().get(0).id);
+        recovered.close();
+    }
+
+    @Test
+    public void revocations() {
+        final long now = System.currentTimeMillis();
+        final MemoryDbModule crashed = open(4096);
+        crashed.saveRevocation(RevocationModel.forToken("expired", now - 1000));
+        crashed.snapshot();
+        crashed.saveRevocation(RevocationModel.forToken("token", now + 60000));
+        crashed.saveRevocation(RevocationModel.forUser("test@test.com", now, 60000));
+        final MemoryDbModule recovered = open(4096);
+        final List<RevocationModel> revocations = recovered.getRevocations(now);
+        Assert.assertEquals(2, revocations.size());
+        Assert.assertTrue(revocations.stream().anyMatch(revocation->revocation.id.equals("token:token")));
+        Assert.assertTrue(revocations.stream().anyMatch(revocation->revocation.revokedBefore == now));
+        recovered.close();
+    }
+
+    @Test
+    public void refreshTokens() {
+        final long now = System.currentTimeMillis();
+        final MemoryDbModule crashed = open(4096);
+        crashed.saveRefreshToken(new RefreshTokenModel("first", "test@test.com", "family", 0, true, new Date(now + 60000)));
+        crashed.saveRefreshToken(new RefreshTokenModel("second", "test@test.com", "family", 0, true, new Date(now + 60000)));
+        crashed.saveRefreshToken(new RefreshTokenModel("other", "test@test.com", "other", 0, false, new Date(now + 60000)));
+        Assert.assertEquals(0, crashed.useRefreshToken("first", now).usedAt);
+        final MemoryDbModule recovered = open(4096);
+        Assert.assertEquals(now, recovered.useRefreshToken("first", now + 1).usedAt);
+        Assert.assertNull(recovered.useRefreshToken("second", now + 60000));
+        recovered.deleteRefreshTokenFamily("family");
+        Assert.assertNull(recovered.useRefreshToken("second", now));
+        Assert.assertNotNull(recovered.useRefreshToken("other", now));
+        recovered.close();
+    }
+
+    @Test
+    public void deleteUser_removesRefreshTokens() {
+        final long now = System.currentTimeMillis();
+        final MemoryDbModule crashed = open(4096);
+        Assert.assertTrue(crashed.createNewUser(config, "admin@test.com", "password"));
+        crashed.saveRefreshToken(new RefreshTokenModel("first", "admin@test.com", "family", 0, true, new Date(now + 60000)));
+        crashed.saveRefreshToken(new RefreshTokenModel("other", "other@test.com", "other", 0, true, new Date(now + 60000)));
+        Assert.assertTrue(crashed.deleteUser("admin@test.com"));
+        Assert.assertNull(crashed.useRefreshToken("first", now));
+        final MemoryDbModule recovered = open(4096);
+        Assert.assertNull(recovered.useRefreshToken("first", now));
+        Assert.assertNotNull(recovered.useRefreshToken("other", now));
+        recovered.close();
+    }
+
+    @Test
+    public void compactWhenJournalIsFull() {
+        final MemoryDbModule memoryDbModule = open(256);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(memoryDbModule.createNewNode("node" + i, "text"));
+        }
+        Assert.assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        final MemoryDbModule recovered = open(256);
+        Assert.assertEquals(100, recovered.getAllNodeModels().size());
+        recovered.close();
+    }
+
+    @Test
+    public void ignoreTornRecord() throws IOException {
+        final MemoryDbModule crashed = open(4096);
+        Assert.assertTrue(crashed.createNewNode("node1", "text"));
+        Assert.assertTrue(crashed.createNewNode("node2", "text"));
+        // Corrupt the last byte of the last record
+        try (final RandomAccessFile journal = new RandomAccessFile(directory.resolve("journal.bin").toFile(), "rw")) {
+            long end = journal.length() - 1;
+            journal.seek(end);
+            while (end > 0 && journal.read() == 0) {
+                journal.seek(--end);
+            }
+            journal.seek(end);
+            journal.write(0x7F);
+        }
+        final MemoryDbModule recovered = open(4096);
+        Assert.assertEquals(1, recovered.getAllNodeModels().size());
+        Assert.assertEquals("node1", recovered.getAllNodeModels().get(0).id);
+        recovered.close();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsModuleTest {
+
+    private final MetricsModule metricsModule = new MetricsModule();
+
+    @Test
+    public void histogram_Buckets() {
+        final Histogram histogram = new Histogram();
+        histogram.observe(50_000L);
+        histogram.observe(2_000_000L);
+        histogram.observe(20_000_000_000L);
+        Assert.assertEquals(3, histogram.getCount());
+        final StringBuilder builder = new StringBuilder();
+        histogram.write(builder, "test_seconds", "");
+        final String text = builder.toString();
+        Assert.assertTrue(text.contains("test_seconds_bucket{le=\"1.0E-4\"} 1\n"));
+        Assert.assertTrue(text.contains("test_seconds_bucket{le=\"0.0025\"} 2\n"));
+        Assert.assertTrue(text.contains("test_seconds_bucket{le=\"10.0\"} 2\n"));
+        Assert.assertTrue(text.contains("test_seconds_bucket{le=\"+Inf\"} 3\n"));
+        Assert.assertTrue(text.contains("test_seconds_count 3\n"));
+    }
+
+    @Test
+    public void observeRequest_RegisteredRoute() {
+        metricsModule.registerRoute("GET", "/api/v2/users/*");
+        metricsModule.observeRequest("GET", "/api/v2/users/*", 200, 1_000_000L);
+        metricsModule.observeRequest("GET", "/missing", 404, 1_000_000L);
+        final String text = metricsModule.scrape();
+        Assert.assertTrue(text.contains(
+                "localauth_http_request_duration_seconds_count{method=\"GET\",route=\"/api/v2/users/*\"} 1\n"
+        ));
+        Assert.assertTrue(text.contains(
+                "localauth_http_request_duration_seconds_count{method=\"\",route=\"unmatched\"} 1\n"
+        ));
+        Assert.assertEquals(1, metricsModule.getStatusCount(200));
+        Assert.assertEquals(1, metricsModule.getStatusCount(404));
+        Assert.assertTrue(text.contains("localauth_http_responses_total{status=\"404\"} 1\n"));
+    }
+
+    @Test
+    public void setEnabled_StopsRecording() {
+        final Histogram before = metricsModule.histogram("test_seconds", "Test.", "op=\"before\"");
+        metricsModule.setEnabled(false);
+        final Histogram after = metricsModule.histogram("test_seconds", "Test.", "op=\"after\"");
+        before.observe(1_000L);
+        after.observe(1_000L);
+        Assert.assertEquals(0, before.getCount());
+        Assert.assertEquals(0, after.getCount());
+    }
+
+    @Test
+    public void cache_HitRatio() {
+        metricsModule.cache("test", ()->3, ()->1);
+        final String text = metricsModule.scrape();
+        Assert.assertTrue(text.contains("# TYPE localauth_cache_hits_total counter\n"));
+        Assert.assertTrue(text.contains("localauth_cache_hits_total{cache=\"test\"} 3\n"));
+        Assert.assertTrue(text.contains("localauth_cache_hit_ratio{cache=\"test\"} 0.75\n"));
+    }
+}
@@ -28,6 +28,8 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import de.bwaldvogel.mongo.MongoServer;
 import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.UserModel;
 import org.bson.Document;
 import org.junit.After;
 import org.junit.Assert;
@@ -38,6 +40,9 @@ import org.mockito.Mockito;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 
 public class MongoDbModuleTest {
 
@@ -159,6 +164,89 @@ public class MongoDbModuleTest {
         Assert.assertNotNull(mongoDbModule.getUserModelByEmail("default@test.com"));
     }
 
+    @Test
+    public void findDefaultUser_projections() {
+        final UserModel authModel = mongoDbModule.getUserAuthModelByEmail("default@test.com");
+        Assert.assertNotNull(authModel);
+        Assert.assertEquals("default@test.com", authModel.email);
+        Assert.assertTrue(authModel.active);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), authModel.permissions);
+        Assert.assertNull(authModel.passwordHash);
+        final UserModel credentials = mongoDbModule.getUserCredentialsByEmail("default@test.com");
+        Assert.assertNotNull(credentials);
+        Assert.assertEquals("1$2123$asd5165fd1gb65fg1h561sd5f16sa5d1", credentials.passwordHash);
+        mongoDbModule.getAllUserModels().forEach(userModel->Assert.assertNull(userModel.passwordHash));
+    }
+
+    @Test
+    public void findDefaultUser_cached() {
+        Assert.assertNotNull(mongoDbModule.getUserAuthModelByEmail("default@test.com"));
+        Assert.assertNotNull(mongoDbModule.getUserAuthModelByEmail("default@test.com"));
+        Assert.assertEquals(1, mongoDbModule.getUserCacheHits());
+        Assert.assertEquals(1, mongoDbModule.getUserCacheMisses());
+    }
+
+    @Test
+    public void findDefaultUserAsync() {
+        final UserModel userModel = mongoDbModule.getUserAuthModelByEmailAsync("default@test.com").join();
+        Assert.assertNotNull(userModel);
+        Assert.assertTrue(userModel.active);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), userModel.permissions);
+        Assert.assertEquals("", userModel.passwordHash);
+        Assert.assertSame(userModel, mongoDbModule.getUserAuthModelByEmailAsync("default@test.com").join());
+        Assert.assertNull(mongoDbModule.getUserModelByEmailAsync("missing@test.com").join());
+        Assert.assertEquals("1$2123$asd5165fd1gb65fg1h561sd5f16sa5d1",
+                mongoDbModule.getUserCredentialsByEmailAsync("default@test.com").join().passwordHash);
+    }
+
+    @Test
+    public void findDefaultUser_invalidatedByUpdate() {
+        Assert.assertTrue(mongoDbModule.getUserAuthModelByEmail("default@test.com").active);
+        Assert.assertTrue(mongoDbModule.updateUserModel("default@test.com", "", false, null));
+        Assert.assertFalse(mongoDbModule.getUserAuthModelByEmail("default@test.com").active);
+    }
+
+    @Test
+    public void findDefaultUser_invalidatedByExternalChange() {
+        Assert.assertTrue(mongoDbModule.getUserAuthModelByEmail("default@test.com").active);
+        mongoClient.getDatabase(DB_NAME).getCollection("users").updateOne(
+                com.mongodb.client.model.Filters.eq("_id", "default@test.com"),
+                com.mongodb.client.model.Updates.set("active", false)
+        );
+        Assert.assertTrue(mongoDbModule.getUserAuthModelByEmail("default@test.com").active);
+        mongoDbModule.onDocumentChanged("users", "default@test.com");
+        Assert.assertFalse(mongoDbModule.getUserAuthModelByEmail("default@test.com").active);
+        Assert.assertEquals(1, mongoDbModule.getUserVersions().size());
+    }
+
+    @Test
+    public void userVersions_onlyCurrentWhileTracked() {
+        Assert.assertFalse(mongoDbModule.getUserVersions().isCurrent("default@test.com", Long.MAX_VALUE));
+        mongoDbModule.setVersionsTracked(true);
+        Assert.assertTrue(mongoDbModule.getUserVersions().isCurrent("default@test.com", Long.MAX_VALUE));
+        mongoDbModule.setVersionsTracked(false);
+        Assert.assertFalse(mongoDbModule.getUserVersions().isCurrent("default@test.com", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void emailFilter() {
+        Assert.assertFalse(mongoDbModule.getEmailFilter().isReady());
+        mongoDbModule.setVersionsTracked(true);
+        mongoDbModule.rebuildEmailFilter();
+        Assert.assertTrue(mongoDbModule.getEmailFilter().isReady());
+        Assert.assertNull(mongoDbModule.getUserCredentialsByEmail("unknown@test.com"));
+        Assert.assertEquals(1, mongoDbModule.getEmailFilter().getSkippedCount());
+        Assert.assertNotNull(mongoDbModule.getUserCredentialsByEmail("default@test.com"));
+        // A signup on another replica arrives through the change stream
+        mongoClient.getDatabase(DB_NAME).getCollection("users").insertOne(
+                new Document("_id", "replica@test.com").append("passwordHash", "").append("active", true)
+        );
+        mongoDbModule.onDocumentChanged("users", "replica@test.com");
+        Assert.assertNotNull(mongoDbModule.getUserCredentialsByEmail("replica@test.com"));
+        mongoDbModule.setVersionsTracked(false);
+        Assert.assertFalse(mongoDbModule.getEmailFilter().isReady());
+    }
+
     @Test
     public void createNewUserWithInvite() {
         Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_INVITE);
@@ -199,6 +287,24 @@ public class MongoDbModuleTest {
         Assert.assertNull(doc);
     }
 
+    @Test
+    public void createNewUserWithInvite_existingUser() {
+        Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_INVITE);
+        Assert.assertFalse(mongoDbModule.createNewUser(config, "default@test.com", "test"));
+        final Document doc = mongoClient.getDatabase(DB_NAME).getCollection("users").find(com.mongodb.client.model.Filters.eq("_id", "default@test.com")).first();
+        Assert.assertNotNull(doc);
+        Assert.assertEquals("1$2123$asd5165fd1gb65fg1h561sd5f16sa5d1", doc.getString("passwordHash"));
+        // The invite is given back when the signup fails
+        Assert.assertNotNull(mongoDbModule.getUserInviteModelByEmail("default@test.com"));
+    }
+
+    @Test
+    public void createNewUserWithInvite_consumesInvite() {
+        Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_INVITE);
+        Assert.assertTrue(mongoDbModule.createNewUser(config, "default2@test.com", "test"));
+        Assert.assertNull(mongoDbModule.getUserInviteModelByEmail("default2@test.com"));
+    }
+
     @Test
     public void createNewUserOpen_notActive() {
         Mockito.when(config.getAccountCreationType()).thenReturn(Config.ACCOUNT_CREATION_OPEN);
@@ -244,6 +350,24 @@ public class MongoDbModuleTest {
         Assert.assertTrue(mongoDbModule.getAllUserModels().size() >= 2);
     }
 
+    @Test
+    public void findUserPages() {
+        final List<String> emails = new ArrayList<>();
+        String after = null;
+        while (true) {
+            final List<UserModel> page = mongoDbModule.getUserModelCursor(after, 3).toList();
+            page.forEach(userModel->emails.add(userModel.email));
+            if (page.size() < 3) {
+                break;
+            }
+            after = page.get(page.size() - 1).email;
+        }
+        final List<String> sortedEmails = new ArrayList<>(emails);
+        Collections.sort(sortedEmails);
+        Assert.assertEquals(mongoDbModule.getAllUserModels().size(), emails.size());
+        Assert.assertEquals(sortedEmails, emails);
+    }
+
     @Test
     public void updateUser_fail() {
         Assert.assertFalse(mongoDbModule.updateUserModel("defaul@test.com", "", false, new ArrayList<>()));
@@ -307,6 +431,31 @@ public class MongoDbModuleTest {
         Assert.assertFalse(doc.getList("permissions", Integer.class).containsAll(Arrays.asList(6, 7, 8, 9, 10)));
     }
 
+    @Test
+    public void updateUser_failOnAdminWithoutPassword() {
+        Assert.assertFalse(mongoDbModule.updateUserModel("default6@test.com", "", false, Arrays.asList(6, 7, 8, 9, 10)));
+
+        final Document doc = mongoClient.getDatabase(DB_NAME).getCollection("users").find(com.mongodb.client.model.Filters.eq("_id", "default6@test.com")).first();
+        Assert.assertNotNull(doc);
+        Assert.assertTrue(doc.getBoolean("active"));
+        Assert.assertEquals(Collections.singletonList(0), doc.getList("permissions", Integer.class));
+    }
+
+    @Test
+    public void updateUser_setPassword_fail() {
+        Assert.assertFalse(mongoDbModule.updateUserModel("defaul@test.com", "123456", false, null));
+    }
+
+    @Test
+    public void refreshTokens_indexed() {
+        final List<Object> keys = new ArrayList<>();
+        for (final Document index : mongoClient.getDatabase(DB_NAME).getCollection("refresh_tokens").listIndexes()) {
+            keys.addAll(((Document) index.get("key")).keySet());
+        }
+        Assert.assertTrue(keys.contains("family"));
+        Assert.assertTrue(keys.contains("email"));
+    }
+
     @Test
     public void deleteUser_fail() {
         Assert.assertFalse(mongoDbModule.deleteUser("defaul@test.com"));
@@ -314,9 +463,12 @@ public class MongoDbModuleTest {
 
     @Test
     public void deleteUser_successes() {
+        final long now = System.currentTimeMillis();
+        mongoDbModule.saveRefreshToken(new RefreshTokenModel("first", "default6@test.com", "family", 0, true, new Date(now + 60000)));
         Assert.assertTrue(mongoDbModule.deleteUser("default6@test.com"));
         final Document doc = mongoClient.getDatabase(DB_NAME).getCollection("users").find(com.mongodb.client.model.Filters.eq("_id", "default6@test.com")).first();
         Assert.assertNull(doc);
+        Assert.assertNull(mongoDbModule.useRefreshToken("first", now));
     }
 
     @Test
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PasswordModuleTest {
+
+    private final PasswordModule passwordModule = new PasswordModule(1, 1);
+
+    @Test
+    public void hashAndCheck_Success() {
+        final String hash = passwordModule.submit(()->PasswordModule.hashPassword("123456")).join();
+        Assert.assertTrue(passwordModule.submit(()->PasswordModule.checkPassword("123456", hash)).join());
+        Assert.assertFalse(passwordModule.submit(()->PasswordModule.checkPassword("1234567", hash)).join());
+        Assert.assertTrue(PasswordModule.getHashCount() >= 3);
+    }
+
+    @Test
+    public void submit_ContinuesOnCallbackExecutor() {
+        final AtomicInteger callbacks = new AtomicInteger();
+        passwordModule.setCallbackExecutor(runnable->{
+            callbacks.incrementAndGet();
+            runnable.run();
+        });
+        Assert.assertTrue(passwordModule.submit(()->true).join());
+        Assert.assertEquals(1, callbacks.get());
+    }
+
+    @Test (expected = RejectedExecutionException.class)
+    public void submit_QueueFull() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            // One task running and one queued fills the pool
+            passwordModule.submit(()->{
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+            passwordModule.submit(()->true);
+            Assert.assertEquals(1, passwordModule.getQueueDepth());
+            passwordModule.submit(()->true);
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        passwordModule.close();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.UserModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class PermissionsTest {
+
+    @Test
+    public void mask_MatchesValues() {
+        Assert.assertEquals(Permissions.mask(Permissions.IS_USER_ADMIN, Permissions.CAN_USER_DELETE_NODE),
+                Permissions.mask(Arrays.asList(1, 9)));
+        Assert.assertEquals(Permissions.NO_PERMISSIONS, Permissions.mask(Collections.emptyList()));
+        Assert.assertTrue(Permissions.hasValue(Permissions.ADMIN_PERMISSIONS, 0));
+        Assert.assertFalse(Permissions.hasValue(Permissions.ADMIN_PERMISSIONS, 2));
+        Assert.assertFalse(Permissions.hasValue(Permissions.ADMIN_PERMISSIONS, 64));
+    }
+
+    @Test
+    public void getValidPermissions_Trimmed() {
+        Assert.assertEquals(Arrays.asList(1, 9), Permissions.getValidPermissions(Arrays.asList(0, 1, 9, 10, -1)));
+    }
+
+    @Test
+    public void userModel_HasPermission() {
+        final UserModel userModel = new UserModel("test@test.com", "", true, false, Arrays.asList(2, 5));
+        Assert.assertTrue(userModel.hasPermission(Permissions.NO_PERMISSIONS));
+        Assert.assertTrue(userModel.hasPermission(Permissions.mask(Permissions.IS_USER_ADMIN, Permissions.CAN_USER_MOD_USERS)));
+        Assert.assertFalse(userModel.hasPermission(Permissions.ADMIN_PERMISSIONS));
+        Assert.assertTrue(userModel.hasPermissionValue(2));
+        Assert.assertFalse(new UserModel("test@test.com", "", false, false, Arrays.asList(2, 5)).hasPermission(Permissions.NO_PERMISSIONS));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void tryAcquire_burstThenRefill() {
+        // One permit a second with a burst of three
+        final RateLimiter rateLimiter = new RateLimiter(60, 3, 1024);
+        final long now = 0;
+        Assert.assertTrue(rateLimiter.tryAcquire("a", now));
+        Assert.assertTrue(rateLimiter.tryAcquire("a", now));
+        Assert.assertTrue(rateLimiter.tryAcquire("a", now));
+        Assert.assertFalse(rateLimiter.tryAcquire("a", now));
+        Assert.assertTrue(rateLimiter.tryAcquire("b", now));
+        Assert.assertTrue(rateLimiter.tryAcquire("a", now + 1_000_000_000L));
+        Assert.assertFalse(rateLimiter.tryAcquire("a", now + 1_000_000_000L));
+        Assert.assertEquals(2, rateLimiter.getRejectedCount());
+    }
+
+    @Test
+    public void tryAcquire_unlimited() {
+        final RateLimiter rateLimiter = new RateLimiter(0, 0, 1);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(rateLimiter.tryAcquire("a"));
+        }
+        Assert.assertEquals(0, rateLimiter.size());
+    }
+
+    @Test
+    public void tryAcquire_boundedKeys() {
+        // One key per stripe
+        final RateLimiter rateLimiter = new RateLimiter(60, 1, 16);
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.tryAcquire("key" + i, 0);
+        }
+        Assert.assertTrue(rateLimiter.size() <= 16);
+        // New keys are still let in while every stripe is full
+        Assert.assertEquals(0, rateLimiter.getRejectedCount());
+        Assert.assertTrue(rateLimiter.tryAcquire("new", 1));
+        Assert.assertTrue(rateLimiter.size() <= 16);
+    }
+
+    @Test
+    public void tryAcquire_evictsClosestToFull() {
+        // One key per stripe, a permit every second with a burst of two
+        final RateLimiter rateLimiter = new RateLimiter(60, 2, 1);
+        final String busy = "busy";
+        String quiet = null;
+        for (int i = 0; quiet == null; i++) {
+            if (sameStripe(busy, "quiet" + i)) {
+                quiet = "quiet" + i;
+            }
+        }
+        Assert.assertTrue(rateLimiter.tryAcquire(busy, 0));
+        Assert.assertTrue(rateLimiter.tryAcquire(busy, 0));
+        Assert.assertFalse(rateLimiter.tryAcquire(busy, 0));
+        // The only bucket is evicted rather than the new key refused
+        Assert.assertTrue(rateLimiter.tryAcquire(quiet, 0));
+        Assert.assertEquals(1, rateLimiter.size());
+    }
+
+    private static boolean sameStripe(final String a, final String b) {
+        final int hashA = a.hashCode();
+        final int hashB = b.hashCode();
+        return ((hashA ^ (hashA >>> 16)) & 15) == ((hashB ^ (hashB >>> 16)) & 15);
+    }
+}
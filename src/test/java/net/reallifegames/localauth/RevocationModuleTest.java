@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import net.reallifegames.localauth.models.RevocationModel;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+
+public class RevocationModuleTest {
+
+    private final RevocationStore revocationStore = Mockito.mock(RevocationStore.class);
+
+    @Test
+    public void revokeToken() {
+        final RevocationModule revocationModule = new RevocationModule(revocationStore, 60000, 0);
+        revocationModule.revokeToken("token", System.currentTimeMillis() + 60000);
+        Assert.assertTrue(revocationModule.isRevoked("token", "test@test.com", 0));
+        Assert.assertFalse(revocationModule.isRevoked("other", "test@test.com", 0));
+        Assert.assertFalse(revocationModule.isRevoked(null, "test@test.com", 0));
+        Mockito.verify(revocationStore).saveRevocation(ArgumentMatchers.argThat(revocation->revocation.id.equals("token:token")));
+    }
+
+    @Test
+    public void revokeUser() {
+        final RevocationModule revocationModule = new RevocationModule(revocationStore, 60000, 0);
+        final long before = System.currentTimeMillis() - 1000;
+        revocationModule.revokeUser("test@test.com");
+        Assert.assertTrue(revocationModule.isRevoked("token", "test@test.com", before));
+        Assert.assertFalse(revocationModule.isRevoked("token", "test@test.com", System.currentTimeMillis() + 1000));
+        Assert.assertFalse(revocationModule.isRevoked("token", "other@test.com", before));
+    }
+
+    @Test
+    public void refresh() {
+        final long now = System.currentTimeMillis();
+        Mockito.when(revocationStore.getRevocations(ArgumentMatchers.anyLong())).thenReturn(Arrays.asList(
+                RevocationModel.forToken("token", now + 60000),
+                RevocationModel.forUser("test@test.com", now, 60000)
+        ));
+        final RevocationModule revocationModule = new RevocationModule(revocationStore, 60000, 0);
+        Assert.assertEquals(2, revocationModule.size());
+        Assert.assertTrue(revocationModule.isRevoked("token", "other@test.com", now));
+        Assert.assertTrue(revocationModule.isRevoked(null, "test@test.com", now - 1000));
+    }
+
+    @Test
+    public void purge() {
+        final RevocationModule revocationModule = new RevocationModule(revocationStore, 60000, 0);
+        final long now = System.currentTimeMillis();
+        revocationModule.revokeToken("token", now + 1000);
+        revocationModule.revokeUser("test@test.com");
+        revocationModule.purge(now + 1000);
+        Assert.assertEquals(1, revocationModule.size());
+        revocationModule.purge(now + 120000);
+        Assert.assertEquals(0, revocationModule.size());
+    }
+
+    @Test
+    public void revokeToken_storeDown() {
+        Mockito.doThrow(new StoreException("saveRevocation", new RuntimeException())).when(revocationStore)
+                .saveRevocation(ArgumentMatchers.any());
+        final RevocationModule revocationModule = new RevocationModule(revocationStore, 60000, 0);
+        revocationModule.revokeToken("token", System.currentTimeMillis() + 60000);
+        Assert.assertTrue(revocationModule.isRevoked("token", "test@test.com", 0));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UserVersionsTest {
+
+    private final UserVersions userVersions = new UserVersions();
+
+    @Test
+    public void isCurrent_issuedBeforeCreation() {
+        final long now = System.currentTimeMillis();
+        Assert.assertFalse(userVersions.isCurrent("test@test.com", now - 60000));
+        Assert.assertTrue(userVersions.isCurrent("test@test.com", now + 60000));
+    }
+
+    @Test
+    public void changed_onlyThatUser() throws InterruptedException {
+        final long issuedAt = System.currentTimeMillis() + 1;
+        Thread.sleep(2);
+        Assert.assertTrue(userVersions.isCurrent("test@test.com", issuedAt));
+        userVersions.changed("test@test.com");
+        Assert.assertFalse(userVersions.isCurrent("test@test.com", issuedAt));
+        Assert.assertTrue(userVersions.isCurrent("other@test.com", issuedAt));
+        Assert.assertEquals(1, userVersions.size());
+    }
+
+    @Test
+    public void changedAll_everyUser() throws InterruptedException {
+        userVersions.changed("test@test.com");
+        final long issuedAt = System.currentTimeMillis() + 1;
+        Thread.sleep(2);
+        Assert.assertTrue(userVersions.isCurrent("other@test.com", issuedAt));
+        userVersions.changedAll();
+        Assert.assertFalse(userVersions.isCurrent("other@test.com", issuedAt));
+        Assert.assertEquals(0, userVersions.size());
+    }
+
+    @Test
+    public void isCurrent_untracked() {
+        final long issuedAt = System.currentTimeMillis() + 60000;
+        userVersions.setTracked(false);
+        Assert.assertFalse(userVersions.isCurrent("test@test.com", issuedAt));
+        userVersions.setTracked(true);
+        Assert.assertTrue(userVersions.isCurrent("test@test.com", issuedAt));
+    }
+}
@@ -26,15 +26,27 @@ package net.reallifegames.localauth.api.v1;
 import io.javalin.http.Context;
 import io.javalin.http.UnauthorizedResponse;
 import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.models.UserModel;
+import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import javax.annotation.Nonnull;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
 public class ApiControllerTest {
 
@@ -52,14 +64,23 @@ public class ApiControllerTest {
         Mockito.verify(context, Mockito.never()).status(status);
     }
 
+    @SuppressWarnings ("unchecked")
+    public static void awaitResult(@Nonnull final Context context) {
+        final ArgumentCaptor<CompletableFuture<?>> captor = ArgumentCaptor.forClass(
+                (Class<CompletableFuture<?>>) (Class<?>) CompletableFuture.class
+        );
+        Mockito.verify(context).result(captor.capture());
+        captor.getValue().join();
+    }
+
     @Test
     public void GET_beforeApiAuthentication_Unauthorized() {
         Mockito.when(ctx.cookie("authToken")).thenReturn("");
         Mockito.when(securityModule.getJWSEmailClaim("")).thenReturn("");
         Mockito.when(securityModule.isJWSTokenValid("")).thenReturn(false);
-        Mockito.when(dbModule.getUserModelByEmail("")).thenReturn(new UserModel("", "", true, false, Collections.emptyList()));
+        Mockito.when(dbModule.getUserAuthModelByEmail("")).thenReturn(new UserModel("", "", true, false, Collections.emptyList()));
         try {
-            ApiController.beforeApiAuthentication(ctx, dbModule, securityModule, Arrays.asList(0));
+            ApiController.beforeApiAuthentication(ctx, dbModule, securityModule, Permissions.IS_USER_SUPER_ADMIN.mask);
         } catch (UnauthorizedResponse e) {
             ApiControllerTest.mockitoJsonStatus(ctx, 401);
         }
@@ -71,19 +92,79 @@ public class ApiControllerTest {
         Mockito.when(ctx.cookie("authToken")).thenReturn("");
         Mockito.when(securityModule.getJWSEmailClaim("")).thenReturn(email);
         Mockito.when(securityModule.isJWSTokenValid("")).thenReturn(true);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
-        ApiController.beforeApiAuthentication(ctx, dbModule, securityModule, Arrays.asList(0));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        ApiController.beforeApiAuthentication(ctx, dbModule, securityModule, Permissions.IS_USER_SUPER_ADMIN.mask);
 
         ApiControllerTest.mockitoJsonStatusNot(ctx, 401);
     }
 
     @Test
-    public void GET_getApiInformation_200_ApiResponse() {
-        try {
-            ApiController.getApiInformation(ctx);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        ApiControllerTest.mockitoJsonStatus(ctx, 200);
+    public void GET_getApiInformation_200_ApiResponse() throws IOException {
+        final HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Mockito.when(res.getOutputStream()).thenReturn(servletOutputStream(outputStream));
+        ApiController.getApiInformation(new Context(req, res, Collections.emptyMap()));
+        Mockito.verify(res).setStatus(200);
+        Mockito.verify(res).setHeader("Vary", "Accept-Encoding");
+        Assert.assertEquals("{\"version\":\"v2\"}", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    static ServletOutputStream servletOutputStream(@Nonnull final ByteArrayOutputStream outputStream) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(final WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(final int b) {
+                outputStream.write(b);
+            }
+        };
+    }
+
+    @Test
+    public void jsonStreamResponse_200() throws IOException {
+        final HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Mockito.when(res.getOutputStream()).thenReturn(servletOutputStream(outputStream));
+        ApiController.jsonStreamResponse(ApiController.apiResponse, new Context(req, res, Collections.emptyMap()), true);
+        Mockito.verify(res).setStatus(200);
+        Assert.assertEquals("{\"version\":\"v2\"}", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void jsonStreamResponse_gzip_200() throws IOException {
+        final HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Mockito.when(req.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        Mockito.when(res.getOutputStream()).thenReturn(servletOutputStream(outputStream));
+        ApiController.jsonStreamResponse(ApiController.apiResponse, new Context(req, res, Collections.emptyMap()), true);
+        Mockito.verify(res).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(res).setHeader("Vary", "Accept-Encoding");
+        final GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        Assert.assertEquals("{\"version\":\"v2\"}", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void matchesETag() {
+        Assert.assertTrue(ApiController.matchesETag("\"a\"", "\"a\""));
+        Assert.assertTrue(ApiController.matchesETag("\"b\", W/\"a\"", "\"a\""));
+        Assert.assertTrue(ApiController.matchesETag("*", "\"a\""));
+        Assert.assertFalse(ApiController.matchesETag("\"b\"", "\"a\""));
+    }
+
+    @Test
+    public void versionETag() {
+        Assert.assertNull(ApiController.versionETag(-1, "nodes"));
+        Assert.assertNotEquals(ApiController.versionETag(1, "nodes"), ApiController.versionETag(2, "nodes"));
+        Assert.assertNotEquals(ApiController.versionETag(1, "nodes"), ApiController.versionETag(1, "users"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v1;
+
+import io.javalin.http.Context;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+public class StaticJsonResponseTest {
+
+    private final StaticJsonResponse response = new StaticJsonResponse(new ApiResponse("v2"));
+    private final HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+    private final HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    @Test
+    public void write_200() throws IOException {
+        Mockito.when(res.getOutputStream()).thenReturn(ApiControllerTest.servletOutputStream(outputStream));
+        response.write(new Context(req, res, Collections.emptyMap()));
+        Mockito.verify(res).setStatus(200);
+        Mockito.verify(res).setHeader("ETag", response.getETag());
+        Assert.assertEquals("{\"version\":\"v2\"}", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void write_gzip_200() throws IOException {
+        Mockito.when(req.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        Mockito.when(res.getOutputStream()).thenReturn(ApiControllerTest.servletOutputStream(outputStream));
+        response.write(new Context(req, res, Collections.emptyMap()));
+        Mockito.verify(res).setHeader("Content-Encoding", "gzip");
+        final GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        Assert.assertEquals("{\"version\":\"v2\"}", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void write_notModified_304() throws IOException {
+        Mockito.when(req.getHeader("If-None-Match")).thenReturn(response.getETag());
+        response.write(new Context(req, res, Collections.emptyMap()));
+        Mockito.verify(res).setStatus(304);
+        Mockito.verify(res, Mockito.never()).getOutputStream();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.authentication.delete;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import javax.servlet.http.Cookie;
+import java.util.Date;
+
+public class AuthenticationDeleteControllerTest {
+
+    private final Context ctx = Mockito.mock(Context.class);
+    private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
+    private final SecurityModule securityModule = Mockito.mock(SecurityModule.class);
+    private final Config config = Mockito.mock(Config.class);
+
+    @Before
+    public void setUp() {
+        Mockito.when(config.getDomain()).thenReturn("localhost");
+    }
+
+    @Test
+    public void DELETE_deleteAuthentication_revokes() {
+        final SecurityModule.VerifiedToken verifiedToken = new SecurityModule.VerifiedToken("id", "test@test.com", 0, Long.MAX_VALUE);
+        Mockito.when(ctx.cookie("authToken")).thenReturn("token");
+        Mockito.when(ctx.cookie("refreshToken")).thenReturn("refresh");
+        Mockito.when(securityModule.verifyJWSToken(config, "token")).thenReturn(verifiedToken);
+        Mockito.when(securityModule.getRefreshTokenId("refresh")).thenReturn("refreshId");
+        Mockito.when(dbModule.useRefreshToken(ArgumentMatchers.eq("refreshId"), ArgumentMatchers.anyLong())).thenReturn(
+                new RefreshTokenModel("refreshId", "test@test.com", "family", 0, false, new Date(Long.MAX_VALUE))
+        );
+        AuthenticationDeleteController.deleteAuthentication(ctx, dbModule, securityModule, config);
+        Mockito.verify(securityModule).revokeToken(verifiedToken);
+        Mockito.verify(dbModule).deleteRefreshTokenFamily("family");
+        Mockito.verify(ctx, Mockito.times(3)).cookie(ArgumentMatchers.<Cookie>argThat(cookie->cookie.getMaxAge() == 0));
+        Mockito.verify(ctx).status(200);
+    }
+
+    @Test
+    public void DELETE_deleteAuthentication_noToken() {
+        AuthenticationDeleteController.deleteAuthentication(ctx, dbModule, securityModule, config);
+        Mockito.verify(securityModule, Mockito.never()).revokeToken(ArgumentMatchers.any());
+        Mockito.verify(dbModule, Mockito.never()).deleteRefreshTokenFamily(ArgumentMatchers.any());
+        Mockito.verify(ctx).status(200);
+    }
+}
@@ -24,7 +24,6 @@
 package net.reallifegames.localauth.api.v2.authentication.get;
 
 import io.javalin.http.Context;
-import io.javalin.http.UnauthorizedResponse;
 import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.SecurityModule;
 import net.reallifegames.localauth.api.v1.ApiControllerTest;
@@ -33,7 +32,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 public class AuthenticationGetControllerTest {
 
@@ -46,12 +45,10 @@ public class AuthenticationGetControllerTest {
         Mockito.when(ctx.cookie("authToken")).thenReturn("");
         Mockito.when(securityModule.getJWSEmailClaim("")).thenReturn("");
         Mockito.when(securityModule.isJWSTokenValid("")).thenReturn(false);
-        Mockito.when(dbModule.getUserModelByEmail("")).thenReturn(new UserModel("", "", true, false, Collections.emptyList()));
-        try {
-            AuthenticationGetController.getAuthentication(ctx, dbModule, securityModule);
-        } catch (UnauthorizedResponse e) {
-            ApiControllerTest.mockitoJsonStatus(ctx, 401);
-        }
+        AuthenticationGetController.getAuthentication(ctx, dbModule, securityModule);
+        ApiControllerTest.awaitResult(ctx);
+        ApiControllerTest.mockitoJsonStatus(ctx, 401);
+        Mockito.verify(dbModule, Mockito.never()).getUserAuthModelByEmailAsync(Mockito.anyString());
     }
 
     @Test
@@ -60,8 +57,9 @@ public class AuthenticationGetControllerTest {
         Mockito.when(ctx.cookie("authToken")).thenReturn("");
         Mockito.when(securityModule.getJWSEmailClaim("")).thenReturn(email);
         Mockito.when(securityModule.isJWSTokenValid("")).thenReturn(true);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmailAsync(email)).thenReturn(CompletableFuture.completedFuture(new UserModel(email, "", true, false, Arrays.asList(0))));
         AuthenticationGetController.getAuthentication(ctx, dbModule, securityModule);
+        ApiControllerTest.awaitResult(ctx);
 
         ApiControllerTest.mockitoJsonStatusNot(ctx, 401);
     }
@@ -25,15 +25,25 @@ package net.reallifegames.localauth.api.v2.authentication.post;
 
 import io.javalin.http.Context;
 import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.LoginThrottleModule;
 import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.PasswordModule;
+import net.reallifegames.localauth.RateLimiter;
 import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v1.ApiControllerTest;
 import net.reallifegames.localauth.models.UserModel;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.mindrot.jbcrypt.BCrypt;
 import org.mockito.Mockito;
 
-import java.sql.Date;
+import javax.servlet.http.Cookie;
+
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AuthenticationPostControllerTest {
 
@@ -41,11 +51,20 @@ public class AuthenticationPostControllerTest {
     private final SecurityModule securityModule = Mockito.mock(SecurityModule.class);
     private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
     private final Config config = Mockito.mock(Config.class);
+    private final PasswordModule passwordModule = new PasswordModule(1, 4);
+    private final LoginThrottleModule throttleModule = new LoginThrottleModule(
+            new RateLimiter(0, 0, 1), new RateLimiter(0, 0, 1)
+    );
+
+    @Before
+    public void setUp() {
+        Mockito.when(ctx.ip()).thenReturn("127.0.0.1");
+    }
 
     @Test
     public void POST_postAuthentication_400() {
         Mockito.when(ctx.body()).thenReturn("");
-        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, config);
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, passwordModule, throttleModule, config);
         Mockito.verify(ctx).status(400);
     }
 
@@ -53,8 +72,8 @@ public class AuthenticationPostControllerTest {
     public void POST_postAuthentication_406_nullUser() {
         final String email = "test@test.com";
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"" + email + "\", \"password\":\"123456\", \"rememberMe\": false}");
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(null);
-        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, config);
+        Mockito.when(dbModule.getUserCredentialsByEmail(email)).thenReturn(null);
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, passwordModule, throttleModule, config);
         Mockito.verify(ctx).status(406);
     }
 
@@ -64,8 +83,9 @@ public class AuthenticationPostControllerTest {
         final String pass = "123";
         final String passHash = BCrypt.hashpw(pass, BCrypt.gensalt());
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"" + email + "\", \"password\":\"123456\", \"rememberMe\": false}");
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, passHash, false, false, new ArrayList<>()));
-        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, config);
+        Mockito.when(dbModule.getUserCredentialsByEmail(email)).thenReturn(new UserModel(email, passHash, false, false, new ArrayList<>()));
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, passwordModule, throttleModule, config);
+        ApiControllerTest.awaitResult(ctx);
         Mockito.verify(ctx).status(406);
     }
 
@@ -75,8 +95,9 @@ public class AuthenticationPostControllerTest {
         final String pass = "123456";
         final String passHash = BCrypt.hashpw(pass, BCrypt.gensalt());
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"" + email + "\", \"password\":\"123456\", \"rememberMe\": false}");
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, passHash, false, false, new ArrayList<>()));
-        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, config);
+        Mockito.when(dbModule.getUserCredentialsByEmail(email)).thenReturn(new UserModel(email, passHash, false, false, new ArrayList<>()));
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, passwordModule, throttleModule, config);
+        ApiControllerTest.awaitResult(ctx);
         Mockito.verify(ctx).status(409);
     }
 
@@ -85,13 +106,60 @@ public class AuthenticationPostControllerTest {
         final String email = "test@test.com";
         final String pass = "123456";
         final String passHash = BCrypt.hashpw(pass, BCrypt.gensalt());
+        final AtomicLong lookedUpAt = new AtomicLong();
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"" + email + "\", \"password\":\"" + pass + "\", \"rememberMe\": false}");
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, passHash, true, false, new ArrayList<>()));
+        Mockito.when(dbModule.getUserCredentialsByEmail(email)).thenAnswer(invocation->{
+            lookedUpAt.set(System.currentTimeMillis());
+            return new UserModel(email, passHash, true, false, new ArrayList<>());
+        });
         Mockito.when(config.getJwtExpireTime()).thenReturn(604800000L);
         Mockito.when(config.getDomain()).thenReturn("localhost");
-        Mockito.when(securityModule.getJWSToken(email, new Date(System.currentTimeMillis() + config.getJwtExpireTime()))).thenReturn("");
+        Mockito.when(securityModule.newRefreshToken()).thenReturn("refresh");
+        Mockito.when(securityModule.getRefreshTokenId("refresh")).thenReturn("refreshId");
+        Mockito.when(securityModule.getAccessToken(Mockito.eq(config), Mockito.any(), Mockito.anyLong(), Mockito.anyLong()))
+                .thenReturn("access");
 
-        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, config);
+        final long before = System.currentTimeMillis();
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, passwordModule, throttleModule, config);
+        ApiControllerTest.awaitResult(ctx);
         Mockito.verify(ctx).status(200);
+        // Issued at the time the user was read, not after the password check
+        Mockito.verify(securityModule).getAccessToken(Mockito.eq(config), Mockito.any(),
+                Mockito.longThat(readAt->readAt >= before && readAt <= lookedUpAt.get()), Mockito.anyLong());
+        Mockito.verify(dbModule).saveRefreshToken(Mockito.argThat(model->model.id.equals("refreshId") && !model.persistent));
+        Mockito.verify(ctx, Mockito.times(3)).cookie(Mockito.<Cookie>any());
+    }
+
+    @Test
+    public void POST_postAuthentication_503() {
+        final PasswordModule busyPasswordModule = Mockito.mock(PasswordModule.class);
+        Mockito.when(ctx.body()).thenReturn("{\"email\":\"test@test.com\", \"password\":\"123456\", \"rememberMe\": false}");
+        Mockito.when(dbModule.getUserCredentialsByEmail("test@test.com")).thenReturn(new UserModel("test@test.com", "", true, false, new ArrayList<>()));
+        Mockito.when(busyPasswordModule.submit(Mockito.any())).thenThrow(new RejectedExecutionException());
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, busyPasswordModule, throttleModule, config);
+        Mockito.verify(ctx).status(503);
+        Mockito.verify(ctx).header("Retry-After", "1");
+    }
+
+    @Test
+    public void POST_postAuthentication_429() {
+        final PasswordModule checkedPasswordModule = Mockito.mock(PasswordModule.class);
+        final LoginThrottleModule strictThrottleModule = new LoginThrottleModule(
+                new RateLimiter(1, 1, 16), new RateLimiter(0, 0, 1)
+        );
+        Mockito.when(ctx.body()).thenReturn("{\"email\":\"test@test.com\", \"password\":\"123456\", \"rememberMe\": false}");
+        Mockito.when(dbModule.getUserCredentialsByEmail("test@test.com")).thenReturn(new UserModel("test@test.com", "", true, false, new ArrayList<>()));
+        Mockito.when(checkedPasswordModule.submit(Mockito.any())).thenReturn(new CompletableFuture<>());
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, checkedPasswordModule, strictThrottleModule, config);
+        AuthenticationPostController.postAuthentication(ctx, dbModule, securityModule, checkedPasswordModule, strictThrottleModule, config);
+        Mockito.verify(ctx).status(429);
+        Mockito.verify(checkedPasswordModule, Mockito.times(1)).submit(Mockito.any());
+        strictThrottleModule.close();
+    }
+
+    @After
+    public void tearDown() {
+        passwordModule.close();
+        throttleModule.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.forwardauth.get;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v1.ApiControllerTest;
+import net.reallifegames.localauth.models.UserModel;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+public class ForwardAuthGetControllerTest {
+
+    private final Context ctx = Mockito.mock(Context.class);
+    private final SecurityModule securityModule = Mockito.mock(SecurityModule.class);
+    private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
+
+    @Test
+    public void GET_forwardAuth_401() {
+        Mockito.when(ctx.cookie("authToken")).thenReturn("");
+        Mockito.when(securityModule.getJWSEmailClaim("")).thenReturn("");
+        ForwardAuthGetController.getForwardAuth(ctx, dbModule, securityModule);
+        Mockito.verify(ctx).status(401);
+        Mockito.verify(dbModule, Mockito.never()).getUserAuthModelByEmailAsync(Mockito.anyString());
+    }
+
+    @Test
+    public void GET_forwardAuth_200() {
+        final String email = "test@test.com";
+        Mockito.when(ctx.cookie("authToken")).thenReturn("token");
+        Mockito.when(securityModule.getJWSEmailClaim("token")).thenReturn(email);
+        Mockito.when(dbModule.getUserAuthModelByEmailAsync(email)).thenReturn(CompletableFuture.completedFuture(new UserModel(email, "", true, false, Arrays.asList(1, 5))));
+        ForwardAuthGetController.getForwardAuth(ctx, dbModule, securityModule);
+        ApiControllerTest.awaitResult(ctx);
+        Mockito.verify(ctx).status(200);
+        Mockito.verify(ctx).header("X-Auth-User", email);
+        Mockito.verify(ctx).header("X-Auth-Permissions", "1,5");
+    }
+
+    @Test
+    public void GET_forwardAuth_accessToken_200() {
+        final String email = "test@test.com";
+        Mockito.when(ctx.cookie("authToken")).thenReturn("token");
+        Mockito.when(securityModule.getJWSUserClaims("token")).thenReturn(new UserModel(email, "", true, false, Arrays.asList(1, 5)));
+        ForwardAuthGetController.getForwardAuth(ctx, dbModule, securityModule);
+        Mockito.verify(ctx).status(200);
+        Mockito.verify(ctx).header("X-Auth-User", email);
+        Mockito.verify(ctx).header("X-Auth-Permissions", "1,5");
+        Mockito.verify(dbModule, Mockito.never()).getUserAuthModelByEmailAsync(Mockito.anyString());
+    }
+
+    @Test
+    public void GET_forwardAuth_permissions_200() {
+        final String email = "test@test.com";
+        Mockito.when(ctx.cookie("authToken")).thenReturn("token");
+        Mockito.when(ctx.queryParam("permissions")).thenReturn("7,5");
+        Mockito.when(securityModule.getJWSEmailClaim("token")).thenReturn(email);
+        Mockito.when(dbModule.getUserAuthModelByEmailAsync(email)).thenReturn(CompletableFuture.completedFuture(new UserModel(email, "", true, false, Arrays.asList(1, 5))));
+        ForwardAuthGetController.getForwardAuth(ctx, dbModule, securityModule);
+        ApiControllerTest.awaitResult(ctx);
+        Mockito.verify(ctx).status(200);
+    }
+
+    @Test
+    public void GET_forwardAuth_permissions_401() {
+        final String email = "test@test.com";
+        Mockito.when(ctx.cookie("authToken")).thenReturn("token");
+        Mockito.when(ctx.queryParam("permissions")).thenReturn("7");
+        Mockito.when(securityModule.getJWSEmailClaim("token")).thenReturn(email);
+        Mockito.when(dbModule.getUserAuthModelByEmailAsync(email)).thenReturn(CompletableFuture.completedFuture(new UserModel(email, "", true, false, Arrays.asList(1, 5))));
+        ForwardAuthGetController.getForwardAuth(ctx, dbModule, securityModule);
+        ApiControllerTest.awaitResult(ctx);
+        Mockito.verify(ctx).status(401);
+    }
+}
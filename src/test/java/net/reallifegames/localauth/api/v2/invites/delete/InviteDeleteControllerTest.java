@@ -42,7 +42,7 @@ public class InviteDeleteControllerTest {
     public void DELETE_deleteInvite_400() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("");
         InviteDeleteController.deleteInvite(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(400);
@@ -53,7 +53,7 @@ public class InviteDeleteControllerTest {
         final String email = "test@test.com";
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("api/v2/invites/delete/" + email);
         Mockito.when(dbModule.deleteInvite(email)).thenReturn(false);
 
@@ -66,7 +66,7 @@ public class InviteDeleteControllerTest {
         final String email = "test@test.com";
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("api/v2/invites/delete/" + email);
         Mockito.when(dbModule.deleteInvite(email)).thenReturn(true);
 
@@ -42,7 +42,7 @@ public class InviteGetControllerTest {
     public void GET_getInvites_default_200() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("");
         try {
             InviteGetController.getInvites(ctx, dbModule, securityModule);
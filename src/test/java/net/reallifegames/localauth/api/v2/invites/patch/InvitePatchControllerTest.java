@@ -43,7 +43,7 @@ public class InvitePatchControllerTest {
     public void POST_patchInvite_400() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("");
         InvitePatchController.patchInvite(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(400);
@@ -53,7 +53,7 @@ public class InvitePatchControllerTest {
     public void POST_patchInvite_406() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"test\", \"permissions\": [0]}");
         InvitePatchController.patchInvite(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(406);
@@ -63,7 +63,7 @@ public class InvitePatchControllerTest {
     public void POST_patchInvite_409() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"test@test.com\", \"permissions\": [0]}");
         Mockito.when(dbModule.updateInvite(email, Arrays.asList(0))).thenReturn(false);
         InvitePatchController.patchInvite(ctx, dbModule, securityModule);
@@ -74,7 +74,7 @@ public class InvitePatchControllerTest {
     public void POST_patchInvite_200() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"test@test.com\", \"permissions\": [0]}");
         Mockito.when(dbModule.updateInvite(email, new ArrayList<>())).thenReturn(true);
         InvitePatchController.patchInvite(ctx, dbModule, securityModule);
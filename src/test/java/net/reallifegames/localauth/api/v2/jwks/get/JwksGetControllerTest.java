@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.jwks.get;
+
+import io.javalin.http.Context;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.SecurityModule;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Collections;
+
+public class JwksGetControllerTest {
+
+    private final HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+    private final HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+    private final Context ctx = new Context(req, res, Collections.emptyMap());
+    private final ServletOutputStream outputStream = Mockito.mock(ServletOutputStream.class);
+    private final SecurityModule securityModule = new SecurityModule();
+    private final Config config = Mockito.mock(Config.class);
+
+    private String getBody() throws IOException {
+        Mockito.when(res.getOutputStream()).thenReturn(outputStream);
+        JwksGetController.getJwks(ctx, securityModule, config);
+        Mockito.verify(res).setStatus(200);
+        final ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(outputStream).write(body.capture());
+        return new String(body.getValue(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void GET_getJwks_secretKey_200() throws IOException {
+        Assert.assertEquals("{\"keys\":[]}", getBody());
+    }
+
+    @Test
+    public void GET_getJwks_keyPair_200() throws IOException {
+        final KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        Mockito.when(config.getSigningKeyPair()).thenReturn(keyPair);
+        final String body = getBody();
+        Assert.assertTrue(body.contains("\"kid\":\"" + securityModule.getJsonWebKey(keyPair.getPublic()).kid + "\""));
+        Assert.assertTrue(body.contains("\"crv\":\"P-256\""));
+        Assert.assertFalse(body.contains("\"d\""));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.metrics.get;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.MetricsModule;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MetricsGetControllerTest {
+
+    private final Context ctx = Mockito.mock(Context.class);
+    private final MetricsModule metricsModule = Mockito.mock(MetricsModule.class);
+
+    @Test
+    public void GET_getMetrics_200() {
+        Mockito.when(metricsModule.scrape()).thenReturn("");
+        MetricsGetController.getMetrics(ctx, metricsModule);
+        Mockito.verify(ctx).status(200);
+        Mockito.verify(ctx).result("");
+    }
+}
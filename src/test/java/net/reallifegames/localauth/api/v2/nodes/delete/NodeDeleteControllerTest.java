@@ -42,7 +42,7 @@ public class NodeDeleteControllerTest {
     public void DELETE_deleteNode_400() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("");
         NodeDeleteController.deleteNode(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(400);
@@ -53,7 +53,7 @@ public class NodeDeleteControllerTest {
         final String email = "test@test.com";
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("api/v2/nodes/delete/test");
         Mockito.when(dbModule.deleteNode("test")).thenReturn(false);
 
@@ -66,7 +66,7 @@ public class NodeDeleteControllerTest {
         final String email = "test@test.com";
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("api/v2/invites/delete/test");
         Mockito.when(dbModule.deleteNode("test")).thenReturn(true);
 
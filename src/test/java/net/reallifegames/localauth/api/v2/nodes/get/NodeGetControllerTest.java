@@ -24,17 +24,24 @@
 package net.reallifegames.localauth.api.v2.nodes.get;
 
 import io.javalin.http.Context;
+import net.reallifegames.localauth.LocalAuth;
 import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v1.ApiController;
 import net.reallifegames.localauth.models.UserModel;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.Arrays;
+import java.util.Collections;
 
 public class NodeGetControllerTest {
 
     private final Context ctx = Mockito.mock(Context.class);
+    private final HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+    private final HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
     private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
     private final SecurityModule securityModule = Mockito.mock(SecurityModule.class);
 
@@ -42,7 +49,7 @@ public class NodeGetControllerTest {
     public void GET_getNodes_default_200() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("");
         try {
             NodeGetController.getNodes(ctx, dbModule, securityModule);
@@ -52,4 +59,32 @@ public class NodeGetControllerTest {
             Mockito.verify(ctx).status(200);
         }
     }
+
+    @Test
+    public void GET_getNodes_notModified_304() throws Exception {
+        final String email = "test@test.com";
+        Mockito.when(securityModule.getJWSEmailClaim(null)).thenReturn(email);
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getNodesVersion()).thenReturn(7L);
+        Mockito.when(req.getHeader("If-None-Match")).thenReturn(ApiController.versionETag(7L, "nodes"));
+        NodeGetController.getNodes(new Context(req, res, Collections.emptyMap()), dbModule, securityModule);
+        Mockito.verify(res).setStatus(304);
+        Mockito.verify(dbModule, Mockito.never()).getAllNodeModels();
+    }
+
+    @Test
+    public void GET_getNodes_unknownVersion_304() throws Exception {
+        final String email = "test@test.com";
+        Mockito.when(securityModule.getJWSEmailClaim(null)).thenReturn(email);
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getNodesVersion()).thenReturn(-1L);
+        Mockito.when(dbModule.getAllNodeModels()).thenReturn(Collections.emptyList());
+        final String etag = ApiController.bodyETag(
+                LocalAuth.objectMapper.writeValueAsBytes(new NodeGetRequest(Collections.emptyList()))
+        );
+        Mockito.when(req.getHeader("If-None-Match")).thenReturn("W/" + etag);
+        NodeGetController.getNodes(new Context(req, res, Collections.emptyMap()), dbModule, securityModule);
+        Mockito.verify(res).setStatus(304);
+        Mockito.verify(res, Mockito.never()).setStatus(200);
+    }
 }
\ No newline at end of file
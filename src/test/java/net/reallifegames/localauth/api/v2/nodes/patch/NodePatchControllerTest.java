@@ -42,7 +42,7 @@ public class NodePatchControllerTest {
     public void POST_patchNode_400() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("");
         NodePatchController.patchNode(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(400);
@@ -52,7 +52,7 @@ public class NodePatchControllerTest {
     public void POST_patchNode_406() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"id\":\"\", \"defaultText\": \"\"}");
         NodePatchController.patchNode(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(406);
@@ -62,7 +62,7 @@ public class NodePatchControllerTest {
     public void POST_patchNode_409() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"id\":\"testt\", \"defaultText\": \"testt\"}");
         Mockito.when(dbModule.updateNode("testt", "testt")).thenReturn(false);
         NodePatchController.patchNode(ctx, dbModule, securityModule);
@@ -73,7 +73,7 @@ public class NodePatchControllerTest {
     public void POST_patchNode_200() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"id\":\"testt\", \"defaultText\": \"testt\"}");
         Mockito.when(dbModule.updateNode("testt", "testt")).thenReturn(true);
         NodePatchController.patchNode(ctx, dbModule, securityModule);
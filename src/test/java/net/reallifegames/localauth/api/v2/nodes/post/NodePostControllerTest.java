@@ -42,7 +42,7 @@ public class NodePostControllerTest {
     public void POST_postNode_400() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("");
         NodePostController.postNode(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(400);
@@ -52,7 +52,7 @@ public class NodePostControllerTest {
     public void POST_postNode_406() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"id\":\"\", \"defaultText\": \"\"}");
         NodePostController.postNode(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(406);
@@ -64,7 +64,7 @@ public class NodePostControllerTest {
         final String id = "test";
         final String defaultText = "asd asd";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"id\":\"" + id + "\", \"defaultText\": \"" + defaultText + "\"}");
         Mockito.when(dbModule.createNewNode(id, defaultText)).thenReturn(false);
         NodePostController.postNode(ctx, dbModule, securityModule);
@@ -77,7 +77,7 @@ public class NodePostControllerTest {
         final String id = "test";
         final String defaultText = "asd asd";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("{\"id\":\"" + id + "\", \"defaultText\": \"" + defaultText + "\"}");
         Mockito.when(dbModule.createNewNode(id, defaultText)).thenReturn(true);
         NodePostController.postNode(ctx, dbModule, securityModule);
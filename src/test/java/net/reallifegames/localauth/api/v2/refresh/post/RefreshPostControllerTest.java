@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019 - Present, Tyler Bucher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reallifegames.localauth.api.v2.refresh.post;
+
+import io.javalin.http.Context;
+import net.reallifegames.localauth.Config;
+import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.models.RefreshTokenModel;
+import net.reallifegames.localauth.models.UserModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import javax.servlet.http.Cookie;
+import java.util.ArrayList;
+import java.util.Date;
+
+public class RefreshPostControllerTest {
+
+    private final Context ctx = Mockito.mock(Context.class);
+    private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
+    private final SecurityModule securityModule = Mockito.mock(SecurityModule.class);
+    private final Config config = Mockito.mock(Config.class);
+    private final Date expiresAt = new Date(System.currentTimeMillis() + 60000);
+
+    @Before
+    public void setUp() {
+        Mockito.when(config.getDomain()).thenReturn("localhost");
+        Mockito.when(config.getJwtExpireTime()).thenReturn(604800000L);
+        Mockito.when(ctx.cookie("refreshToken")).thenReturn("refresh");
+        Mockito.when(securityModule.getRefreshTokenId("refresh")).thenReturn("refreshId");
+    }
+
+    private void stubRefreshToken(final long usedAt) {
+        Mockito.when(dbModule.useRefreshToken(ArgumentMatchers.eq("refreshId"), ArgumentMatchers.anyLong())).thenReturn(
+                new RefreshTokenModel("refreshId", "test@test.com", "family", usedAt, true, expiresAt)
+        );
+    }
+
+    @Test
+    public void POST_postRefresh_401_noCookie() {
+        Mockito.when(ctx.cookie("refreshToken")).thenReturn(null);
+        RefreshPostController.postRefresh(ctx, dbModule, securityModule, config);
+        Mockito.verify(ctx).status(401);
+        Mockito.verify(ctx, Mockito.times(3)).cookie(ArgumentMatchers.<Cookie>argThat(cookie->cookie.getMaxAge() == 0));
+    }
+
+    @Test
+    public void POST_postRefresh_401_unknown() {
+        RefreshPostController.postRefresh(ctx, dbModule, securityModule, config);
+        Mockito.verify(ctx).status(401);
+        Mockito.verify(dbModule, Mockito.never()).deleteRefreshTokenFamily(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void POST_postRefresh_409_reusedInGrace() {
+        stubRefreshToken(System.currentTimeMillis());
+        RefreshPostController.postRefresh(ctx, dbModule, securityModule, config);
+        Mockito.verify(ctx).status(409);
+        Mockito.verify(dbModule, Mockito.never()).deleteRefreshTokenFamily(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void POST_postRefresh_401_reused() {
+        stubRefreshToken(1);
+        RefreshPostController.postRefresh(ctx, dbModule, securityModule, config);
+        Mockito.verify(ctx).status(401);
+        Mockito.verify(dbModule).deleteRefreshTokenFamily("family");
+    }
+
+    @Test
+    public void POST_postRefresh_401_inactive() {
+        stubRefreshToken(0);
+        Mockito.when(dbModule.getUserAuthModelByEmail("test@test.com")).thenReturn(
+                new UserModel("test@test.com", "", false, false, new ArrayList<>())
+        );
+        RefreshPostController.postRefresh(ctx, dbModule, securityModule, config);
+        Mockito.verify(ctx).status(401);
+        Mockito.verify(dbModule).deleteRefreshTokenFamily("family");
+    }
+
+    @Test
+    public void POST_postRefresh_200() {
+        stubRefreshToken(0);
+        Mockito.when(dbModule.getUserAuthModelByEmail("test@test.com")).thenReturn(
+                new UserModel("test@test.com", "", true, false, new ArrayList<>())
+        );
+        Mockito.when(securityModule.newRefreshToken()).thenReturn("next");
+        Mockito.when(securityModule.getRefreshTokenId("next")).thenReturn("nextId");
+        RefreshPostController.postRefresh(ctx, dbModule, securityModule, config);
+        Mockito.verify(ctx).status(200);
+        Mockito.verify(dbModule).saveRefreshToken(ArgumentMatchers.argThat(model->model.id.equals("nextId") &&
+                model.family.equals("family") && model.persistent && model.expiresAt.equals(expiresAt)));
+        // The login keeps its expiry instead of starting over
+        Mockito.verify(securityModule).getAccessToken(ArgumentMatchers.eq(config), ArgumentMatchers.any(),
+                ArgumentMatchers.anyLong(), ArgumentMatchers.eq(expiresAt.getTime()));
+        Mockito.verify(dbModule, Mockito.never()).deleteRefreshTokenFamily(ArgumentMatchers.any());
+    }
+}
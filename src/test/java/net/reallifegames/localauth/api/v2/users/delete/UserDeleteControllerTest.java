@@ -42,7 +42,7 @@ public class UserDeleteControllerTest {
     public void DELETE_deleteUser_400() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("");
         UserDeleteController.deleteUser(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(400);
@@ -53,12 +53,13 @@ public class UserDeleteControllerTest {
         final String email = "test@test.com";
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("api/v2/users/delete/" + email);
         Mockito.when(dbModule.deleteUser(email)).thenReturn(false);
 
         UserDeleteController.deleteUser(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(409);
+        Mockito.verify(securityModule, Mockito.never()).revokeUser(email);
     }
 
     @Test
@@ -66,11 +67,12 @@ public class UserDeleteControllerTest {
         final String email = "test@test.com";
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("api/v2/users/delete/" + email);
         Mockito.when(dbModule.deleteUser(email)).thenReturn(true);
 
         UserDeleteController.deleteUser(ctx, dbModule, securityModule);
         Mockito.verify(ctx).status(200);
+        Mockito.verify(securityModule).revokeUser(email);
     }
 }
\ No newline at end of file
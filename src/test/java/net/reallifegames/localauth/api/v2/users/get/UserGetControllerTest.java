@@ -26,12 +26,16 @@ package net.reallifegames.localauth.api.v2.users.get;
 import io.javalin.http.Context;
 import net.reallifegames.localauth.MongoDbModule;
 import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v1.ApiController;
 import net.reallifegames.localauth.models.UserModel;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 
 public class UserGetControllerTest {
 
@@ -44,6 +48,7 @@ public class UserGetControllerTest {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
         Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("localhost/api/v2/users/" + email);
         try {
             UserGetController.getUsers(ctx, dbModule, securityModule);
@@ -60,6 +65,7 @@ public class UserGetControllerTest {
         final String nEmail = "test2@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
         Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("localhost/api/v2/users/" + nEmail);
         Mockito.when(dbModule.getUserModelByEmail(nEmail)).thenReturn(null);
         try {
@@ -76,6 +82,7 @@ public class UserGetControllerTest {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
         Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.path()).thenReturn("");
         try {
             UserGetController.getUsers(ctx, dbModule, securityModule);
@@ -91,6 +98,7 @@ public class UserGetControllerTest {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
         Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, new ArrayList<>()));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, new ArrayList<>()));
         Mockito.when(ctx.path()).thenReturn("");
         try {
             UserGetController.getUsers(ctx, dbModule, securityModule);
@@ -100,4 +108,24 @@ public class UserGetControllerTest {
             Mockito.verify(ctx).status(200);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void GET_getUsers_list_gzipNotModified_304() throws Exception {
+        final String email = "test@test.com";
+        final HttpServletRequest req = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse res = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(securityModule.getJWSEmailClaim(null)).thenReturn(email);
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUsersVersion()).thenReturn(3L);
+        Mockito.when(req.getRequestURI()).thenReturn("/api/v2/users/*");
+        Mockito.when(req.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        // The compressed listing is tagged apart from the plain one
+        final String etag = ApiController.gzipETag(ApiController.versionETag(3L, "users"));
+        Mockito.when(req.getHeader("If-None-Match")).thenReturn(etag);
+        UserGetController.getUsers(new Context(req, res, Collections.emptyMap()), dbModule, securityModule);
+        Mockito.verify(res).setStatus(304);
+        Mockito.verify(res).setHeader("ETag", etag);
+        Mockito.verify(res).setHeader("Vary", "Accept-Encoding");
+        Mockito.verify(dbModule, Mockito.never()).getUserModelCursor(Mockito.any(), Mockito.anyInt());
+    }
+}
@@ -25,8 +25,10 @@ package net.reallifegames.localauth.api.v2.users.patch;
 
 import io.javalin.http.Context;
 import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.PasswordModule;
 import net.reallifegames.localauth.Permissions;
 import net.reallifegames.localauth.SecurityModule;
+import net.reallifegames.localauth.api.v1.ApiControllerTest;
 import net.reallifegames.localauth.models.UserModel;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -39,14 +41,15 @@ public class UserPatchControllerTest {
     private final Context ctx = Mockito.mock(Context.class);
     private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
     private final SecurityModule securityModule = Mockito.mock(SecurityModule.class);
+    private final PasswordModule passwordModule = new PasswordModule(1, 4);
 
     @Test
     public void PATCH_patchUser_400() {
         final String email = "test@test.com";
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(0)));
         Mockito.when(ctx.body()).thenReturn("");
-        UserPatchController.patchUser(ctx, dbModule, securityModule);
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
         Mockito.verify(ctx).status(400);
     }
 
@@ -57,11 +60,12 @@ public class UserPatchControllerTest {
         final boolean active = true;
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
         Mockito.when(ctx.body()).thenReturn("{\"email\": \"" + email + "\", \"password\":\"" + password + "\", \"active\":" + active + ", \"permissions\": [0], \"nodeMetaData\": \"\"}");
-        Mockito.when(dbModule.updateUserModel(email, password, active, null)).thenReturn(false);
+        Mockito.when(dbModule.updateUserModelWithHash(Mockito.eq(email), Mockito.anyString(), Mockito.eq(active), Mockito.isNull())).thenReturn(false);
 
-        UserPatchController.patchUser(ctx, dbModule, securityModule);
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
+        ApiControllerTest.awaitResult(ctx);
         Mockito.verify(ctx).status(409);
     }
 
@@ -72,12 +76,29 @@ public class UserPatchControllerTest {
         final boolean active = true;
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
         Mockito.when(ctx.body()).thenReturn("{\"email\": \"" + email + "\", \"password\":\"" + password + "\", \"active\":" + active + ", \"permissions\": [0], \"nodeMetaData\": \"\"}");
-        Mockito.when(dbModule.updateUserModel(email, password, active, null)).thenReturn(true);
+        Mockito.when(dbModule.updateUserModelWithHash(Mockito.eq(email), Mockito.anyString(), Mockito.eq(active), Mockito.isNull())).thenReturn(true);
+
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
+        ApiControllerTest.awaitResult(ctx);
+        Mockito.verify(ctx).status(200);
+    }
+
+    @Test
+    public void PATCH_patchUser_deactivate_200() {
+        final String email = "test@test.com";
+        final String target = "target@test.com";
 
-        UserPatchController.patchUser(ctx, dbModule, securityModule);
+        Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
+        Mockito.when(ctx.body()).thenReturn("{\"email\": \"" + target + "\", \"password\":\"\", \"active\":false, \"permissions\": [], \"nodeMetaData\": \"\"}");
+        Mockito.when(dbModule.updateUserModelWithHash(target, null, false, null)).thenReturn(true);
+        Mockito.when(dbModule.getUserAuthModelByEmail(target)).thenReturn(new UserModel(target, "", false, false, new ArrayList<>()));
+
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
         Mockito.verify(ctx).status(200);
+        Mockito.verify(securityModule).revokeUser(target);
     }
 
     @Test
@@ -87,11 +108,12 @@ public class UserPatchControllerTest {
         final boolean active = true;
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, new ArrayList<>()));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, new ArrayList<>()));
         Mockito.when(ctx.body()).thenReturn("{\"email\": \"" + email + "\", \"password\":\"" + password + "\", \"active\":" + active + ", \"permissions\": [0], \"nodeMetaData\": \"\"}");
-        Mockito.when(dbModule.updateUserModel(email, password, active, null)).thenReturn(true);
+        Mockito.when(dbModule.updateUserModelWithHash(Mockito.eq(email), Mockito.anyString(), Mockito.eq(active), Mockito.isNull())).thenReturn(true);
 
-        UserPatchController.patchUser(ctx, dbModule, securityModule);
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
+        ApiControllerTest.awaitResult(ctx);
         Mockito.verify(ctx).status(200);
     }
 
@@ -102,12 +124,12 @@ public class UserPatchControllerTest {
         final boolean active = true;
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
         Mockito.when(ctx.body()).thenReturn("{\"email\": \"test2@test.com\", \"password\":\"\", \"active\":false, \"permissions\": [], \"nodeMetaData\": \"test\"}");
         Mockito.when(dbModule.updateUserModel(email, password, active, null)).thenReturn(true);
         Mockito.when(dbModule.updateUserNodeMetadata(email, "test")).thenReturn(false);
 
-        UserPatchController.patchUser(ctx, dbModule, securityModule);
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
         Mockito.verify(ctx).status(401);
     }
 
@@ -118,12 +140,12 @@ public class UserPatchControllerTest {
         final boolean active = true;
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
         Mockito.when(ctx.body()).thenReturn("{\"email\": \"" + email + "\", \"password\":\"\", \"active\":false, \"permissions\": [], \"nodeMetaData\": \"test\"}");
         Mockito.when(dbModule.updateUserModel(email, password, active, null)).thenReturn(true);
         Mockito.when(dbModule.updateUserNodeMetadata(email, "test")).thenReturn(false);
 
-        UserPatchController.patchUser(ctx, dbModule, securityModule);
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
         Mockito.verify(ctx).status(409);
     }
 
@@ -134,12 +156,12 @@ public class UserPatchControllerTest {
         final boolean active = true;
 
         Mockito.when(securityModule.getJWSEmailClaim(ctx.cookie("authToken"))).thenReturn(email);
-        Mockito.when(dbModule.getUserModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
+        Mockito.when(dbModule.getUserAuthModelByEmail(email)).thenReturn(new UserModel(email, "", true, false, Arrays.asList(Permissions.CAN_USER_MOD_USERS.value)));
         Mockito.when(ctx.body()).thenReturn("{\"email\": \"" + email + "\", \"password\":\"\", \"active\":false, \"permissions\": [], \"nodeMetaData\": \"test\"}");
         Mockito.when(dbModule.updateUserModel(email, password, active, null)).thenReturn(true);
         Mockito.when(dbModule.updateUserNodeMetadata(email, "test")).thenReturn(true);
 
-        UserPatchController.patchUser(ctx, dbModule, securityModule);
+        UserPatchController.patchUser(ctx, dbModule, securityModule, passwordModule);
         Mockito.verify(ctx).status(200);
     }
 }
\ No newline at end of file
@@ -25,6 +25,8 @@ package net.reallifegames.localauth.api.v2.users.post;
 
 import io.javalin.http.Context;
 import net.reallifegames.localauth.MongoDbModule;
+import net.reallifegames.localauth.PasswordModule;
+import net.reallifegames.localauth.api.v1.ApiControllerTest;
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -32,11 +34,12 @@ public class UserPostControllerTest {
 
     private final Context ctx = Mockito.mock(Context.class);
     private final MongoDbModule dbModule = Mockito.mock(MongoDbModule.class);
+    private final PasswordModule passwordModule = new PasswordModule(1, 4);
 
     @Test
     public void POST_postUsers_400() {
         Mockito.when(ctx.body()).thenReturn("");
-        UserPostController.postUser(ctx, dbModule);
+        UserPostController.postUser(ctx, dbModule, passwordModule);
         Mockito.verify(ctx).status(400);
     }
 
@@ -44,7 +47,7 @@ public class UserPostControllerTest {
     public void POST_postUsers_406() {
         final String email = "test";
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"" + email + "\", \"password\":\"123456\", \"passwordConfirm\": \"12345\"}");
-        UserPostController.postUser(ctx, dbModule);
+        UserPostController.postUser(ctx, dbModule, passwordModule);
         Mockito.verify(ctx).status(406);
     }
 
@@ -52,8 +55,9 @@ public class UserPostControllerTest {
     public void POST_postUsers_409() {
         final String email = "test@test.com";
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"" + email + "\", \"password\":\"123456\", \"passwordConfirm\": \"123456\"}");
-        Mockito.when(dbModule.createNewUser(email, "123456")).thenReturn(false);
-        UserPostController.postUser(ctx, dbModule);
+        Mockito.when(dbModule.createNewUserWithHash(Mockito.eq(email), Mockito.anyString())).thenReturn(false);
+        UserPostController.postUser(ctx, dbModule, passwordModule);
+        ApiControllerTest.awaitResult(ctx);
         Mockito.verify(ctx).status(409);
     }
 
@@ -61,8 +65,9 @@ public class UserPostControllerTest {
     public void POST_postUsers_200() {
         final String email = "test@test.com";
         Mockito.when(ctx.body()).thenReturn("{\"email\":\"" + email + "\", \"password\":\"123456\", \"passwordConfirm\": \"123456\"}");
-        Mockito.when(dbModule.createNewUser(email, "123456")).thenReturn(true);
-        UserPostController.postUser(ctx, dbModule);
+        Mockito.when(dbModule.createNewUserWithHash(Mockito.eq(email), Mockito.anyString())).thenReturn(true);
+        UserPostController.postUser(ctx, dbModule, passwordModule);
+        ApiControllerTest.awaitResult(ctx);
         Mockito.verify(ctx).status(200);
     }
 }
\ No newline at end of file